@@ -0,0 +1,197 @@
+package com.profittracker;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Profit and online ticks totalled by an int key, such as the region they were made in.
+ * Stored in fixed open addressed primitive arrays, so adding to a key neither allocates nor boxes.
+ * The number of keys is bounded, once full any new key is totalled under {@link #OTHER_KEY}.
+ * Saved as lists of only the keys used, rather than the whole table.
+ */
+@JsonAdapter(ProfitTrackerAttribution.Adapter.class)
+public class ProfitTrackerAttribution {
+    // Totals for keys seen once the table was full
+    public static final int OTHER_KEY = Integer.MAX_VALUE;
+    // Region of a tick where the player's location couldn't be found
+    public static final int UNKNOWN_REGION = -1;
+
+    // Activity keys, the type of activity in the top byte and the id of the npc or interface below it
+    public static final int NO_ACTIVITY = 0;
+    private static final int NPC_ACTIVITY = 1 << 24;
+    private static final int INTERFACE_ACTIVITY = 2 << 24;
+    private static final int ACTIVITY_ID_MASK = (1 << 24) - 1;
+
+    static final int MAX_KEYS = 256;
+    // Kept at least twice the maximum keys, so probes stay short
+    private static final int CAPACITY = 512;
+
+    private final int[] keys = new int[CAPACITY];
+    private final boolean[] used = new boolean[CAPACITY];
+    private final long[] profits = new long[CAPACITY];
+    private final long[] ticks = new long[CAPACITY];
+    private int size;
+
+    public static int npcActivity(int npcId) {
+        return NPC_ACTIVITY | (npcId & ACTIVITY_ID_MASK);
+    }
+
+    public static int interfaceActivity(int interfaceId) {
+        return INTERFACE_ACTIVITY | (interfaceId & ACTIVITY_ID_MASK);
+    }
+
+    public static boolean isNpcActivity(int activity) {
+        return (activity & ~ACTIVITY_ID_MASK) == NPC_ACTIVITY;
+    }
+
+    public static boolean isInterfaceActivity(int activity) {
+        return (activity & ~ACTIVITY_ID_MASK) == INTERFACE_ACTIVITY;
+    }
+
+    public static int getActivityId(int activity) {
+        return activity & ACTIVITY_ID_MASK;
+    }
+
+    public void addProfit(int key, long profit) {
+        profits[findSlot(key)] += profit;
+    }
+
+    public void addTicks(int key, long tickCount) {
+        ticks[findSlot(key)] += tickCount;
+    }
+
+    public long getProfit(int key) {
+        int slot = getSlot(key);
+        return slot >= 0 ? profits[slot] : 0;
+    }
+
+    public long getTicks(int key) {
+        int slot = getSlot(key);
+        return slot >= 0 ? ticks[slot] : 0;
+    }
+
+    /**
+     * @return Every key with totals, in no particular order
+     */
+    public int[] getKeys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            if (used[slot]) {
+                result[count++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    public ProfitTrackerAttribution copy() {
+        ProfitTrackerAttribution copy = new ProfitTrackerAttribution();
+        System.arraycopy(keys, 0, copy.keys, 0, CAPACITY);
+        System.arraycopy(used, 0, copy.used, 0, CAPACITY);
+        System.arraycopy(profits, 0, copy.profits, 0, CAPACITY);
+        System.arraycopy(ticks, 0, copy.ticks, 0, CAPACITY);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Finds the slot of a key, adding it if there is room, or using the other key's slot if not
+     */
+    private int findSlot(int key) {
+        int slot = getSlot(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size >= MAX_KEYS - 1 && key != OTHER_KEY) {
+            // One key is kept free for the other key
+            return findSlot(OTHER_KEY);
+        }
+        slot = -slot - 1;
+        used[slot] = true;
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    /**
+     * @return The slot holding the key, or if absent, minus one minus the empty slot it would go in
+     */
+    private int getSlot(int key) {
+        int slot = (key * 0x9E3779B9) >>> 23;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & (CAPACITY - 1);
+        }
+        return -slot - 1;
+    }
+
+    static class Adapter extends TypeAdapter<ProfitTrackerAttribution> {
+        @Override
+        public void write(JsonWriter out, ProfitTrackerAttribution attribution) throws IOException {
+            if (attribution == null) {
+                out.nullValue();
+                return;
+            }
+            int[] usedKeys = attribution.getKeys();
+            out.beginObject();
+            out.name("keys").beginArray();
+            for (int key : usedKeys) {
+                out.value(key);
+            }
+            out.endArray();
+            out.name("profits").beginArray();
+            for (int key : usedKeys) {
+                out.value(attribution.getProfit(key));
+            }
+            out.endArray();
+            out.name("ticks").beginArray();
+            for (int key : usedKeys) {
+                out.value(attribution.getTicks(key));
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public ProfitTrackerAttribution read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<Long> keys = new ArrayList<>();
+            List<Long> profits = new ArrayList<>();
+            List<Long> ticks = new ArrayList<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                List<Long> values = name.equals("keys") ? keys : name.equals("profits") ? profits : name.equals("ticks") ? ticks : null;
+                if (values == null) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                while (in.hasNext()) {
+                    values.add(in.nextLong());
+                }
+                in.endArray();
+            }
+            in.endObject();
+            ProfitTrackerAttribution attribution = new ProfitTrackerAttribution();
+            for (int i = 0; i < keys.size() && i < profits.size() && i < ticks.size(); i++) {
+                int key = (int) (long) keys.get(i);
+                attribution.addProfit(key, profits.get(i));
+                attribution.addTicks(key, ticks.get(i));
+            }
+            return attribution;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.profittracker;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * Value each item has contributed to a session's profit, kept alongside the accumulated item difference.
+ * Only items in a change are revalued, and items are kept ranked by value, so the biggest gainers and losers
+ * are read off either end of the ranking instead of sorting every accumulated item.
+ */
+public class ProfitTrackerContributions {
+    // Number of gainers and losers kept for display
+    public static final int TOP_COUNT = 10;
+
+    private final Map<Integer, Integer> quantities = new HashMap<>();
+    private final Map<Integer, Long> values = new HashMap<>();
+    // Item ids by value, highest first. An item is removed before its value changes, and added back after.
+    private final TreeSet<Integer> ranking = new TreeSet<>(this::compareValues);
+
+    /**
+     * Adds a change in item quantities, revaluing only the items it contains
+     * @param itemValue Value of a stack of items
+     */
+    public void add(ProfitTrackerItemCollection change, ToLongFunction<ProfitTrackerItem> itemValue) {
+        for (int i = 0; i < change.size(); i++) {
+            int itemId = change.getId(i);
+            if (values.containsKey(itemId)) {
+                ranking.remove(itemId);
+            }
+            int quantity = quantities.getOrDefault(itemId, 0) + change.getQuantity(i);
+            if (quantity == 0) {
+                quantities.remove(itemId);
+                values.remove(itemId);
+                continue;
+            }
+            quantities.put(itemId, quantity);
+            values.put(itemId, itemValue.applyAsLong(new ProfitTrackerItem(itemId, quantity)));
+            ranking.add(itemId);
+        }
+    }
+
+    /**
+     * Revalues items whose prices changed, without changing their quantities
+     * @param itemIds Items to revalue, or null to revalue every item
+     * @param movements Change in value of each item so far, which each item's change is added to
+     * @return Total change in value
+     */
+    public long revalue(int[] itemIds, ToLongFunction<ProfitTrackerItem> itemValue, Map<Integer, Long> movements) {
+        long movement = 0;
+        for (int itemId : itemIds != null ? itemIds : quantities.keySet().stream().mapToInt(Integer::intValue).toArray()) {
+            Long oldValue = values.get(itemId);
+            if (oldValue == null) {
+                continue;
+            }
+            long newValue = itemValue.applyAsLong(new ProfitTrackerItem(itemId, quantities.get(itemId)));
+            if (newValue == oldValue) {
+                continue;
+            }
+            ranking.remove(itemId);
+            values.put(itemId, newValue);
+            ranking.add(itemId);
+            movements.merge(itemId, newValue - oldValue, Long::sum);
+            movement += newValue - oldValue;
+        }
+        return movement;
+    }
+
+    /**
+     * @return Up to the top count of items that moved the most in value, by either gaining or losing it
+     */
+    public ProfitTrackerItemContribution[] getTopMovers(Map<Integer, Long> movements) {
+        return movements.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted((first, second) -> Long.compare(Math.abs(second.getValue()), Math.abs(first.getValue())))
+                .limit(TOP_COUNT)
+                .map(entry -> new ProfitTrackerItemContribution(entry.getKey(), quantities.getOrDefault(entry.getKey(), 0), entry.getValue()))
+                .toArray(ProfitTrackerItemContribution[]::new);
+    }
+
+    /**
+     * @return Up to the top count of items that gained value, most first
+     */
+    public ProfitTrackerItemContribution[] getTopGainers() {
+        return getTop(ranking.iterator(), 1);
+    }
+
+    /**
+     * @return Up to the top count of items that lost value, most first
+     */
+    public ProfitTrackerItemContribution[] getTopLosers() {
+        return getTop(ranking.descendingIterator(), -1);
+    }
+
+    private ProfitTrackerItemContribution[] getTop(Iterator<Integer> itemIds, int sign) {
+        ProfitTrackerItemContribution[] top = new ProfitTrackerItemContribution[TOP_COUNT];
+        int count = 0;
+        while (count < TOP_COUNT && itemIds.hasNext()) {
+            int itemId = itemIds.next();
+            long value = values.get(itemId);
+            if (Long.signum(value) != sign) {
+                break;
+            }
+            top[count++] = new ProfitTrackerItemContribution(itemId, quantities.get(itemId), value);
+        }
+        ProfitTrackerItemContribution[] result = new ProfitTrackerItemContribution[count];
+        System.arraycopy(top, 0, result, 0, count);
+        return result;
+    }
+
+    private int compareValues(int firstItemId, int secondItemId) {
+        int comparison = Long.compare(values.get(secondItemId), values.get(firstItemId));
+        return comparison != 0 ? comparison : Integer.compare(firstItemId, secondItemId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.profittracker;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulated items valued at the unit value they had when gained, rather than their current value.
+ * Gains are kept as lots of each item, and losses consume the oldest lots first.
+ * Items lost beyond what was gained are kept as short lots, valued when lost, which later gains cover first.
+ */
+public class ProfitTrackerCostBasis {
+    private final Map<Integer, ProfitTrackerLotQueue> heldLots = new HashMap<>();
+    private final Map<Integer, ProfitTrackerLotQueue> shortLots = new HashMap<>();
+    // Cost of held lots, less the value of short lots
+    private long profit;
+
+    /**
+     * Adds a change of an item's quantity
+     * @param unitValue Value of one of the item when changed
+     */
+    public void add(int itemId, long quantity, long unitValue) {
+        if (quantity > 0) {
+            long covered = Math.min(quantity, getTotalQuantity(shortLots, itemId));
+            profit += consume(shortLots, itemId, covered);
+            profit += addLot(heldLots, itemId, quantity - covered, unitValue);
+        } else if (quantity < 0) {
+            long sold = Math.min(-quantity, getTotalQuantity(heldLots, itemId));
+            profit -= consume(heldLots, itemId, sold);
+            profit -= addLot(shortLots, itemId, -quantity - sold, unitValue);
+        }
+    }
+
+    /**
+     * Net quantity of an item in the lots, negative if more was lost than gained
+     */
+    public long getQuantity(int itemId) {
+        return getTotalQuantity(heldLots, itemId) - getTotalQuantity(shortLots, itemId);
+    }
+
+    public Set<Integer> getItemIds() {
+        Set<Integer> itemIds = new HashSet<>(heldLots.keySet());
+        itemIds.addAll(shortLots.keySet());
+        return itemIds;
+    }
+
+    /**
+     * Value of the accumulated items at the unit values they were gained or lost at
+     */
+    public long getProfit() {
+        return profit;
+    }
+
+    private static long consume(Map<Integer, ProfitTrackerLotQueue> lots, int itemId, long quantity) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        ProfitTrackerLotQueue queue = lots.get(itemId);
+        long consumedCost = queue.consume(quantity);
+        if (queue.isEmpty()) {
+            lots.remove(itemId);
+        }
+        return consumedCost;
+    }
+
+    /**
+     * @return Cost of the added lot
+     */
+    private static long addLot(Map<Integer, ProfitTrackerLotQueue> lots, int itemId, long quantity, long unitValue) {
+        if (quantity <= 0) {
+            return 0;
+        }
+        // Lots hold int quantities and prices, as item stacks and prices never exceed them
+        int lotQuantity = (int) Math.min(quantity, Integer.MAX_VALUE);
+        int price = (int) Math.max(0, Math.min(unitValue, Integer.MAX_VALUE));
+        lots.computeIfAbsent(itemId, id -> new ProfitTrackerLotQueue()).add(lotQuantity, price);
+        return (long) lotQuantity * price;
+    }
+
+    private static long getTotalQuantity(Map<Integer, ProfitTrackerLotQueue> lots, int itemId) {
+        ProfitTrackerLotQueue queue = lots.get(itemId);
+        return queue != null ? queue.getTotalQuantity() : 0;
+    }
+}
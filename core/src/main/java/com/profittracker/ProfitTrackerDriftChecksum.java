@@ -0,0 +1,102 @@
+package com.profittracker;
+
+/**
+ * Additive multiset hashes of a record's starting possessions, current possessions and accumulated item difference.
+ * Each item adds its quantity times a hash of its id, so a collection's hash is updated with only the items that
+ * changed in it, and current minus starting minus accumulated stays the same for as long as the three agree.
+ * Drift present when the checksum is created, like manual adjustments from earlier sessions, is accepted as known.
+ */
+public class ProfitTrackerDriftChecksum {
+    private long startingHash;
+    private long currentHash;
+    private long accumulatedHash;
+    // Drift accepted as known, and the items it is made of
+    private long acceptedHash;
+    private ProfitTrackerItemCollection acceptedItems;
+
+    ProfitTrackerDriftChecksum(ProfitTrackerRecord record) {
+        ProfitTrackerItemCollection startingItems = record.startingPossessions.getItems();
+        ProfitTrackerItemCollection currentItems = record.currentPossessions.getItems();
+        startingHash = hash(startingItems);
+        currentHash = hash(currentItems);
+        accumulatedHash = hash(record.itemDifferenceAccumulated);
+        acceptedHash = getDrift();
+        acceptedItems = getDriftItems(startingItems, currentItems, record.itemDifferenceAccumulated);
+    }
+
+    public void addStarting(ProfitTrackerItemCollection change) {
+        startingHash += hash(change);
+    }
+
+    public void addCurrent(ProfitTrackerItemCollection change) {
+        currentHash += hash(change);
+    }
+
+    public void addAccumulated(ProfitTrackerItemCollection change) {
+        accumulatedHash += hash(change);
+    }
+
+    /**
+     * Adds a change to the accumulated difference that is not expected to match the possessions, such as a manual adjustment
+     */
+    public void addAdjustment(ProfitTrackerItemCollection change) {
+        long changeHash = hash(change);
+        accumulatedHash += changeHash;
+        acceptedHash -= changeHash;
+        acceptedItems = ProfitTrackerItemCollections.getItemCollectionDifference(change, acceptedItems);
+    }
+
+    public boolean isConsistent() {
+        return getDrift() == acceptedHash;
+    }
+
+    /**
+     * Finds the items responsible for an inconsistency, then accepts them so each desync is only reported once.
+     * Sums the record's full collections, so should only be called once the hashes no longer match.
+     * @return The items out of sync since drift was last accepted
+     */
+    public ProfitTrackerItemCollection acceptDrift(ProfitTrackerRecord record) {
+        ProfitTrackerItemCollection driftItems = getDriftItems(record.startingPossessions.getItems(), record.currentPossessions.getItems(),
+                record.itemDifferenceAccumulated);
+        ProfitTrackerItemCollection newDriftItems = ProfitTrackerItemCollections.getItemCollectionDifference(acceptedItems, driftItems);
+        acceptedItems = driftItems;
+        acceptedHash = getDrift();
+        return newDriftItems;
+    }
+
+    private long getDrift() {
+        return currentHash - startingHash - accumulatedHash;
+    }
+
+    private static ProfitTrackerItemCollection getDriftItems(ProfitTrackerItemCollection startingItems, ProfitTrackerItemCollection currentItems, ProfitTrackerItemCollection accumulatedItems) {
+        ProfitTrackerItemCollection possessionChange = ProfitTrackerItemCollections.getItemCollectionDifference(
+                startingItems != null ? startingItems : ProfitTrackerItemCollection.EMPTY,
+                currentItems != null ? currentItems : ProfitTrackerItemCollection.EMPTY);
+        return ProfitTrackerItemCollections.getItemCollectionDifference(
+                accumulatedItems != null ? accumulatedItems : ProfitTrackerItemCollection.EMPTY, possessionChange);
+    }
+
+    /**
+     * Sum of each item's quantity times the hash of its id, wrapping on overflow so sums of changes can be subtracted
+     */
+    static long hash(ProfitTrackerItemCollection items) {
+        if (items == null) {
+            return 0;
+        }
+        long hash = 0;
+        for (int i = 0; i < items.size(); i++) {
+            hash += items.getQuantity(i) * hashItemId(items.getId(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes the item id so that similar ids and quantities are unlikely to cancel out, using the SplitMix64 finalizer
+     */
+    static long hashItemId(int itemId) {
+        long hash = itemId + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,169 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a session's tick profits, item changes and item totals to files in an export directory, a row at a time.
+ * Ticks and item changes are streamed from their memory mapped logs, so memory stays bounded however long the session.
+ * Meant to run off the client thread, with item names and values looked up beforehand on it.
+ */
+public class ProfitTrackerExport {
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public enum Format {
+        CSV("CSV", "csv"),
+        JSON_LINES("JSON lines", "jsonl");
+
+        private final String name;
+        private final String extension;
+
+        Format(String name, String extension) {
+            this.name = name;
+            this.extension = extension;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final File directory;
+    private final ProfitTrackerTimeSeries timeSeries;
+    private final ProfitTrackerItemChangeLog itemChangeLog;
+    private final long startMillis;
+    private final Format format;
+    private final Gson gson;
+
+    /**
+     * @param startMillis Start of the session, ticks and changes from before it are left out
+     */
+    public ProfitTrackerExport(File directory, ProfitTrackerTimeSeries timeSeries, ProfitTrackerItemChangeLog itemChangeLog,
+                               long startMillis, Format format, Gson gson) {
+        this.directory = directory;
+        this.timeSeries = timeSeries;
+        this.itemChangeLog = itemChangeLog;
+        this.startMillis = startMillis;
+        this.format = format;
+        this.gson = gson;
+    }
+
+    /**
+     * Finds every item changed during the session, so their names can be looked up before writing
+     * @param items Items the session ended up with, also exported
+     */
+    public Set<Integer> findItemIds(ProfitTrackerItemCollection items) throws IOException {
+        Set<Integer> itemIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            itemIds.add(items.getId(i));
+        }
+        itemChangeLog.scan(startMillis, (tick, millis, itemId, quantity) -> itemIds.add(itemId));
+        return itemIds;
+    }
+
+    /**
+     * Writes the ticks, item changes and item totals files
+     * @param name Start of the file names, such as the player's name
+     * @param items Accumulated item difference of the session
+     * @param itemValues Values of the item stacks, in the same order
+     * @param itemNames Names of every item found by {@link #findItemIds}
+     * @return The ticks file, the others are next to it
+     */
+    public File write(String name, ProfitTrackerItemCollection items, long[] itemValues, Map<Integer, String> itemNames, long currentTimeMillis) throws IOException {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        String prefix = name.replaceAll("[^A-Za-z0-9_-]", "_") + "_"
+                + FILE_TIME_FORMAT.format(Instant.ofEpochMilli(currentTimeMillis).atZone(ZoneId.systemDefault()));
+        File ticksFile = getFile(prefix, "ticks");
+        ProfitTrackerPriceType[] valueModes = ProfitTrackerPriceType.values();
+
+        try (RowWriter rows = new RowWriter(ticksFile, "tick", "time", "profit", "cumulative_profit", "value_mode")) {
+            timeSeries.scan(startMillis, (tick, millis, tickProfit, cumulativeProfit, valueMode) ->
+                    rows.write(tick, formatTime(millis), tickProfit, cumulativeProfit,
+                            valueMode >= 0 && valueMode < valueModes.length ? valueModes[valueMode].name() : ""));
+        }
+        try (RowWriter rows = new RowWriter(getFile(prefix, "changes"), "tick", "time", "item_id", "item_name", "quantity")) {
+            itemChangeLog.scan(startMillis, (tick, millis, itemId, quantity) ->
+                    rows.write(tick, formatTime(millis), itemId, itemNames.getOrDefault(itemId, ""), quantity));
+        }
+        try (RowWriter rows = new RowWriter(getFile(prefix, "items"), "item_id", "item_name", "quantity", "value")) {
+            for (int i = 0; i < items.size(); i++) {
+                rows.write(items.getId(i), itemNames.getOrDefault(items.getId(i), ""), items.getQuantity(i), itemValues[i]);
+            }
+        }
+        return ticksFile;
+    }
+
+    private File getFile(String prefix, String content) {
+        return new File(directory, prefix + "_" + content + "." + format.extension);
+    }
+
+    private static String formatTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).toString();
+    }
+
+    /**
+     * Writes rows of values as CSV lines under a header, or as JSON objects keyed by column, one per line
+     */
+    private class RowWriter implements AutoCloseable {
+        private final Writer writer;
+        private final String[] columns;
+
+        RowWriter(File file, String... columns) throws IOException {
+            this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            this.columns = columns;
+            if (format == Format.CSV) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+        }
+
+        void write(Object... values) throws IOException {
+            if (format == Format.CSV) {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(values[i] instanceof String ? quoteCsv((String) values[i]) : String.valueOf(values[i]));
+                }
+            } else {
+                writer.write('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(gson.toJson(columns[i]));
+                    writer.write(':');
+                    writer.write(values[i] instanceof String ? gson.toJson(values[i]) : String.valueOf(values[i]));
+                }
+                writer.write('}');
+            }
+            writer.write('\n');
+        }
+
+        private String quoteCsv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
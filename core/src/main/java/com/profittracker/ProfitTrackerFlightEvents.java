@@ -0,0 +1,109 @@
+package com.profittracker;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events emitted by the plugin, so a recording shows where tick processing spends its time.
+ * Events are only committed while a recording has them enabled, so they cost almost nothing otherwise.
+ * They are found under the Profit Tracker category in JDK Mission Control.
+ */
+public final class ProfitTrackerFlightEvents {
+    private static final String CATEGORY = "Profit Tracker";
+
+    private ProfitTrackerFlightEvents() {
+    }
+
+    @Name("com.profittracker.Tick")
+    @Label("Profit Tick")
+    @Description("Processing of a tick where tracked items may have changed")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class TickEvent extends Event {
+        @Label("Inventory Changed")
+        public boolean inventoryChanged;
+
+        @Label("Bank Changed")
+        public boolean bankChanged;
+
+        @Label("Grand Exchange Changed")
+        public boolean grandExchangeChanged;
+
+        @Label("Rune Pouch Changed")
+        public boolean runePouchChanged;
+
+        @Label("Item Changes")
+        @Description("Number of distinct items whose quantity changed")
+        public int itemChanges;
+
+        @Label("Profit")
+        public long profit;
+    }
+
+    @Name("com.profittracker.SkippedTick")
+    @Label("Skipped Profit Tick")
+    @Description("A tick where item changes were seen, but not counted as profit")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class SkippedTickEvent extends Event {
+        @Label("Reason")
+        public String reason;
+
+        @Label("Item Changes")
+        public int itemChanges;
+    }
+
+    @Name("com.profittracker.Storage")
+    @Label("Storage Transition")
+    @Description("A storage interface the plugin tracks being opened or closed")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class StorageEvent extends Event {
+        @Label("Interface")
+        public int interfaceId;
+
+        @Label("Opened")
+        public boolean opened;
+    }
+
+    @Name("com.profittracker.GoldDrop")
+    @Label("Gold Drop Request")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class GoldDropEvent extends Event {
+        @Label("Amount")
+        public long amount;
+    }
+
+    @Name("com.profittracker.RecordSave")
+    @Label("Record Save")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class RecordSaveEvent extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("com.profittracker.RecordLoad")
+    @Label("Record Load")
+    @Category({"RuneLite", CATEGORY})
+    @StackTrace(false)
+    public static class RecordLoadEvent extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Found")
+        @Description("Whether a saved record was found and parsed")
+        public boolean found;
+    }
+}
@@ -0,0 +1,181 @@
+package com.profittracker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Ledger of grand exchange fills, matching sells against earlier buys of the same item first in, first out.
+ * Realized profit, tax paid, and the mark to market value of unsold buys are kept as running totals,
+ * so no fill requires walking the trade history.
+ */
+public class ProfitTrackerFlipLedger {
+    private static final int GE_SLOTS = 8;
+    static final double GE_TAX = 0.02;
+    // Tax is no longer taken once it reaches this amount for a single item
+    private static final int GE_TAX_CAP = 5000000;
+
+    /*
+    Last seen state of each offer slot, used to turn offer updates into individual fills.
+    Kept with the record so fills that complete while logged out are seen on the next login.
+     */
+    private final boolean[] slotKnown = new boolean[GE_SLOTS];
+    private final boolean[] slotBuying = new boolean[GE_SLOTS];
+    private final int[] slotItemIds = new int[GE_SLOTS];
+    private final int[] slotQuantitySold = new int[GE_SLOTS];
+    private final long[] slotSpent = new long[GE_SLOTS];
+
+    // Bought items not yet sold, by item id
+    private final Map<Integer, ProfitTrackerLotQueue> openLots = new HashMap<>();
+    // Price each item's open lots were last marked at
+    private final Map<Integer, Integer> markPrices = new HashMap<>();
+
+    private long realizedProfit;
+    private long taxPaid;
+    private long openCost;
+    private long openMarketValue;
+
+    /**
+     * Compares the offer with the last known state of its slot, and records any quantity filled since.
+     * The first update seen for a slot only sets a baseline, as there is nothing to compare it to.
+     * @param empty Whether the slot's offer was collected, leaving it empty. Not for the empty slots sent before
+     *              the offers on login, as clearing the baseline then would record the whole offer again.
+     * @param buying Whether the offer is a buy, including completed and cancelled ones
+     * @param currentPrice Price used to mark newly bought items to market
+     */
+    public void onOfferChanged(int slot, boolean empty, boolean buying, int itemId, int quantitySold, long spent,
+                               IntUnaryOperator currentPrice) {
+        if (slot < 0 || slot >= GE_SLOTS) {
+            return;
+        }
+        if (empty) {
+            setSlot(slot, false, 0, 0, 0);
+            return;
+        }
+
+        if (!slotKnown[slot]) {
+            setSlot(slot, buying, itemId, quantitySold, spent);
+            return;
+        }
+
+        int previousQuantity = slotQuantitySold[slot];
+        long previousSpent = slotSpent[slot];
+        if (slotItemIds[slot] != itemId || slotBuying[slot] != buying || quantitySold < previousQuantity) {
+            // A different offer was placed in this slot since it was last seen
+            previousQuantity = 0;
+            previousSpent = 0;
+        }
+
+        int filledQuantity = quantitySold - previousQuantity;
+        if (filledQuantity > 0) {
+            int unitPrice = (int) ((spent - previousSpent) / filledQuantity);
+            if (buying) {
+                recordBuy(itemId, filledQuantity, unitPrice, currentPrice.applyAsInt(itemId));
+            } else {
+                recordSell(itemId, filledQuantity, unitPrice);
+            }
+        }
+        setSlot(slot, buying, itemId, quantitySold, spent);
+    }
+
+    private void setSlot(int slot, boolean buying, int itemId, int quantitySold, long spent) {
+        slotKnown[slot] = true;
+        slotBuying[slot] = buying;
+        slotItemIds[slot] = itemId;
+        slotQuantitySold[slot] = quantitySold;
+        slotSpent[slot] = spent;
+    }
+
+    void recordBuy(int itemId, int quantity, int unitPrice, int marketPrice) {
+        ProfitTrackerLotQueue lots = openLots.computeIfAbsent(itemId, id -> new ProfitTrackerLotQueue());
+        markToMarket(itemId, lots, marketPrice);
+        lots.add(quantity, unitPrice);
+        openCost += (long) quantity * unitPrice;
+        openMarketValue += (long) quantity * marketPrice;
+    }
+
+    void recordSell(int itemId, int quantity, int unitPrice) {
+        long taxPerItem = Math.min((long) Math.floor(unitPrice * GE_TAX), GE_TAX_CAP);
+        taxPaid += taxPerItem * quantity;
+
+        ProfitTrackerLotQueue lots = openLots.get(itemId);
+        if (lots == null) {
+            // Nothing was bought to sell, so this isn't a flip
+            return;
+        }
+        long matchedQuantity = Math.min(quantity, lots.getTotalQuantity());
+        long cost = lots.consume(matchedQuantity);
+        realizedProfit += matchedQuantity * (unitPrice - taxPerItem) - cost;
+        openCost -= cost;
+        openMarketValue -= matchedQuantity * markPrices.getOrDefault(itemId, 0);
+        if (lots.isEmpty()) {
+            openLots.remove(itemId);
+            markPrices.remove(itemId);
+        }
+    }
+
+    /**
+     * Items with unsold buys, being those whose prices are needed to mark them to market
+     */
+    public int[] getOpenItemIds() {
+        return openLots.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Re-marks the open lots of the given items at their current prices. Items no longer open are ignored.
+     */
+    public void markToMarket(int[] itemIds, int[] currentPrices) {
+        for (int i = 0; i < itemIds.length; i++) {
+            ProfitTrackerLotQueue lots = openLots.get(itemIds[i]);
+            if (lots != null) {
+                markToMarket(itemIds[i], lots, currentPrices[i]);
+            }
+        }
+    }
+
+    private void markToMarket(int itemId, ProfitTrackerLotQueue lots, int marketPrice) {
+        Integer previousPrice = markPrices.put(itemId, marketPrice);
+        if (previousPrice != null) {
+            openMarketValue += lots.getTotalQuantity() * (marketPrice - previousPrice);
+        }
+    }
+
+    /**
+     * Clears the session totals. Open lots are kept, so items bought before a reset still have a cost basis.
+     */
+    public void reset() {
+        realizedProfit = 0;
+        taxPaid = 0;
+    }
+
+    /**
+     * Copies the ledger, so it can be read and saved while the original keeps recording fills
+     */
+    public ProfitTrackerFlipLedger copy() {
+        ProfitTrackerFlipLedger copy = new ProfitTrackerFlipLedger();
+        System.arraycopy(slotKnown, 0, copy.slotKnown, 0, GE_SLOTS);
+        System.arraycopy(slotBuying, 0, copy.slotBuying, 0, GE_SLOTS);
+        System.arraycopy(slotItemIds, 0, copy.slotItemIds, 0, GE_SLOTS);
+        System.arraycopy(slotQuantitySold, 0, copy.slotQuantitySold, 0, GE_SLOTS);
+        System.arraycopy(slotSpent, 0, copy.slotSpent, 0, GE_SLOTS);
+        openLots.forEach((itemId, lots) -> copy.openLots.put(itemId, lots.copy()));
+        copy.markPrices.putAll(markPrices);
+        copy.realizedProfit = realizedProfit;
+        copy.taxPaid = taxPaid;
+        copy.openCost = openCost;
+        copy.openMarketValue = openMarketValue;
+        return copy;
+    }
+
+    public long getRealizedProfit() {
+        return realizedProfit;
+    }
+
+    public long getUnrealizedProfit() {
+        return openMarketValue - openCost;
+    }
+
+    public long getTaxPaid() {
+        return taxPaid;
+    }
+}
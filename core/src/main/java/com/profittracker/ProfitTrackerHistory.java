@@ -0,0 +1,177 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Sessions archived for an account, with its profit and online ticks rolled up by minute, hour and day as they arrive.
+ * Totals over a time range come from the rollups, and the best sessions in a region or activity from an index,
+ * so neither looks through the archived sessions however many there are.
+ * Once in use, only modified by the plugin's tick worker, and saved from copies.
+ */
+public class ProfitTrackerHistory {
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    // Minutes are kept for a week and hours for two years, days are kept forever
+    private static final int MINUTES_KEPT = 7 * 24 * 60;
+    private static final int HOURS_KEPT = 2 * 366 * 24;
+
+    // Oldest first
+    private List<ProfitTrackerSessionSummary> sessions = new ArrayList<>();
+    private ProfitTrackerRollup minutes = new ProfitTrackerRollup(MINUTE_MILLIS, MINUTES_KEPT);
+    private ProfitTrackerRollup hours = new ProfitTrackerRollup(HOUR_MILLIS, HOURS_KEPT);
+    private ProfitTrackerRollup days = new ProfitTrackerRollup(DAY_MILLIS, 0);
+
+    // Indexes of the sessions spent in each region and activity, most profit made there first. Built when loaded.
+    private transient Map<Integer, int[]> regionIndex = new HashMap<>();
+    private transient Map<Integer, int[]> activityIndex = new HashMap<>();
+
+    /**
+     * Adds profit or online ticks at the given time to every rollup
+     */
+    public void add(long millis, long profit, long ticks) {
+        minutes.add(millis, profit, ticks);
+        hours.add(millis, profit, ticks);
+        days.add(millis, profit, ticks);
+    }
+
+    public void archive(ProfitTrackerSessionSummary session) {
+        int sessionIndex = sessions.size();
+        sessions.add(session);
+        indexSession(sessionIndex);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Totals profit and online ticks over a time range, from the finest rollup still kept that far back.
+     * Ranges are widened to the start of the rollup's bucket they start in.
+     * @return The profit and ticks, in that order
+     */
+    public long[] getTotal(long fromMillis, long toMillis) {
+        if (minutes.covers(fromMillis)) {
+            return minutes.getTotal(fromMillis, toMillis);
+        }
+        if (hours.covers(fromMillis)) {
+            return hours.getTotal(fromMillis, toMillis);
+        }
+        return days.getTotal(fromMillis, toMillis);
+    }
+
+    /**
+     * @return Up to the given number of sessions that made the most profit in a region, most first
+     */
+    public List<ProfitTrackerSessionSummary> getBestRegionSessions(int regionId, int count) {
+        return getSessions(regionIndex.get(regionId), count);
+    }
+
+    /**
+     * @return Up to the given number of sessions that made the most profit from an activity, most first
+     */
+    public List<ProfitTrackerSessionSummary> getBestActivitySessions(int activity, int count) {
+        return getSessions(activityIndex.get(activity), count);
+    }
+
+    private List<ProfitTrackerSessionSummary> getSessions(int[] indexes, int count) {
+        List<ProfitTrackerSessionSummary> result = new ArrayList<>();
+        if (indexes == null) {
+            return result;
+        }
+        for (int i = 0; i < indexes.length && i < count; i++) {
+            result.add(sessions.get(indexes[i]));
+        }
+        return result;
+    }
+
+    private void indexSession(int sessionIndex) {
+        ProfitTrackerSessionSummary session = sessions.get(sessionIndex);
+        for (int regionId : session.getRegionIds()) {
+            regionIndex.put(regionId, insertByProfit(regionIndex.get(regionId), sessionIndex,
+                    index -> sessions.get(index).getRegionProfit(regionId)));
+        }
+        for (int activity : session.getActivities()) {
+            activityIndex.put(activity, insertByProfit(activityIndex.get(activity), sessionIndex,
+                    index -> sessions.get(index).getActivityProfit(activity)));
+        }
+    }
+
+    /**
+     * Inserts a session into the indexes of a key, keeping them ordered by the profit made there
+     */
+    private static int[] insertByProfit(int[] indexes, int sessionIndex, IntToLongFunction profit) {
+        if (indexes == null) {
+            return new int[] {sessionIndex};
+        }
+        long sessionProfit = profit.applyAsLong(sessionIndex);
+        int low = 0;
+        int high = indexes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (profit.applyAsLong(indexes[middle]) >= sessionProfit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int[] result = new int[indexes.length + 1];
+        System.arraycopy(indexes, 0, result, 0, low);
+        result[low] = sessionIndex;
+        System.arraycopy(indexes, low, result, low + 1, indexes.length - low);
+        return result;
+    }
+
+    /**
+     * Copies the history for saving. Archived sessions are never modified, so are shared.
+     */
+    public ProfitTrackerHistory copy() {
+        ProfitTrackerHistory copy = new ProfitTrackerHistory();
+        copy.sessions = new ArrayList<>(sessions);
+        copy.minutes = minutes.copy();
+        copy.hours = hours.copy();
+        copy.days = days.copy();
+        return copy;
+    }
+
+    /**
+     * Loads an account's history, or starts a new one if there is none or it can't be read
+     */
+    public static ProfitTrackerHistory load(File file, Gson gson) {
+        ProfitTrackerHistory history = null;
+        try {
+            if (file.exists()) {
+                history = gson.fromJson(new String(Files.readAllBytes(file.toPath())), ProfitTrackerHistory.class);
+            }
+        } catch (Exception e) {
+            // Likely corrupted or manually modified, tracking carries on with a new history
+        }
+        if (history == null || history.sessions == null || history.minutes == null || history.hours == null || history.days == null) {
+            return new ProfitTrackerHistory();
+        }
+        history.regionIndex = new HashMap<>();
+        history.activityIndex = new HashMap<>();
+        for (int i = 0; i < history.sessions.size(); i++) {
+            history.indexSession(i);
+        }
+        return history;
+    }
+
+    public void save(File file, Gson gson) {
+        try {
+            if (!file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            Files.write(file.toPath(), gson.toJson(this).getBytes());
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.profittracker;
+
+/**
+ * A stack of items, or a change in one when the quantity is negative, for valuing a single stack.
+ * Collections of stacks are packed into {@link ProfitTrackerItemCollection} instead.
+ */
+public final class ProfitTrackerItem {
+    private final int id;
+    private final int quantity;
+
+    public ProfitTrackerItem(int id, int quantity) {
+        this.id = id;
+        this.quantity = quantity;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ProfitTrackerItem)) {
+            return false;
+        }
+        ProfitTrackerItem item = (ProfitTrackerItem) other;
+        return id == item.id && quantity == item.quantity;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfitTrackerItem(id=" + id + ", quantity=" + quantity + ")";
+    }
+}
@@ -0,0 +1,60 @@
+package com.profittracker;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Every item change added to an account's accumulated difference, in a memory mapped log with a record per item.
+ * Appended to only by the plugin's tick worker.
+ */
+public class ProfitTrackerItemChangeLog {
+    // Tick index and wall time, then item id and quantity
+    static final int RECORD_SIZE = ProfitTrackerMappedLog.FIELDS_OFFSET + 4 + 8;
+    // Around 14MB
+    static final int RECORDS_PER_FILE = 1 << 19;
+
+    /**
+     * Receives each item change of a scan, in the order they were appended
+     */
+    public interface Visitor {
+        void visit(long tick, long millis, int itemId, long quantity) throws IOException;
+    }
+
+    private final ProfitTrackerMappedLog log;
+
+    public ProfitTrackerItemChangeLog(File directory, String accountRecordKey) {
+        log = new ProfitTrackerMappedLog(directory, accountRecordKey + "_changes", RECORD_SIZE, RECORDS_PER_FILE);
+    }
+
+    public void append(long tick, long millis, ProfitTrackerItemCollection change) {
+        for (int i = 0; i < change.size(); i++) {
+            int position = log.append(tick, millis);
+            if (position < 0) {
+                return;
+            }
+            int fields = position + ProfitTrackerMappedLog.FIELDS_OFFSET;
+            log.getBuffer().putInt(fields, change.getId(i));
+            log.getBuffer().putLong(fields + 4, change.getQuantity(i));
+            log.commit();
+        }
+    }
+
+    public void force() {
+        log.force();
+    }
+
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Scans every item change from the given time on, oldest first. Can be called from any thread.
+     */
+    public void scan(long fromMillis, Visitor visitor) throws IOException {
+        log.scan(fromMillis, (buffer, position) -> {
+            int fields = position + ProfitTrackerMappedLog.FIELDS_OFFSET;
+            visitor.visit(ProfitTrackerMappedLog.getTick(buffer, position), ProfitTrackerMappedLog.getMillis(buffer, position),
+                    buffer.getInt(fields), buffer.getLong(fields + 4));
+        });
+    }
+}
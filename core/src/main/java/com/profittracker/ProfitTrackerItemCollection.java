@@ -0,0 +1,180 @@
+package com.profittracker;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stacks of items, or changes in them, packed into a long each with the id in the high half and the quantity in the low half.
+ * Possessions and their differences are held as these rather than an object per stack. Stacks of no items are never kept.
+ * Replaced rather than modified, so collections are shared instead of copied.
+ * Saved as a list of stacks the same way as the client's items, so records written with either can be read.
+ */
+@JsonAdapter(ProfitTrackerItemCollection.Adapter.class)
+public final class ProfitTrackerItemCollection {
+    public static final ProfitTrackerItemCollection EMPTY = new ProfitTrackerItemCollection(new long[0]);
+
+    private final long[] stacks;
+
+    private ProfitTrackerItemCollection(long[] stacks) {
+        this.stacks = stacks;
+    }
+
+    /**
+     * Collection of the given stacks, leaving out any of no items
+     */
+    public static ProfitTrackerItemCollection of(ProfitTrackerItem... items) {
+        Builder builder = new Builder(items.length);
+        for (ProfitTrackerItem item : items) {
+            builder.add(item.getId(), item.getQuantity());
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return stacks.length;
+    }
+
+    public boolean isEmpty() {
+        return stacks.length == 0;
+    }
+
+    public int getId(int index) {
+        return unpackId(stacks[index]);
+    }
+
+    public int getQuantity(int index) {
+        return unpackQuantity(stacks[index]);
+    }
+
+    long getStack(int index) {
+        return stacks[index];
+    }
+
+    static long pack(int itemId, int quantity) {
+        return ((long) itemId << 32) | (quantity & 0xFFFFFFFFL);
+    }
+
+    static int unpackId(long stack) {
+        return (int) (stack >> 32);
+    }
+
+    static int unpackQuantity(long stack) {
+        return (int) stack;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ProfitTrackerItemCollection && Arrays.equals(stacks, ((ProfitTrackerItemCollection) other).stacks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(stacks);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("ProfitTrackerItemCollection[");
+        for (int i = 0; i < stacks.length; i++) {
+            if (i > 0) {
+                string.append(", ");
+            }
+            string.append(getId(i)).append('x').append(getQuantity(i));
+        }
+        return string.append(']').toString();
+    }
+
+    /**
+     * Collects stacks in the order added, dropping empty slots and stacks of no items. Not used again once built.
+     */
+    public static final class Builder {
+        private long[] stacks;
+        private int size;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int capacity) {
+            stacks = new long[Math.max(capacity, 1)];
+        }
+
+        public Builder add(int itemId, int quantity) {
+            if (itemId < 0 || quantity == 0) {
+                return this;
+            }
+            if (size == stacks.length) {
+                stacks = Arrays.copyOf(stacks, size * 2);
+            }
+            stacks[size++] = pack(itemId, quantity);
+            return this;
+        }
+
+        public Builder addAll(ProfitTrackerItemCollection items) {
+            for (int i = 0; i < items.size(); i++) {
+                add(items.getId(i), items.getQuantity(i));
+            }
+            return this;
+        }
+
+        public ProfitTrackerItemCollection build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new ProfitTrackerItemCollection(size == stacks.length ? stacks : Arrays.copyOf(stacks, size));
+        }
+    }
+
+    static class Adapter extends TypeAdapter<ProfitTrackerItemCollection> {
+        @Override
+        public void write(JsonWriter out, ProfitTrackerItemCollection items) throws IOException {
+            if (items == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < items.size(); i++) {
+                out.beginObject();
+                out.name("id").value(items.getId(i));
+                out.name("quantity").value(items.getQuantity(i));
+                out.endObject();
+            }
+            out.endArray();
+        }
+
+        @Override
+        public ProfitTrackerItemCollection read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Builder builder = new Builder();
+            in.beginArray();
+            while (in.hasNext()) {
+                int itemId = -1;
+                int quantity = 0;
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (name.equals("id")) {
+                        itemId = in.nextInt();
+                    } else if (name.equals("quantity")) {
+                        quantity = in.nextInt();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+                builder.add(itemId, quantity);
+            }
+            in.endArray();
+            return builder.build();
+        }
+    }
+}
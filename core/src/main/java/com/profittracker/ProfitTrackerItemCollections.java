@@ -0,0 +1,83 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * Arithmetic on collections of items, where each collection holds any number of stacks of any item
+ */
+public final class ProfitTrackerItemCollections {
+    private ProfitTrackerItemCollections() {
+    }
+
+    /**
+     * Compares the two collections, returning a collection of item differences
+     * For example, dropping a shark would be a collection of 1 shark item, with quantity -1
+     * @return Collection of items with quantity set to the difference
+     */
+    public static ProfitTrackerItemCollection getItemCollectionDifference(ProfitTrackerItemCollection originalItems, ProfitTrackerItemCollection newItems){
+        long[] stacks = new long[originalItems.size() + newItems.size()];
+        int size = 0;
+        //Subtract old quantities from new to get difference
+        for (int i = 0; i < newItems.size(); i++) {
+            stacks[size++] = newItems.getStack(i);
+        }
+        for (int i = 0; i < originalItems.size(); i++) {
+            stacks[size++] = ProfitTrackerItemCollection.pack(originalItems.getId(i), -originalItems.getQuantity(i));
+        }
+        return sumStacks(stacks, false);
+    }
+
+    /**
+     * Returns a collection which is the sum of two other collections, adjusting quantities as needed
+     * Null collections are not added
+     * If both collections are null, returns null
+     */
+    public static ProfitTrackerItemCollection getItemCollectionSum(ProfitTrackerItemCollection items1, ProfitTrackerItemCollection items2){
+        if (items1 == null || items2 == null){
+            if (items1 != null) {
+                return items1;
+            }
+            return items2;
+        }
+        long[] stacks = new long[items1.size() + items2.size()];
+        int size = 0;
+        for (int i = 0; i < items1.size(); i++) {
+            stacks[size++] = items1.getStack(i);
+        }
+        for (int i = 0; i < items2.size(); i++) {
+            stacks[size++] = items2.getStack(i);
+        }
+        return sumStacks(stacks, false);
+    }
+
+    public static ProfitTrackerItemCollection getItemCollectionGain(ProfitTrackerItemCollection itemDifferences){
+        long[] stacks = new long[itemDifferences.size()];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = itemDifferences.getStack(i);
+        }
+        return sumStacks(stacks, true);
+    }
+
+    /**
+     * Adds up the quantities of each item in the packed stacks, which are sorted by id in place.
+     * Items whose quantities cancel out are left out.
+     * @param gainOnly Whether to also leave out items with less than none
+     */
+    private static ProfitTrackerItemCollection sumStacks(long[] stacks, boolean gainOnly){
+        // Ids are in the high half, so sorting the packed stacks groups each item's stacks together
+        Arrays.sort(stacks);
+        ProfitTrackerItemCollection.Builder items = new ProfitTrackerItemCollection.Builder(stacks.length);
+        int index = 0;
+        while (index < stacks.length) {
+            int itemId = ProfitTrackerItemCollection.unpackId(stacks[index]);
+            int quantity = 0;
+            for (; index < stacks.length && ProfitTrackerItemCollection.unpackId(stacks[index]) == itemId; index++) {
+                quantity += ProfitTrackerItemCollection.unpackQuantity(stacks[index]);
+            }
+            if (!gainOnly || quantity > 0) {
+                items.add(itemId, quantity);
+            }
+        }
+        return items.build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.profittracker;
+
+/**
+ * Value an item has added to or taken from the session's profit. Never modified once created.
+ */
+public class ProfitTrackerItemContribution {
+    public final int itemId;
+    // Accumulated change in quantity this session
+    public final int quantity;
+    public final long value;
+
+    public ProfitTrackerItemContribution(int itemId, int quantity, long value) {
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.value = value;
+    }
+}
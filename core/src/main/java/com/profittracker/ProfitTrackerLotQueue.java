@@ -0,0 +1,90 @@
+package com.profittracker;
+
+/**
+ * First in, first out queue of item lots, each being a quantity acquired at a unit price.
+ * Backed by a ring of primitive arrays, so adding and consuming lots does not allocate unless the queue grows.
+ */
+public class ProfitTrackerLotQueue {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    private long totalQuantity;
+    private long totalCost;
+
+    /**
+     * Adds a lot to the back of the queue
+     */
+    public void add(int quantity, int price) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (size == quantities.length) {
+            grow();
+        }
+        int tail = (head + size) % quantities.length;
+        quantities[tail] = quantity;
+        prices[tail] = price;
+        size++;
+        totalQuantity += quantity;
+        totalCost += (long) quantity * price;
+    }
+
+    /**
+     * Removes up to the given quantity from the front of the queue, oldest lots first
+     * @return The cost of the removed quantity, at the prices it was acquired for
+     */
+    public long consume(long quantity) {
+        long cost = 0;
+        while (quantity > 0 && size > 0) {
+            int taken = (int) Math.min(quantity, quantities[head]);
+            cost += (long) taken * prices[head];
+            quantities[head] -= taken;
+            quantity -= taken;
+            totalQuantity -= taken;
+            if (quantities[head] == 0) {
+                head = (head + 1) % quantities.length;
+                size--;
+            }
+        }
+        totalCost -= cost;
+        return cost;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public ProfitTrackerLotQueue copy() {
+        ProfitTrackerLotQueue copy = new ProfitTrackerLotQueue();
+        copy.quantities = quantities.clone();
+        copy.prices = prices.clone();
+        copy.head = head;
+        copy.size = size;
+        copy.totalQuantity = totalQuantity;
+        copy.totalCost = totalCost;
+        return copy;
+    }
+
+    private void grow() {
+        int[] newQuantities = new int[quantities.length * 2];
+        int[] newPrices = new int[prices.length * 2];
+        for (int i = 0; i < size; i++) {
+            newQuantities[i] = quantities[(head + i) % quantities.length];
+            newPrices[i] = prices[(head + i) % prices.length];
+        }
+        quantities = newQuantities;
+        prices = newPrices;
+        head = 0;
+    }
+}
@@ -0,0 +1,196 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append only log of fixed size records, in memory mapped files numbered from 0 and rolled over once full.
+ * Every record starts with a tick index and wall time, the rest is laid out by the log's user.
+ * Appending writes fields straight into the mapping, and readers scan their own read only mappings
+ * of the same files, so neither copies nor parses anything.
+ * Appended to by one thread at a time.
+ */
+@Slf4j
+public class ProfitTrackerMappedLog {
+    private static final int MAGIC = 0x50545453;
+    private static final int VERSION = 1;
+    // Magic, version, then the number of records written, updated after each record
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int TICK_OFFSET = 0;
+    private static final int MILLIS_OFFSET = 8;
+    // Where the fields laid out by the log's user start
+    static final int FIELDS_OFFSET = 16;
+
+    /**
+     * Receives each record of a scan, oldest first, as a position in a buffer only valid during the call
+     */
+    public interface Visitor {
+        void visit(ByteBuffer buffer, int position) throws IOException;
+    }
+
+    private final File directory;
+    private final String name;
+    private final int recordSize;
+    private final int recordsPerFile;
+    private MappedByteBuffer buffer;
+    private int fileIndex;
+    private int count;
+    // Set if a file couldn't be mapped, so a failing disk isn't retried every tick
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * @param name Start of the log's file names, followed by the file number
+     * @param recordSize Size of each record, including the tick index and wall time
+     */
+    public ProfitTrackerMappedLog(File directory, String name, int recordSize, int recordsPerFile) {
+        this.directory = directory;
+        this.name = name;
+        this.recordSize = recordSize;
+        this.recordsPerFile = recordsPerFile;
+    }
+
+    /**
+     * Starts a record, mapping the latest file the first time and rolling over to a new file when full.
+     * The caller writes its fields at the returned position of {@link #getBuffer()}, then calls {@link #commit()}.
+     * @return Position of the record, or -1 if the log can't be written
+     */
+    public int append(long tick, long millis) {
+        if (failed || closed) {
+            return -1;
+        }
+        try {
+            if (buffer == null) {
+                openLatest();
+            }
+            if (count >= recordsPerFile) {
+                fileIndex++;
+                open(fileIndex);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to map {}, it won't be written", name, e);
+            failed = true;
+            buffer = null;
+            return -1;
+        }
+        int position = HEADER_SIZE + count * recordSize;
+        buffer.putLong(position + TICK_OFFSET, tick);
+        buffer.putLong(position + MILLIS_OFFSET, millis);
+        return position;
+    }
+
+    /**
+     * Counts the record started last, making it visible to readers
+     */
+    public void commit() {
+        count++;
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    public MappedByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Asks the system to write appended records to disk. They are kept by the system if only the client exits.
+     */
+    public void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Writes appended records to disk and lets go of the mapping, so it is unmapped once collected.
+     * Nothing more is appended, scans still read the files.
+     */
+    public void close() {
+        force();
+        buffer = null;
+        closed = true;
+    }
+
+    private long getFileSize() {
+        return HEADER_SIZE + (long) recordSize * recordsPerFile;
+    }
+
+    private void openLatest() throws IOException {
+        fileIndex = 0;
+        while (getFile(fileIndex + 1).exists()) {
+            fileIndex++;
+        }
+        open(fileIndex);
+    }
+
+    private void open(int index) throws IOException {
+        if (!directory.exists()) {
+            directory.mkdir();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(getFile(index), "rw");
+             FileChannel channel = file.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, getFileSize());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            // New, or not one we can read, so started over
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(COUNT_OFFSET, 0);
+        }
+        count = (int) Math.min(buffer.getLong(COUNT_OFFSET), recordsPerFile);
+    }
+
+    /**
+     * Scans every record from the given time on, oldest first.
+     * Files ending before the time are skipped without reading their records.
+     * Can be called from any thread, records appended during the scan may or may not be seen.
+     */
+    public void scan(long fromMillis, Visitor visitor) throws IOException {
+        for (int index = 0; ; index++) {
+            File logFile = getFile(index);
+            if (!logFile.exists()) {
+                return;
+            }
+            MappedByteBuffer readBuffer;
+            try (RandomAccessFile file = new RandomAccessFile(logFile, "r");
+                 FileChannel channel = file.getChannel()) {
+                if (channel.size() < getFileSize()) {
+                    continue;
+                }
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, getFileSize());
+            }
+            if (readBuffer.getInt(0) != MAGIC || readBuffer.getInt(4) != VERSION) {
+                continue;
+            }
+            int recordCount = (int) Math.min(readBuffer.getLong(COUNT_OFFSET), recordsPerFile);
+            if (recordCount == 0 || getMillis(readBuffer, HEADER_SIZE + (recordCount - 1) * recordSize) < fromMillis) {
+                continue;
+            }
+            for (int i = 0; i < recordCount; i++) {
+                int position = HEADER_SIZE + i * recordSize;
+                if (getMillis(readBuffer, position) >= fromMillis) {
+                    visitor.visit(readBuffer, position);
+                }
+            }
+        }
+    }
+
+    public static long getTick(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + TICK_OFFSET);
+    }
+
+    public static long getMillis(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + MILLIS_OFFSET);
+    }
+
+    private File getFile(int index) {
+        return new File(directory, name + "_" + index + ".bin");
+    }
+}
@@ -0,0 +1,113 @@
+package com.profittracker;
+import static com.profittracker.ProfitTrackerItemCollections.getItemCollectionDifference;
+import static com.profittracker.ProfitTrackerItemCollections.getItemCollectionSum;
+
+/**
+ * Data structure for holding information about a players possessions
+ * Should be associated with a particular player, or account type like Leagues/Standard/Beta
+ */
+public class ProfitTrackerPossessions {
+    public ProfitTrackerItemCollection inventoryItems;
+    public ProfitTrackerItemCollection bankItems;
+    public ProfitTrackerItemCollection grandExchangeItems;
+    /**
+     * Items stored in various storage that we don't actually have hooks to look into
+     * Items are stored here if one of those storages is opened, and an item is lost
+     * Items should also be stored in the original possessions if withdrawn and not previously known to be present
+     */
+    public ProfitTrackerItemCollection untrackedStorageItems;
+
+    // All items held, and the collections they were summed from. Collections are replaced rather than modified,
+    // so each collection's identity serves as its version, and a replaced collection is patched in by its change
+    private transient ProfitTrackerItemCollection aggregateItems;
+    private transient boolean aggregated;
+    private transient ProfitTrackerItemCollection aggregatedInventoryItems;
+    private transient ProfitTrackerItemCollection aggregatedBankItems;
+    private transient ProfitTrackerItemCollection aggregatedGrandExchangeItems;
+    private transient ProfitTrackerItemCollection aggregatedUntrackedStorageItems;
+
+    /**
+     * All items held across the collections, without empty stacks.
+     * Kept until a collection is replaced, and only that collection's change is applied if it is the only one replaced.
+     * Returns null if every collection is null.
+     */
+    public ProfitTrackerItemCollection getItems(){
+        int replaced = 0;
+        ProfitTrackerItemCollection previousItems = null;
+        ProfitTrackerItemCollection newItems = null;
+        if (inventoryItems != aggregatedInventoryItems) {
+            replaced++;
+            previousItems = aggregatedInventoryItems;
+            newItems = inventoryItems;
+        }
+        if (bankItems != aggregatedBankItems) {
+            replaced++;
+            previousItems = aggregatedBankItems;
+            newItems = bankItems;
+        }
+        if (grandExchangeItems != aggregatedGrandExchangeItems) {
+            replaced++;
+            previousItems = aggregatedGrandExchangeItems;
+            newItems = grandExchangeItems;
+        }
+        if (untrackedStorageItems != aggregatedUntrackedStorageItems) {
+            replaced++;
+            previousItems = aggregatedUntrackedStorageItems;
+            newItems = untrackedStorageItems;
+        }
+        if (aggregated && replaced == 0) {
+            return aggregateItems;
+        }
+
+        if (aggregated && replaced == 1 && aggregateItems != null && previousItems != null && newItems != null) {
+            aggregateItems = getItemCollectionSum(aggregateItems, getItemCollectionDifference(previousItems, newItems));
+        } else {
+            ProfitTrackerItemCollection storedItems = getItemCollectionSum(bankItems, grandExchangeItems);
+            storedItems = getItemCollectionSum(untrackedStorageItems, storedItems);
+            aggregateItems = getItemCollectionSum(inventoryItems, storedItems);
+        }
+        aggregated = true;
+        aggregatedInventoryItems = inventoryItems;
+        aggregatedBankItems = bankItems;
+        aggregatedGrandExchangeItems = grandExchangeItems;
+        aggregatedUntrackedStorageItems = untrackedStorageItems;
+        return aggregateItems;
+    }
+
+    /**
+     * Copies the collections held, the collections themselves are shared as they are replaced rather than modified.
+     * The aggregate is shared the same way.
+     */
+    public ProfitTrackerPossessions copy(){
+        ProfitTrackerPossessions copy = new ProfitTrackerPossessions();
+        copy.inventoryItems = inventoryItems;
+        copy.bankItems = bankItems;
+        copy.grandExchangeItems = grandExchangeItems;
+        copy.untrackedStorageItems = untrackedStorageItems;
+        copy.aggregateItems = aggregateItems;
+        copy.aggregated = aggregated;
+        copy.aggregatedInventoryItems = aggregatedInventoryItems;
+        copy.aggregatedBankItems = aggregatedBankItems;
+        copy.aggregatedGrandExchangeItems = aggregatedGrandExchangeItems;
+        copy.aggregatedUntrackedStorageItems = aggregatedUntrackedStorageItems;
+        return copy;
+    }
+
+    /**
+     * If any collection is null, it will instead use the items from the given possessions
+     */
+    public void fillNullItems(ProfitTrackerPossessions knownPossessions){
+        if (inventoryItems == null){
+            inventoryItems = knownPossessions.inventoryItems;
+        }
+        if (bankItems == null){
+            bankItems = knownPossessions.bankItems;
+        }
+        if (grandExchangeItems == null){
+            grandExchangeItems = knownPossessions.grandExchangeItems;
+        }
+        if (untrackedStorageItems == null){
+            untrackedStorageItems = knownPossessions.untrackedStorageItems;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.profittracker;
+
+/**
+ * Unit values found to have changed when prices were refreshed, handed to the tick worker with a tick snapshot
+ * so items are revalued in order with the ticks valued at the old prices. Never modified once created.
+ */
+public class ProfitTrackerPriceChanges {
+    // Values are only applied while still of the current generation, which ends whenever all values are cleared
+    final long generation;
+    final int[] itemIds;
+    final long[] unitValues;
+    // Set if the price of an item untradeables are estimated by changed, so estimated items may have changed value too
+    final boolean estimatesChanged;
+
+    public ProfitTrackerPriceChanges(long generation, int[] itemIds, long[] unitValues, boolean estimatesChanged) {
+        this.generation = generation;
+        this.itemIds = itemIds;
+        this.unitValues = unitValues;
+        this.estimatesChanged = estimatesChanged;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int[] getItemIds() {
+        return itemIds;
+    }
+
+    public long[] getUnitValues() {
+        return unitValues;
+    }
+
+    public boolean isEstimatesChanged() {
+        return estimatesChanged;
+    }
+}
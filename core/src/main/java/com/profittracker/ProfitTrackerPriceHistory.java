@@ -0,0 +1,231 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit values items had over time, in a memory mapped file that is only appended to, a record each time a value changes.
+ * Records are kept in time order, and each item's records are indexed when the file is first opened,
+ * so the value an item had at some time is found with a binary search over the item's records in the mapping.
+ * Values are kept separately for each price type, as items are valued by whichever is configured.
+ * Used only by the plugin's tick worker.
+ */
+@Slf4j
+public class ProfitTrackerPriceHistory {
+    private static final int MAGIC = 0x50545048;
+    private static final int VERSION = 1;
+    // Magic, version, then the number of records written, updated after each record
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    // Wall time, unit value, item id and price type
+    private static final int RECORD_SIZE = 24;
+    private static final int MILLIS_OFFSET = 0;
+    private static final int VALUE_OFFSET = 8;
+    private static final int ITEM_ID_OFFSET = 16;
+    private static final int VALUE_MODE_OFFSET = 20;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    /**
+     * Record numbers of one item's values, oldest first
+     */
+    private static class Records {
+        private int[] records = new int[4];
+        private int size;
+
+        void add(int record) {
+            if (size == records.length) {
+                int[] newRecords = new int[records.length * 2];
+                System.arraycopy(records, 0, newRecords, 0, size);
+                records = newRecords;
+            }
+            records[size++] = record;
+        }
+
+        int last() {
+            return records[size - 1];
+        }
+    }
+
+    private final File file;
+    private final Map<Long, Records> index = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+    // Set if the file couldn't be mapped, so a failing disk isn't retried every tick
+    private boolean failed;
+    private boolean closed;
+
+    public ProfitTrackerPriceHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Adds an item's unit value at the given time, unless it is the value already last recorded for it
+     */
+    public void record(long millis, int valueMode, int itemId, long unitValue) {
+        if (!open()) {
+            return;
+        }
+        long key = getKey(valueMode, itemId);
+        Records records = index.get(key);
+        if (records != null) {
+            int last = records.last();
+            if (getValue(last) == unitValue) {
+                return;
+            }
+            // Kept in order even if the clock goes back, so the item's records can be searched
+            millis = Math.max(millis, getMillis(last));
+        } else {
+            records = new Records();
+            index.put(key, records);
+        }
+        if (count == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                log.warn("Unable to grow the price history, it won't be written", e);
+                failed = true;
+                buffer = null;
+                return;
+            }
+        }
+        int position = getPosition(count);
+        buffer.putLong(position + MILLIS_OFFSET, millis);
+        buffer.putLong(position + VALUE_OFFSET, unitValue);
+        buffer.putInt(position + ITEM_ID_OFFSET, itemId);
+        buffer.putInt(position + VALUE_MODE_OFFSET, valueMode);
+        records.add(count);
+        count++;
+        buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Adds the unit values of items whose prices changed at the given time
+     */
+    public void record(long millis, int valueMode, int[] itemIds, long[] unitValues) {
+        for (int i = 0; i < itemIds.length; i++) {
+            record(millis, valueMode, itemIds[i], unitValues[i]);
+        }
+    }
+
+    /**
+     * Finds the unit value an item had at the given time, being the last recorded at or before it
+     * @return The value, or -1 if none was recorded by then
+     */
+    public long getUnitValue(int valueMode, int itemId, long millis) {
+        if (!open()) {
+            return -1;
+        }
+        Records records = index.get(getKey(valueMode, itemId));
+        if (records == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = records.size - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getMillis(records.records[middle]) <= millis) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? -1 : getValue(records.records[found]);
+    }
+
+    /**
+     * Asks the system to write recorded values to disk. They are kept by the system if only the client exits.
+     */
+    public void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Writes recorded values to disk and lets go of the mapping, so it is unmapped once collected.
+     * The history isn't used again, so another can take over the file.
+     */
+    public void close() {
+        force();
+        buffer = null;
+        index.clear();
+        closed = true;
+    }
+
+    /**
+     * Maps the file and indexes its records the first time it is used
+     * @return False if the history can't be used
+     */
+    private boolean open() {
+        if (buffer != null) {
+            return true;
+        }
+        if (failed || closed) {
+            return false;
+        }
+        try {
+            int existing = 0;
+            if (file.exists()) {
+                existing = (int) Math.max(0, (file.length() - HEADER_SIZE) / RECORD_SIZE);
+            }
+            map(Math.max(existing, INITIAL_CAPACITY));
+        } catch (IOException e) {
+            log.warn("Unable to map the price history, it won't be used", e);
+            failed = true;
+            buffer = null;
+            return false;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            // New, or not one we can read, so started over
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+        }
+        count = Math.max(0, Math.min(buffer.getInt(COUNT_OFFSET), capacity));
+        for (int record = 0; record < count; record++) {
+            int position = getPosition(record);
+            long key = getKey(buffer.getInt(position + VALUE_MODE_OFFSET), buffer.getInt(position + ITEM_ID_OFFSET));
+            index.computeIfAbsent(key, k -> new Records()).add(record);
+        }
+        return true;
+    }
+
+    private void map(int newCapacity) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+        }
+        capacity = newCapacity;
+    }
+
+    private long getMillis(int record) {
+        return buffer.getLong(getPosition(record) + MILLIS_OFFSET);
+    }
+
+    private long getValue(int record) {
+        return buffer.getLong(getPosition(record) + VALUE_OFFSET);
+    }
+
+    private static int getPosition(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    private static long getKey(int valueMode, int itemId) {
+        return ((long) valueMode << 32) | (itemId & 0xFFFFFFFFL);
+    }
+}
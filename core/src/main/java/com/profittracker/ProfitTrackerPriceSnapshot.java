@@ -0,0 +1,137 @@
+package com.profittracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Prices frozen at one point in time, read from a memory mapped file.
+ * Entries have a fixed size and are indexed by item id, so a lookup is a single read from the mapping,
+ * and opening a snapshot parses nothing but its header. Can be read from any thread.
+ */
+public class ProfitTrackerPriceSnapshot implements ProfitTrackerPriceSource {
+    private static final int MAGIC = 0x50545053;
+    private static final int VERSION = 1;
+    // Magic, version, entry count, then the time the prices were taken
+    private static final int HEADER_SIZE = 24;
+    private static final int COUNT_OFFSET = 8;
+    private static final int MILLIS_OFFSET = 16;
+    // Grand exchange, high alchemy, low alchemy and store price
+    private static final int ENTRY_SIZE = 16;
+    private static final int GRAND_EXCHANGE_OFFSET = 0;
+    private static final int HIGH_ALCH_OFFSET = 4;
+    private static final int LOW_ALCH_OFFSET = 8;
+    private static final int STORE_OFFSET = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private ProfitTrackerPriceSnapshot(MappedByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write}
+     * @throws IOException If the file can't be read, or isn't a snapshot this version can read
+     */
+    public static ProfitTrackerPriceSnapshot open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a price snapshot: " + file);
+        }
+        int count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || buffer.capacity() < HEADER_SIZE + (long) count * ENTRY_SIZE) {
+            throw new IOException("Truncated price snapshot: " + file);
+        }
+        return new ProfitTrackerPriceSnapshot(buffer, count);
+    }
+
+    /**
+     * Writes prices to a snapshot, replacing any existing one once fully written.
+     * Alchemy prices are taken from the store prices.
+     * @param grandExchangePrices Grand exchange price of each item id, in the same order
+     * @param storePrices Store price of each item id, in the same order
+     */
+    public static void write(File file, int[] itemIds, int[] grandExchangePrices, int[] storePrices, long currentTimeMillis) throws IOException {
+        int count = 0;
+        for (int itemId : itemIds) {
+            count = Math.max(count, itemId + 1);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ENTRY_SIZE);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putLong(MILLIS_OFFSET, currentTimeMillis);
+        for (int i = 0; i < itemIds.length; i++) {
+            if (itemIds[i] < 0) {
+                continue;
+            }
+            int position = HEADER_SIZE + itemIds[i] * ENTRY_SIZE;
+            buffer.putInt(position + GRAND_EXCHANGE_OFFSET, grandExchangePrices[i]);
+            buffer.putInt(position + HIGH_ALCH_OFFSET, (int) (storePrices[i] * ProfitTrackerShopValues.SPECIAL_60_HIGH_ALCH));
+            buffer.putInt(position + LOW_ALCH_OFFSET, (int) (storePrices[i] * ProfitTrackerShopValues.COMMON_LOW_ALCH));
+            buffer.putInt(position + STORE_OFFSET, storePrices[i]);
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        // Written next to the snapshot first, so it is never seen half written
+        File temporaryFile = new File(directory, file.getName() + ".tmp");
+        Files.write(temporaryFile.toPath(), buffer.array());
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public int getGrandExchangePrice(int itemId) {
+        return getPrice(itemId, GRAND_EXCHANGE_OFFSET);
+    }
+
+    @Override
+    public int getStorePrice(int itemId) {
+        return getPrice(itemId, STORE_OFFSET);
+    }
+
+    @Override
+    public int getHighAlchPrice(int itemId) {
+        return getPrice(itemId, HIGH_ALCH_OFFSET);
+    }
+
+    @Override
+    public int getLowAlchPrice(int itemId) {
+        return getPrice(itemId, LOW_ALCH_OFFSET);
+    }
+
+    /**
+     * Number of item ids the snapshot has room for, one more than the highest id priced
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Time the prices were taken at
+     */
+    public long getMillis() {
+        return buffer.getLong(MILLIS_OFFSET);
+    }
+
+    private int getPrice(int itemId, int offset) {
+        if (itemId < 0 || itemId >= count) {
+            return 0;
+        }
+        return buffer.getInt(HEADER_SIZE + itemId * ENTRY_SIZE + offset);
+    }
+}
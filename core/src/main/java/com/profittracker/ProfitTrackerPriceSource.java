@@ -0,0 +1,27 @@
+package com.profittracker;
+
+/**
+ * Prices of one of an item, looked up by item id. Items without a known price are worth 0.
+ */
+public interface ProfitTrackerPriceSource {
+    int getGrandExchangePrice(int itemId);
+
+    /**
+     * Store price, which alchemy and shop values are a fraction of
+     */
+    int getStorePrice(int itemId);
+
+    /**
+     * High alchemy value, taken from the store price unless the source keeps its own
+     */
+    default int getHighAlchPrice(int itemId) {
+        return (int) (getStorePrice(itemId) * ProfitTrackerShopValues.SPECIAL_60_HIGH_ALCH);
+    }
+
+    /**
+     * Low alchemy value, taken from the store price unless the source keeps its own
+     */
+    default int getLowAlchPrice(int itemId) {
+        return (int) (getStorePrice(itemId) * ProfitTrackerShopValues.COMMON_LOW_ALCH);
+    }
+}
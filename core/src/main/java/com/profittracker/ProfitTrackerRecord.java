@@ -0,0 +1,516 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Long term data storage for individual account profiles.
+ * Once in use, a record is only modified by the plugin's tick worker, other threads read copies of it.
+ */
+public class ProfitTrackerRecord {
+    public String name;
+    /**
+     * Name of the RuneScape profile type, such as STANDARD or BETA.
+     */
+    public String rsProfileType;
+    public long hash;
+    public long startTickMillies;
+    public long ticksOnline;
+    public long profitAccumulated;
+    /**
+     * Part of the profit from accumulated items changing in value when prices were refreshed, rather than from earning.
+     */
+    public long marketMovement;
+    /**
+     * The same for each item. Left out of copies read while tracking, which only need the top movers.
+     */
+    public Map<Integer, Long> itemMarketMovement = new HashMap<>();
+    public ProfitTrackerPossessions startingPossessions;
+    public ProfitTrackerPossessions currentPossessions;
+    public ProfitTrackerItemCollection lastPossessionChange;
+    /**
+     * A sum of all item changes observed. Ideally the same as the difference between starting and current possessions.
+     * Can change if the user decides to adjust manually.
+     */
+    public ProfitTrackerItemCollection itemDifferenceAccumulated = ProfitTrackerItemCollection.EMPTY;
+    /**
+     * The accumulated difference as lots valued when acquired, or null unless valuing at acquisition prices.
+     * Rebuilt from the item change log when needed, rather than saved.
+     */
+    public transient ProfitTrackerCostBasis costBasis;
+    /**
+     * Profit with items valued when acquired, kept with the lots so copies can read it.
+     */
+    public transient long costBasisProfit;
+    /**
+     * Grand exchange fills, used to report profit made from flipping separately from the overall profit.
+     */
+    public ProfitTrackerFlipLedger flipLedger = new ProfitTrackerFlipLedger();
+    /**
+     * Trip being timed, or null if none is.
+     */
+    public ProfitTrackerTrip currentTrip;
+    /**
+     * Trips completed this session, oldest first. Replaced rather than modified when a trip completes.
+     */
+    public ProfitTrackerTrip[] completedTrips = new ProfitTrackerTrip[0];
+    /**
+     * Profit and online ticks by the region and activity they were made in. Not cleared by resets,
+     * so locations can be compared across many sessions.
+     */
+    public ProfitTrackerAttribution regionAttribution = new ProfitTrackerAttribution();
+    public ProfitTrackerAttribution activityAttribution = new ProfitTrackerAttribution();
+    /**
+     * The same for this session only, kept in its summary once archived.
+     */
+    public ProfitTrackerAttribution sessionRegionAttribution = new ProfitTrackerAttribution();
+    public ProfitTrackerAttribution sessionActivityAttribution = new ProfitTrackerAttribution();
+    /**
+     * Archived sessions and profit over time for the account, saved to its own file. Null if not loaded.
+     */
+    public transient ProfitTrackerHistory history;
+    /**
+     * Profit of each tick for the account, in its own memory mapped files. Null if not opened.
+     */
+    public transient ProfitTrackerTimeSeries timeSeries;
+    /**
+     * Every possession change added to the accumulated difference, in its own memory mapped files. Null if not opened.
+     */
+    public transient ProfitTrackerItemChangeLog itemChangeLog;
+    /**
+     * Items that gained and lost the most value this session, most first. Replaced whenever they may have changed.
+     */
+    public transient ProfitTrackerItemContribution[] topGainers = new ProfitTrackerItemContribution[0];
+    public transient ProfitTrackerItemContribution[] topLosers = new ProfitTrackerItemContribution[0];
+    /**
+     * Items that moved the most in value from price refreshes this session. Replaced whenever they may have changed.
+     */
+    public transient ProfitTrackerItemContribution[] topMarketMovers = new ProfitTrackerItemContribution[0];
+    // Valued in full when first needed, then only for items that change
+    private transient ProfitTrackerContributions contributions;
+    /**
+     * Items found out of sync by the last desync seen since loading or resetting, or null if none has been seen.
+     */
+    public transient ProfitTrackerItemCollection driftItems;
+    // Created from the full collections when first needed, then updated with each change
+    private transient ProfitTrackerDriftChecksum driftChecksum;
+
+    public ProfitTrackerRecord(long hash, String rsProfileType, long currentTimeMillis){
+        this.hash = hash;
+        this.rsProfileType = rsProfileType;
+        startTickMillies = currentTimeMillis;
+        ticksOnline = 0;
+        profitAccumulated = 0;
+        startingPossessions = new ProfitTrackerPossessions();
+        currentPossessions = new ProfitTrackerPossessions();
+        lastPossessionChange = null;
+    }
+
+    private ProfitTrackerRecord(){
+    }
+
+    /**
+     * Copies the record as it is now. Item collections are shared, as they are replaced rather than modified.
+     * The flip ledger is copied, as it is modified in place.
+     * Attribution is left out, as it is only needed when saving.
+     */
+    public ProfitTrackerRecord copy(){
+        ProfitTrackerRecord copy = new ProfitTrackerRecord();
+        copy.name = name;
+        copy.rsProfileType = rsProfileType;
+        copy.hash = hash;
+        copy.startTickMillies = startTickMillies;
+        copy.ticksOnline = ticksOnline;
+        copy.profitAccumulated = profitAccumulated;
+        copy.marketMovement = marketMovement;
+        copy.itemMarketMovement = null;
+        copy.startingPossessions = startingPossessions.copy();
+        copy.currentPossessions = currentPossessions.copy();
+        copy.lastPossessionChange = lastPossessionChange;
+        copy.itemDifferenceAccumulated = itemDifferenceAccumulated;
+        copy.costBasisProfit = costBasisProfit;
+        copy.flipLedger = flipLedger.copy();
+        copy.currentTrip = currentTrip;
+        copy.completedTrips = completedTrips;
+        copy.regionAttribution = null;
+        copy.activityAttribution = null;
+        copy.sessionRegionAttribution = null;
+        copy.sessionActivityAttribution = null;
+        copy.topGainers = topGainers;
+        copy.topLosers = topLosers;
+        copy.topMarketMovers = topMarketMovers;
+        copy.driftItems = driftItems;
+        return copy;
+    }
+
+    /**
+     * Copies the record for saving, including the attribution left out of copies read while tracking
+     */
+    public ProfitTrackerRecord copyForSave(){
+        ProfitTrackerRecord copy = copy();
+        copy.regionAttribution = regionAttribution.copy();
+        copy.activityAttribution = activityAttribution.copy();
+        copy.sessionRegionAttribution = sessionRegionAttribution.copy();
+        copy.sessionActivityAttribution = sessionActivityAttribution.copy();
+        copy.itemMarketMovement = new HashMap<>(itemMarketMovement);
+        return copy;
+    }
+
+    /**
+     * Adds ticks spent online in a region and activity, up to the given time
+     */
+    public void addAttributedTicks(int regionId, int activity, long ticks, long currentTimeMillis){
+        regionAttribution.addTicks(regionId, ticks);
+        activityAttribution.addTicks(activity, ticks);
+        sessionRegionAttribution.addTicks(regionId, ticks);
+        sessionActivityAttribution.addTicks(activity, ticks);
+        if (history != null) {
+            history.add(currentTimeMillis, 0, ticks);
+        }
+    }
+
+    /**
+     * Adds a tick's profit to the region and activity it was made in, and the time it was made at
+     */
+    public void addAttributedProfit(int regionId, int activity, long profit, long currentTimeMillis){
+        regionAttribution.addProfit(regionId, profit);
+        activityAttribution.addProfit(activity, profit);
+        sessionRegionAttribution.addProfit(regionId, profit);
+        sessionActivityAttribution.addProfit(activity, profit);
+        if (history != null) {
+            history.add(currentTimeMillis, profit, 0);
+        }
+    }
+
+    /**
+     * Archives the session to the history before it is reset, if it was ever online
+     * @param ticks Online ticks of the session, which the record only learns when saved
+     * @param flipProfit Realized flip profit of the session
+     */
+    public void archiveSession(long ticks, long flipProfit, long currentTimeMillis){
+        if (history == null || ticks == 0) {
+            return;
+        }
+        history.archive(new ProfitTrackerSessionSummary(startTickMillies, currentTimeMillis, ticks, profitAccumulated, flipProfit,
+                completedTrips.length, sessionRegionAttribution, sessionActivityAttribution));
+    }
+
+    /**
+     * Clears record data. Current possessions are not cleared, unless a hard reset is performed.
+     * This is to allow resetting without having to open bank/ge again to learn items.
+     * Hard resets are needed to avoid users turning off the plugin, gaining items, then enabling it,
+     * and instantly getting profit when opening bank or GE.
+     * The flip ledger is reset separately, by its owner.
+     */
+    public void reset(boolean hardReset, long currentTimeMillis) {
+        startTickMillies = currentTimeMillis;
+        ticksOnline = 0;
+        profitAccumulated = 0;
+        marketMovement = 0;
+        itemMarketMovement = new HashMap<>();
+        startingPossessions = new ProfitTrackerPossessions();
+        if (hardReset) {
+            currentPossessions = new ProfitTrackerPossessions();
+        }
+        lastPossessionChange = null;
+        itemDifferenceAccumulated = ProfitTrackerItemCollection.EMPTY;
+        if (costBasis != null) {
+            costBasis = new ProfitTrackerCostBasis();
+        }
+        costBasisProfit = 0;
+        currentTrip = null;
+        completedTrips = new ProfitTrackerTrip[0];
+        sessionRegionAttribution = new ProfitTrackerAttribution();
+        sessionActivityAttribution = new ProfitTrackerAttribution();
+        topGainers = new ProfitTrackerItemContribution[0];
+        topLosers = new ProfitTrackerItemContribution[0];
+        topMarketMovers = new ProfitTrackerItemContribution[0];
+        contributions = null;
+        driftItems = null;
+        driftChecksum = null;
+    }
+
+    /**
+     * @param change Difference from the current possessions to the new ones, used to update the drift checksum
+     */
+    public void updateItems(ProfitTrackerPossessions newPossessions, ProfitTrackerItemCollection change){
+        getDriftChecksum().addCurrent(change);
+        this.updateInventoryItems(newPossessions.inventoryItems);
+        if (newPossessions.bankItems != null) {
+            this.updateBankItems(newPossessions.bankItems);
+        }
+        if (newPossessions.grandExchangeItems != null) {
+            this.updateGrandExchangeItems(newPossessions.grandExchangeItems);
+        }
+        this.updateUntrackedItems(newPossessions.untrackedStorageItems);
+    }
+
+    /**
+     * Adds an observed change in possessions to the accumulated difference
+     */
+    public void addItemDifference(ProfitTrackerItemCollection change){
+        getDriftChecksum().addAccumulated(change);
+        itemDifferenceAccumulated = ProfitTrackerItemCollections.getItemCollectionSum(itemDifferenceAccumulated, change);
+        lastPossessionChange = change;
+    }
+
+    /**
+     * Adds a manual adjustment to the accumulated difference, which possessions are not expected to match
+     */
+    public void addAdjustment(ProfitTrackerItemCollection change){
+        getDriftChecksum().addAdjustment(change);
+        itemDifferenceAccumulated = ProfitTrackerItemCollections.getItemCollectionSum(itemDifferenceAccumulated, change);
+        lastPossessionChange = change;
+    }
+
+    /**
+     * Adds items found to have been in untracked storage all along, to both starting and current possessions
+     */
+    public void addUntrackedItems(ProfitTrackerItemCollection items){
+        ProfitTrackerDriftChecksum checksum = getDriftChecksum();
+        checksum.addStarting(items);
+        checksum.addCurrent(items);
+        startingPossessions.untrackedStorageItems = ProfitTrackerItemCollections.getItemCollectionSum(startingPossessions.untrackedStorageItems, items);
+        currentPossessions.untrackedStorageItems = ProfitTrackerItemCollections.getItemCollectionSum(currentPossessions.untrackedStorageItems, items);
+    }
+
+    /**
+     * Revalues the items in a change already added to the accumulated difference, and updates the top gainers and losers.
+     * Every accumulated item is valued the first time, and after the contributions are cleared.
+     * @param itemValue Value of a stack of items
+     */
+    public void updateContributions(ProfitTrackerItemCollection change, ToLongFunction<ProfitTrackerItem> itemValue){
+        if (contributions == null) {
+            contributions = new ProfitTrackerContributions();
+            contributions.add(itemDifferenceAccumulated, itemValue);
+        } else {
+            contributions.add(change, itemValue);
+        }
+        topGainers = contributions.getTopGainers();
+        topLosers = contributions.getTopLosers();
+    }
+
+    /**
+     * Adds a change already added to the accumulated difference to the lots, valued at current prices.
+     * Does nothing unless valuing at acquisition prices.
+     * @param itemValue Value of a stack of items
+     */
+    public void updateCostBasis(ProfitTrackerItemCollection change, ToLongFunction<ProfitTrackerItem> itemValue){
+        if (costBasis == null) {
+            return;
+        }
+        for (int i = 0; i < change.size(); i++) {
+            costBasis.add(change.getId(i), change.getQuantity(i), itemValue.applyAsLong(new ProfitTrackerItem(change.getId(i), 1)));
+        }
+        costBasisProfit = costBasis.getProfit();
+    }
+
+    /**
+     * Opens the record's logs in the directory, appending after anything already logged.
+     * Called again after {@link #closeLogs()} when the record is tracked again. Must be called on the tick worker once in use.
+     */
+    public void openLogs(File directory){
+        timeSeries = new ProfitTrackerTimeSeries(directory, getAccountRecordKey());
+        itemChangeLog = new ProfitTrackerItemChangeLog(directory, getAccountRecordKey());
+    }
+
+    /**
+     * Writes and lets go of the record's logs, once it is no longer tracked. Must be called on the tick worker.
+     */
+    public void closeLogs(){
+        if (timeSeries != null) {
+            timeSeries.close();
+        }
+        if (itemChangeLog != null) {
+            itemChangeLog.close();
+        }
+    }
+
+    /**
+     * Stops valuing at acquisition prices, until the lots are rebuilt
+     */
+    public void clearCostBasis(){
+        costBasis = null;
+        costBasisProfit = 0;
+    }
+
+    /**
+     * Revalues accumulated items whose prices changed, adding their change in value to the profit as market movement.
+     * Items are only revalued once valued, as there is no value for them to change from before that.
+     * @param itemIds Items whose prices changed, or null if any item may have changed value
+     * @return Change in value
+     */
+    public long revalue(int[] itemIds, ToLongFunction<ProfitTrackerItem> itemValue){
+        if (contributions == null) {
+            return 0;
+        }
+        long movement = contributions.revalue(itemIds, itemValue, itemMarketMovement);
+        if (movement != 0) {
+            profitAccumulated += movement;
+            marketMovement += movement;
+            topGainers = contributions.getTopGainers();
+            topLosers = contributions.getTopLosers();
+            topMarketMovers = contributions.getTopMovers(itemMarketMovement);
+        }
+        return movement;
+    }
+
+    /**
+     * Forgets item contributions, so they are all revalued on the next update, for when prices have changed
+     */
+    public void clearContributions(){
+        contributions = null;
+    }
+
+    /**
+     * Adds an ended trip to the completed trips, and stops timing the current one
+     */
+    public void completeTrip(ProfitTrackerTrip trip){
+        ProfitTrackerTrip[] trips = Arrays.copyOf(completedTrips, completedTrips.length + 1);
+        trips[completedTrips.length] = trip;
+        completedTrips = trips;
+        currentTrip = null;
+    }
+
+    /**
+     * Checks the accumulated difference still matches the change from starting to current possessions.
+     * Only checksums are compared, the items out of sync are looked for once they don't match.
+     * @return Items that went out of sync since the last check, or null if there are none
+     */
+    public ProfitTrackerItemCollection checkDrift(){
+        if (driftChecksum == null || driftChecksum.isConsistent()) {
+            return null;
+        }
+        ProfitTrackerItemCollection newDriftItems = driftChecksum.acceptDrift(this);
+        if (newDriftItems.isEmpty()) {
+            return null;
+        }
+        driftItems = newDriftItems;
+        return newDriftItems;
+    }
+
+    private ProfitTrackerDriftChecksum getDriftChecksum(){
+        if (driftChecksum == null) {
+            driftChecksum = new ProfitTrackerDriftChecksum(this);
+        }
+        return driftChecksum;
+    }
+
+    public void updateInventoryItems(ProfitTrackerItemCollection items){
+        if (startingPossessions.inventoryItems == null && items != null) {
+            startingPossessions.inventoryItems = items;
+            // Starting possessions only change when first learnt, the checksum is recreated to include them
+            driftChecksum = null;
+        }
+        currentPossessions.inventoryItems = items;
+    }
+
+    public void updateBankItems(ProfitTrackerItemCollection items){
+        if (startingPossessions.bankItems == null && items != null) {
+            startingPossessions.bankItems = items;
+            driftChecksum = null;
+        }
+        currentPossessions.bankItems = items;
+    }
+
+    public void updateGrandExchangeItems(ProfitTrackerItemCollection items){
+        if (startingPossessions.grandExchangeItems == null && items != null) {
+            startingPossessions.grandExchangeItems = items;
+            driftChecksum = null;
+        }
+        currentPossessions.grandExchangeItems = items;
+    }
+
+    public void updateUntrackedItems(ProfitTrackerItemCollection items){
+        if (startingPossessions.untrackedStorageItems == null && items != null) {
+            startingPossessions.untrackedStorageItems = items;
+            driftChecksum = null;
+        }
+        currentPossessions.untrackedStorageItems = items;
+    }
+
+    public String getAccountRecordKey(){
+        return createAccountRecordKey(this.hash,this.rsProfileType);
+    }
+
+    public static String createAccountRecordKey(long accountHash, String rsProfileType) {
+        if (accountHash == -1) {
+            // Not logged in
+            return null;
+        }
+        // Account for special worlds where a player with the same name might have different possessions
+        // For example, a speedrunning world has MEMBER and SPEEDRUNNING types
+        String accountIdentifier = Long.toString(accountHash) + "_" + rsProfileType;
+        return "record_" + accountIdentifier;
+    }
+
+    public File getAccountHistoryFile(File directory){
+        return new File(directory, getAccountRecordKey() + "_history.json");
+    }
+
+    public File getAccountRecordFile(File directory){
+        return new File(directory, getAccountRecordKey() + ".json");
+    }
+
+    /**
+     * Parses a record read from its file
+     * Returns null if anything fails
+     */
+    public static ProfitTrackerRecord load(String json, Gson gson){
+        ProfitTrackerFlightEvents.RecordLoadEvent loadEvent = new ProfitTrackerFlightEvents.RecordLoadEvent();
+        loadEvent.begin();
+        if (json == null) {
+            loadEvent.commit();
+            return null;
+        }
+        if (loadEvent.isEnabled()) {
+            loadEvent.bytes = json.getBytes().length;
+        }
+        try {
+            ProfitTrackerRecord record = gson.fromJson(json, ProfitTrackerRecord.class);
+            if (record != null && record.flipLedger == null) {
+                // Records saved before flips were tracked
+                record.flipLedger = new ProfitTrackerFlipLedger();
+            }
+            if (record != null && record.itemMarketMovement == null) {
+                record.itemMarketMovement = new HashMap<>();
+            }
+            loadEvent.found = record != null;
+            return record;
+        } catch(Exception e) {
+            // Likely failed to read, maybe the data was corrupted, or manually modified
+            return null;
+        } finally {
+            loadEvent.commit();
+        }
+    }
+
+    /**
+     * Saves the current account data into a json file in the directory, by the name of the account hash + rs profile type
+     */
+    public void save(File directory, Gson gson){
+        ProfitTrackerFlightEvents.RecordSaveEvent saveEvent = new ProfitTrackerFlightEvents.RecordSaveEvent();
+        saveEvent.begin();
+        String json = gson.toJson(this);
+        byte[] bytes = json.getBytes();
+        saveEvent.bytes = bytes.length;
+
+        File accountFile = getAccountRecordFile(directory);
+        try {
+            if (!directory.exists())
+            {
+                directory.mkdirs();
+            }
+            Files.write(accountFile.toPath(), bytes);
+            saveEvent.succeeded = true;
+        } catch(Exception ignored) {
+        }
+        saveEvent.commit();
+    }
+}
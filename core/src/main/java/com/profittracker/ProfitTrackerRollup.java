@@ -0,0 +1,128 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * Profit and online ticks totalled into fixed length time buckets, oldest first.
+ * Running totals are stored rather than each bucket's own, so the total of any range of buckets
+ * is the difference of two running totals, found with binary searches however long the history is.
+ */
+public class ProfitTrackerRollup {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long bucketMillis;
+    // Oldest buckets are dropped past this many, or kept forever if 0
+    private final int maxBuckets;
+
+    private long[] bucketStarts = new long[INITIAL_CAPACITY];
+    private long[] runningProfits = new long[INITIAL_CAPACITY];
+    private long[] runningTicks = new long[INITIAL_CAPACITY];
+    // Running totals before the first bucket kept, so dropping buckets doesn't change later totals
+    private long droppedProfit;
+    private long droppedTicks;
+    private boolean dropped;
+    private int size;
+
+    public ProfitTrackerRollup(long bucketMillis, int maxBuckets) {
+        this.bucketMillis = bucketMillis;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Adds to the bucket containing the given time.
+     * Times older than the newest bucket are added to the newest, as data only arrives late by moments.
+     */
+    public void add(long millis, long profit, long ticks) {
+        long bucketStart = Math.floorDiv(millis, bucketMillis) * bucketMillis;
+        if (size == 0 || bucketStart > bucketStarts[size - 1]) {
+            if (size == bucketStarts.length) {
+                grow();
+            }
+            bucketStarts[size] = bucketStart;
+            runningProfits[size] = getRunningProfit(size - 1);
+            runningTicks[size] = getRunningTicks(size - 1);
+            size++;
+            if (maxBuckets > 0 && size > maxBuckets) {
+                dropOldest(size - maxBuckets);
+            }
+        }
+        runningProfits[size - 1] += profit;
+        runningTicks[size - 1] += ticks;
+    }
+
+    /**
+     * @return Whether buckets are kept back to the given time
+     */
+    public boolean covers(long millis) {
+        return !dropped || size > 0 && bucketStarts[0] <= millis;
+    }
+
+    /**
+     * Totals the buckets starting within the range. Ranges not aligned to buckets include the whole bucket at the start.
+     * @return The profit and ticks, in that order
+     */
+    public long[] getTotal(long fromMillis, long toMillis) {
+        long alignedFrom = Math.floorDiv(fromMillis, bucketMillis) * bucketMillis;
+        int first = findFirstAtOrAfter(alignedFrom);
+        int end = findFirstAtOrAfter(toMillis);
+        return new long[] {
+                getRunningProfit(end - 1) - getRunningProfit(first - 1),
+                getRunningTicks(end - 1) - getRunningTicks(first - 1)
+        };
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public ProfitTrackerRollup copy() {
+        ProfitTrackerRollup copy = new ProfitTrackerRollup(bucketMillis, maxBuckets);
+        copy.bucketStarts = bucketStarts.clone();
+        copy.runningProfits = runningProfits.clone();
+        copy.runningTicks = runningTicks.clone();
+        copy.droppedProfit = droppedProfit;
+        copy.droppedTicks = droppedTicks;
+        copy.dropped = dropped;
+        copy.size = size;
+        return copy;
+    }
+
+    private long getRunningProfit(int index) {
+        return index >= 0 ? runningProfits[index] : droppedProfit;
+    }
+
+    private long getRunningTicks(int index) {
+        return index >= 0 ? runningTicks[index] : droppedTicks;
+    }
+
+    private int findFirstAtOrAfter(long millis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bucketStarts[middle] < millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void grow() {
+        int capacity = bucketStarts.length * 2;
+        bucketStarts = Arrays.copyOf(bucketStarts, capacity);
+        runningProfits = Arrays.copyOf(runningProfits, capacity);
+        runningTicks = Arrays.copyOf(runningTicks, capacity);
+    }
+
+    private void dropOldest(int count) {
+        droppedProfit = runningProfits[count - 1];
+        droppedTicks = runningTicks[count - 1];
+        dropped = true;
+        System.arraycopy(bucketStarts, count, bucketStarts, 0, size - count);
+        System.arraycopy(runningProfits, count, runningProfits, 0, size - count);
+        System.arraycopy(runningTicks, count, runningTicks, 0, size - count);
+        size -= count;
+    }
+}
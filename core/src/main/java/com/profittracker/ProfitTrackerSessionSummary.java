@@ -0,0 +1,77 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * A completed session archived in an account's history, with the profit and online ticks of each region and activity
+ * it was spent in. Keys are kept sorted, with only those used, so summaries stay small however many are kept.
+ */
+public class ProfitTrackerSessionSummary {
+    public final long startMillis;
+    public final long endMillis;
+    public final long ticks;
+    public final long profit;
+    public final long flipProfit;
+    public final int tripCount;
+
+    private final int[] regionIds;
+    private final long[] regionProfits;
+    private final long[] regionTicks;
+    private final int[] activities;
+    private final long[] activityProfits;
+    private final long[] activityTicks;
+
+    public ProfitTrackerSessionSummary(long startMillis, long endMillis, long ticks, long profit, long flipProfit, int tripCount,
+                                       ProfitTrackerAttribution regions, ProfitTrackerAttribution activities) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.ticks = ticks;
+        this.profit = profit;
+        this.flipProfit = flipProfit;
+        this.tripCount = tripCount;
+        this.regionIds = regions.getKeys();
+        Arrays.sort(regionIds);
+        this.regionProfits = new long[regionIds.length];
+        this.regionTicks = new long[regionIds.length];
+        for (int i = 0; i < regionIds.length; i++) {
+            regionProfits[i] = regions.getProfit(regionIds[i]);
+            regionTicks[i] = regions.getTicks(regionIds[i]);
+        }
+        this.activities = activities.getKeys();
+        Arrays.sort(this.activities);
+        this.activityProfits = new long[this.activities.length];
+        this.activityTicks = new long[this.activities.length];
+        for (int i = 0; i < this.activities.length; i++) {
+            activityProfits[i] = activities.getProfit(this.activities[i]);
+            activityTicks[i] = activities.getTicks(this.activities[i]);
+        }
+    }
+
+    public int[] getRegionIds() {
+        return regionIds;
+    }
+
+    public int[] getActivities() {
+        return activities;
+    }
+
+    public long getRegionProfit(int regionId) {
+        int index = Arrays.binarySearch(regionIds, regionId);
+        return index >= 0 ? regionProfits[index] : 0;
+    }
+
+    public long getRegionTicks(int regionId) {
+        int index = Arrays.binarySearch(regionIds, regionId);
+        return index >= 0 ? regionTicks[index] : 0;
+    }
+
+    public long getActivityProfit(int activity) {
+        int index = Arrays.binarySearch(activities, activity);
+        return index >= 0 ? activityProfits[index] : 0;
+    }
+
+    public long getActivityTicks(int activity) {
+        int index = Arrays.binarySearch(activities, activity);
+        return index >= 0 ? activityTicks[index] : 0;
+    }
+}
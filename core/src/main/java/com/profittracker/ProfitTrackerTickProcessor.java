@@ -0,0 +1,345 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Calculates the profit of tick snapshots, off the client thread.
+ * Snapshots are processed one at a time on the tick worker, in the order they were captured,
+ * which as the record's only writer can update its possessions without locking.
+ */
+@Slf4j
+public class ProfitTrackerTickProcessor {
+    private static final int[] NO_ITEM_IDS = new int[0];
+
+    private final ProfitTrackerValuation valuation;
+    private final ProfitTrackerTracer tracer;
+    // Null if unit values aren't kept over time
+    private final ProfitTrackerPriceHistory priceHistory;
+
+    // Set by a storage item interaction, and kept until a possession change consumes it
+    private boolean depositingUntrackedItem;
+
+    public ProfitTrackerTickProcessor(ProfitTrackerValuation valuation, ProfitTrackerTracer tracer, ProfitTrackerPriceHistory priceHistory) {
+        this.valuation = valuation;
+        this.tracer = tracer;
+        this.priceHistory = priceHistory;
+    }
+
+    public ProfitTrackerTickResult process(ProfitTrackerTickSnapshot snapshot) {
+        ProfitTrackerFlightEvents.TickEvent tickEvent = new ProfitTrackerFlightEvents.TickEvent();
+        tickEvent.begin();
+
+        ProfitTrackerTickResult result = calculateProfit(snapshot);
+        tracer.record(ProfitTrackerTracer.Type.PROFIT, result.tickProfit, result.itemChanges);
+
+        if (tickEvent.shouldCommit()) {
+            tickEvent.inventoryChanged = snapshot.inventoryChanged;
+            tickEvent.bankChanged = snapshot.bankChanged;
+            tickEvent.grandExchangeChanged = snapshot.grandExchangeChanged;
+            tickEvent.runePouchChanged = snapshot.runePouchChanged;
+            tickEvent.itemChanges = result.itemChanges;
+            tickEvent.profit = result.tickProfit;
+            tickEvent.commit();
+        }
+        return result;
+    }
+
+    private ProfitTrackerTickResult calculateProfit(ProfitTrackerTickSnapshot snapshot)
+    {
+        /*
+        Calculate and return the profit for this tick
+        if skipProfit is set, meaning this tick was bank / deposit
+        so return 0
+         */
+        ProfitTrackerRecord accountRecord = snapshot.record;
+        depositingUntrackedItem |= snapshot.depositingUntrackedItem;
+        long diffNanos = 0;
+        long valuationNanos = 0;
+        long persistenceNanos;
+
+        long marketMovement = 0;
+        if (snapshot.priceChanges != null) {
+            // Revalued before the tick's own changes, which are valued at the new prices
+            long revaluationStart = System.nanoTime();
+            valuation.updateUnitValues(snapshot.priceChanges);
+            if (priceHistory != null) {
+                priceHistory.record(snapshot.millis, snapshot.valueMode, snapshot.priceChanges.itemIds, snapshot.priceChanges.unitValues);
+            }
+            marketMovement = accountRecord.revalue(snapshot.priceChanges.estimatesChanged ? null : snapshot.priceChanges.itemIds,
+                    valuation::calculateStackValue);
+            valuationNanos += System.nanoTime() - revaluationStart;
+            if (marketMovement != 0) {
+                tracer.record(ProfitTrackerTracer.Type.MARKET_MOVEMENT, marketMovement, snapshot.priceChanges.itemIds.length);
+            }
+        }
+
+        int[] unvaluedItemIds = updateCostBasis(accountRecord, snapshot.costBasis, snapshot.valueMode);
+
+        ProfitTrackerPossessions newPossessions = new ProfitTrackerPossessions();
+        long newProfit = 0;
+        // Value of a change accumulated on a tick whose profit was skipped
+        long skippedProfit = 0;
+        ProfitTrackerItemCollection possessionDifference = null;
+        String skipReason = null;
+
+        long phaseStart = System.nanoTime();
+        newPossessions.inventoryItems = snapshot.inventoryItems;
+        newPossessions.bankItems = snapshot.bankItems;
+        newPossessions.grandExchangeItems = snapshot.grandExchangeItems;
+        accountRecord.currentPossessions.fillNullItems(newPossessions);
+        newPossessions.fillNullItems(accountRecord.currentPossessions);
+        ProfitTrackerItemCollection newItems = newPossessions.getItems();
+
+        if (!snapshot.skipProfit && accountRecord.currentPossessions.inventoryItems != null && newItems != null)
+        {
+            // calculate new profit
+            possessionDifference = valuation.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems);
+            diffNanos += System.nanoTime() - phaseStart;
+            phaseStart = System.nanoTime();
+            newProfit = valuation.calculateItemValue(possessionDifference);
+            valuationNanos += System.nanoTime() - phaseStart;
+            phaseStart = System.nanoTime();
+
+            log.debug("Calculated {} profit for {} item changes.", newProfit, possessionDifference.size());
+        }
+        else
+        {
+            /* first time calculation / banking / equipping */
+            log.debug("Skipping profit calculation!");
+
+            skipReason = accountRecord.currentPossessions.inventoryItems == null ? "First calculation" : "Skip requested";
+        }
+
+        ProfitTrackerItemCollection rawPossessionDifference = ProfitTrackerItemCollection.EMPTY;
+        if (accountRecord.currentPossessions.getItems() != null) {
+            rawPossessionDifference = ProfitTrackerItemCollections.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems);
+        }
+        diffNanos += System.nanoTime() - phaseStart;
+        int itemChanges = rawPossessionDifference.size();
+        if (!rawPossessionDifference.isEmpty()) {
+            phaseStart = System.nanoTime();
+            // This block generally checks for possessions changing when they shouldn't be, often when closing storage the same tick as withdraw/depositing
+            // Otherwise, just records the last change seen
+            boolean bankingItemsWithoutWidget = (snapshot.bankOpened || snapshot.depositingItem || snapshot.depositBoxOpened) && snapshot.bankItems == null && !snapshot.untrackedStorageOpened;
+            // If bank/deposit box/depositing flag, any lost items are in bank, any gained items came from bank
+            if (bankingItemsWithoutWidget) {
+                ProfitTrackerItemCollection bankChange = ProfitTrackerItemCollections.getItemCollectionDifference(rawPossessionDifference, ProfitTrackerItemCollection.EMPTY);
+                if (accountRecord.currentPossessions.bankItems != null) {
+                    newPossessions.bankItems = ProfitTrackerItemCollections.getItemCollectionSum(accountRecord.currentPossessions.bankItems, bankChange);
+                } else {
+                    // Bank yet to be opened, can't deposit anything, as then it would be like it originally had almost nothing
+                    diffNanos += System.nanoTime() - phaseStart;
+                    phaseStart = System.nanoTime();
+                    accountRecord.updateItems(newPossessions, rawPossessionDifference);
+                    checkDrift(accountRecord);
+                    persistenceNanos = System.nanoTime() - phaseStart;
+                    commitSkippedTick("Bank not yet opened", itemChanges);
+                    appendTimeSeries(accountRecord, snapshot, 0, marketMovement);
+                    return new ProfitTrackerTickResult(accountRecord, snapshot.traceTick, 0, marketMovement, getTotalProfit(accountRecord, snapshot),
+                            itemChanges, unvaluedItemIds, diffNanos, valuationNanos, persistenceNanos);
+                }
+            }
+            // If ge opened, gained items pull from ge, items banked will cause temporary desync
+            if (snapshot.grandExchangeOpened && !snapshot.grandExchangeChanged) {
+                ProfitTrackerItemCollection grandExchangeChange = ProfitTrackerItemCollections.getItemCollectionDifference(rawPossessionDifference, ProfitTrackerItemCollection.EMPTY);
+                newPossessions.grandExchangeItems = ProfitTrackerItemCollections.getItemCollectionSum(accountRecord.currentPossessions.grandExchangeItems, grandExchangeChange);
+            }
+            // If untracked storage, move lost items to untracked storage, add gained items to old record
+            if (snapshot.untrackedStorageOpened || depositingUntrackedItem) {
+                depositingUntrackedItem = false;
+                ProfitTrackerItemCollection untrackedStorageChange = ProfitTrackerItemCollections.getItemCollectionDifference(rawPossessionDifference, ProfitTrackerItemCollection.EMPTY);
+                newPossessions.untrackedStorageItems = ProfitTrackerItemCollections.getItemCollectionSum(newPossessions.untrackedStorageItems, untrackedStorageChange);
+                // If we go into the negatives, that means untrackedStorage originally had more items in it
+                ProfitTrackerItemCollection missingItems = ProfitTrackerItemCollections.getItemCollectionGain(ProfitTrackerItemCollections.getItemCollectionDifference(newPossessions.untrackedStorageItems, ProfitTrackerItemCollection.EMPTY));
+                // Ensure starting possessions has at least as many as were withdrawn
+                accountRecord.addUntrackedItems(missingItems);
+                newPossessions.untrackedStorageItems = ProfitTrackerItemCollections.getItemCollectionSum(newPossessions.untrackedStorageItems, missingItems);
+            }
+
+            newItems = newPossessions.getItems();
+            // This should always be empty in the event of a storage being opened
+            rawPossessionDifference = ProfitTrackerItemCollections.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems);
+            diffNanos += System.nanoTime() - phaseStart;
+            if (!rawPossessionDifference.isEmpty()) {
+                accountRecord.addItemDifference(rawPossessionDifference);
+                accountRecord.updateContributions(rawPossessionDifference, valuation::calculateStackValue);
+                recordUnitValues(snapshot, rawPossessionDifference);
+                accountRecord.updateCostBasis(rawPossessionDifference, valuation::calculateStackValue);
+                if (accountRecord.itemChangeLog != null) {
+                    accountRecord.itemChangeLog.append(snapshot.tick, snapshot.millis, rawPossessionDifference);
+                }
+                if (possessionDifference == null) {
+                    // Not counted as the tick's profit, but added to the total so it stays the value of the accumulated items
+                    phaseStart = System.nanoTime();
+                    skippedProfit = valuation.calculateItemValue(rawPossessionDifference);
+                    valuationNanos += System.nanoTime() - phaseStart;
+                }
+            } else {
+                newProfit = 0;
+                skipReason = "Moved to storage";
+            }
+        }
+
+        if (skipReason != null) {
+            commitSkippedTick(skipReason, itemChanges);
+        }
+
+        phaseStart = System.nanoTime();
+        accountRecord.updateItems(newPossessions, rawPossessionDifference);
+        checkDrift(accountRecord);
+        persistenceNanos = System.nanoTime() - phaseStart;
+
+        long bookedProfit = newProfit + skippedProfit;
+        if (bookedProfit != 0) {
+            // Accumulated items are valued at current prices already, as price changes are applied as market movement
+            accountRecord.addAttributedProfit(snapshot.regionId, snapshot.activity, bookedProfit, snapshot.millis);
+            accountRecord.profitAccumulated += bookedProfit;
+        }
+        phaseStart = System.nanoTime();
+        appendTimeSeries(accountRecord, snapshot, bookedProfit, marketMovement);
+        persistenceNanos += System.nanoTime() - phaseStart;
+
+        return new ProfitTrackerTickResult(accountRecord, snapshot.traceTick, newProfit, marketMovement, getTotalProfit(accountRecord, snapshot),
+                itemChanges, unvaluedItemIds, diffNanos, valuationNanos, persistenceNanos);
+    }
+
+    private static long getTotalProfit(ProfitTrackerRecord accountRecord, ProfitTrackerTickSnapshot snapshot)
+    {
+        return snapshot.costBasis ? accountRecord.costBasisProfit : accountRecord.profitAccumulated;
+    }
+
+    /**
+     * Starts or stops valuing a record's items at the prices they were acquired at.
+     * When started, the lots are rebuilt from the item change log, with each change valued from the price history
+     * at the time it was made. Anything the log is missing, such as adjustments, is valued at current prices.
+     * Must be called on the tick worker.
+     * @return Items the lots need valued that haven't been, which must first be looked up on the client thread.
+     *         The lots are left unbuilt until then.
+     */
+    public int[] updateCostBasis(ProfitTrackerRecord accountRecord, boolean enabled, int valueMode)
+    {
+        if (!enabled) {
+            if (accountRecord.costBasis != null) {
+                accountRecord.clearCostBasis();
+            }
+            return NO_ITEM_IDS;
+        }
+        if (accountRecord.costBasis != null) {
+            return NO_ITEM_IDS;
+        }
+        int[] unvaluedItemIds = getUnvaluedItemIds(accountRecord);
+        if (unvaluedItemIds.length > 0) {
+            return unvaluedItemIds;
+        }
+        ProfitTrackerCostBasis costBasis = readCostBasis(accountRecord, valueMode);
+        Set<Integer> accumulatedIds = new HashSet<>();
+        ProfitTrackerItemCollection accumulatedItems = accountRecord.itemDifferenceAccumulated;
+        for (int i = 0; i < accumulatedItems.size(); i++) {
+            int itemId = accumulatedItems.getId(i);
+            accumulatedIds.add(itemId);
+            costBasis.add(itemId, accumulatedItems.getQuantity(i) - costBasis.getQuantity(itemId), getCurrentUnitValue(itemId));
+        }
+        for (int itemId : costBasis.getItemIds()) {
+            if (!accumulatedIds.contains(itemId)) {
+                costBasis.add(itemId, -costBasis.getQuantity(itemId), getCurrentUnitValue(itemId));
+            }
+        }
+        accountRecord.costBasis = costBasis;
+        accountRecord.costBasisProfit = costBasis.getProfit();
+        return NO_ITEM_IDS;
+    }
+
+    /**
+     * Items in the record's change log or accumulated items that haven't been valued, such as those lost before a reload
+     */
+    private int[] getUnvaluedItemIds(ProfitTrackerRecord accountRecord)
+    {
+        Set<Integer> itemIds = new HashSet<>();
+        ProfitTrackerItemCollection accumulatedItems = accountRecord.itemDifferenceAccumulated;
+        for (int i = 0; i < accumulatedItems.size(); i++) {
+            if (!valuation.isValued(accumulatedItems.getId(i))) {
+                itemIds.add(accumulatedItems.getId(i));
+            }
+        }
+        if (accountRecord.itemChangeLog != null) {
+            try {
+                accountRecord.itemChangeLog.scan(accountRecord.startTickMillies, (tick, millis, itemId, quantity) -> {
+                    if (!valuation.isValued(itemId)) {
+                        itemIds.add(itemId);
+                    }
+                });
+            } catch (IOException e) {
+                // Reading the log to build the lots will fail the same way, valuing them at current prices
+                log.debug("Unable to read item changes to value", e);
+            }
+        }
+        return itemIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private ProfitTrackerCostBasis readCostBasis(ProfitTrackerRecord accountRecord, int valueMode)
+    {
+        ProfitTrackerCostBasis costBasis = new ProfitTrackerCostBasis();
+        if (accountRecord.itemChangeLog == null) {
+            return costBasis;
+        }
+        try {
+            accountRecord.itemChangeLog.scan(accountRecord.startTickMillies, (tick, millis, itemId, quantity) -> {
+                long unitValue = priceHistory != null ? priceHistory.getUnitValue(valueMode, itemId, millis) : -1;
+                costBasis.add(itemId, quantity, unitValue >= 0 ? unitValue : getCurrentUnitValue(itemId));
+            });
+            return costBasis;
+        } catch (IOException e) {
+            log.warn("Unable to read item changes, lots are valued at current prices", e);
+            return new ProfitTrackerCostBasis();
+        }
+    }
+
+    private long getCurrentUnitValue(int itemId)
+    {
+        return valuation.calculateStackValue(new ProfitTrackerItem(itemId, 1));
+    }
+
+    /**
+     * Keeps the unit values of changed items in the price history, so lots can later be valued at the time they were gained.
+     * Items are first valued when they change, which price refreshes alone would miss.
+     */
+    private void recordUnitValues(ProfitTrackerTickSnapshot snapshot, ProfitTrackerItemCollection change)
+    {
+        if (priceHistory == null) {
+            return;
+        }
+        for (int i = 0; i < change.size(); i++) {
+            priceHistory.record(snapshot.millis, snapshot.valueMode, change.getId(i), getCurrentUnitValue(change.getId(i)));
+        }
+    }
+
+    private void appendTimeSeries(ProfitTrackerRecord accountRecord, ProfitTrackerTickSnapshot snapshot, long tickProfit, long marketMovement)
+    {
+        if (accountRecord.timeSeries != null && (tickProfit != 0 || marketMovement != 0)) {
+            accountRecord.timeSeries.append(snapshot.tick, snapshot.millis, tickProfit, accountRecord.profitAccumulated, snapshot.valueMode);
+        }
+    }
+
+    private void checkDrift(ProfitTrackerRecord accountRecord)
+    {
+        ProfitTrackerItemCollection driftItems = accountRecord.checkDrift();
+        if (driftItems != null) {
+            tracer.record(ProfitTrackerTracer.Type.DRIFT, driftItems.size(), 0);
+        }
+    }
+
+    private void commitSkippedTick(String reason, int itemChanges)
+    {
+        tracer.record(ProfitTrackerTracer.Type.SKIPPED, itemChanges, 0, reason);
+        ProfitTrackerFlightEvents.SkippedTickEvent event = new ProfitTrackerFlightEvents.SkippedTickEvent();
+        if (event.isEnabled()) {
+            event.reason = reason;
+            event.itemChanges = itemChanges;
+            event.commit();
+        }
+    }
+}
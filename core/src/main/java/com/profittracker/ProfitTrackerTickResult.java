@@ -0,0 +1,36 @@
+package com.profittracker;
+
+/**
+ * Outcome of processing a tick snapshot on the tick worker, published back to the client thread
+ */
+public class ProfitTrackerTickResult {
+    final ProfitTrackerRecord record;
+    final long traceTick;
+    // Profit earned this tick
+    final long tickProfit;
+    // Change in value of accumulated items from prices refreshed before the tick
+    final long marketMovement;
+    // Profit of the session after the tick, including market movement, or valued at acquisition prices if configured
+    final long totalProfit;
+    final int itemChanges;
+    // Items to look up on the client thread before acquisition prices can be rebuilt
+    final int[] unvaluedItemIds;
+
+    final long diffNanos;
+    final long valuationNanos;
+    final long persistenceNanos;
+
+    ProfitTrackerTickResult(ProfitTrackerRecord record, long traceTick, long tickProfit, long marketMovement, long totalProfit, int itemChanges, int[] unvaluedItemIds,
+                            long diffNanos, long valuationNanos, long persistenceNanos) {
+        this.record = record;
+        this.traceTick = traceTick;
+        this.tickProfit = tickProfit;
+        this.marketMovement = marketMovement;
+        this.totalProfit = totalProfit;
+        this.itemChanges = itemChanges;
+        this.unvaluedItemIds = unvaluedItemIds;
+        this.diffNanos = diffNanos;
+        this.valuationNanos = valuationNanos;
+        this.persistenceNanos = persistenceNanos;
+    }
+}
@@ -0,0 +1,76 @@
+package com.profittracker;
+
+/**
+ * Everything a tick's profit calculation needs from the client, captured on the client thread.
+ * Handed to the tick worker, which must not touch the client. Never modified after capture.
+ */
+public class ProfitTrackerTickSnapshot {
+    // Record the tick was captured for, results for a record no longer in use are discarded
+    final ProfitTrackerRecord record;
+    // Index of the tick in the event trace being recorded, or -1 when not recording
+    final long traceTick;
+    // Online ticks of the session, including this one
+    final long tick;
+    // Wall time the tick was captured at
+    final long millis;
+    // Where the tick's profit is attributed
+    final int regionId;
+    final int activity;
+    // Ordinal of the price type items were valued by
+    final int valueMode;
+    // Whether items are valued at the prices they were acquired at
+    final boolean costBasis;
+    // Null unless prices changed since the last snapshot
+    final ProfitTrackerPriceChanges priceChanges;
+
+    // Inventory and equipment with containers expanded
+    final ProfitTrackerItemCollection inventoryItems;
+    // Null if the bank container isn't loaded
+    final ProfitTrackerItemCollection bankItems;
+    // Null unless offers changed this tick
+    final ProfitTrackerItemCollection grandExchangeItems;
+
+    final boolean inventoryChanged;
+    final boolean bankChanged;
+    final boolean grandExchangeChanged;
+    final boolean runePouchChanged;
+
+    final boolean skipProfit;
+    final boolean bankOpened;
+    final boolean depositBoxOpened;
+    final boolean depositingItem;
+    final boolean grandExchangeOpened;
+    final boolean untrackedStorageOpened;
+    final boolean depositingUntrackedItem;
+
+    ProfitTrackerTickSnapshot(ProfitTrackerRecord record, long traceTick, long tick, long millis, int regionId, int activity, int valueMode,
+                              boolean costBasis, ProfitTrackerPriceChanges priceChanges,
+                              ProfitTrackerItemCollection inventoryItems, ProfitTrackerItemCollection bankItems, ProfitTrackerItemCollection grandExchangeItems,
+                              boolean inventoryChanged, boolean bankChanged, boolean grandExchangeChanged, boolean runePouchChanged,
+                              boolean skipProfit, boolean bankOpened, boolean depositBoxOpened, boolean depositingItem,
+                              boolean grandExchangeOpened, boolean untrackedStorageOpened, boolean depositingUntrackedItem) {
+        this.record = record;
+        this.traceTick = traceTick;
+        this.tick = tick;
+        this.millis = millis;
+        this.regionId = regionId;
+        this.activity = activity;
+        this.valueMode = valueMode;
+        this.costBasis = costBasis;
+        this.priceChanges = priceChanges;
+        this.inventoryItems = inventoryItems;
+        this.bankItems = bankItems;
+        this.grandExchangeItems = grandExchangeItems;
+        this.inventoryChanged = inventoryChanged;
+        this.bankChanged = bankChanged;
+        this.grandExchangeChanged = grandExchangeChanged;
+        this.runePouchChanged = runePouchChanged;
+        this.skipProfit = skipProfit;
+        this.bankOpened = bankOpened;
+        this.depositBoxOpened = depositBoxOpened;
+        this.depositingItem = depositingItem;
+        this.grandExchangeOpened = grandExchangeOpened;
+        this.untrackedStorageOpened = untrackedStorageOpened;
+        this.depositingUntrackedItem = depositingUntrackedItem;
+    }
+}
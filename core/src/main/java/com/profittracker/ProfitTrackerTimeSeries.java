@@ -0,0 +1,60 @@
+package com.profittracker;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Profit of each tick for an account, in a memory mapped log of fixed size records.
+ * Only ticks that made or lost something are appended, the tick index shows the gaps.
+ * Appended to only by the plugin's tick worker.
+ */
+public class ProfitTrackerTimeSeries {
+    // Tick index and wall time, then tick profit, cumulative profit and value mode
+    static final int RECORD_SIZE = ProfitTrackerMappedLog.FIELDS_OFFSET + 8 + 8 + 4;
+    // Around 87 hours of ticks, or 18MB
+    static final int RECORDS_PER_FILE = 1 << 19;
+
+    /**
+     * Receives each record of a scan, in the order they were appended
+     */
+    public interface Visitor {
+        void visit(long tick, long millis, long tickProfit, long cumulativeProfit, int valueMode) throws IOException;
+    }
+
+    private final ProfitTrackerMappedLog log;
+
+    public ProfitTrackerTimeSeries(File directory, String accountRecordKey) {
+        log = new ProfitTrackerMappedLog(directory, accountRecordKey + "_ticks", RECORD_SIZE, RECORDS_PER_FILE);
+    }
+
+    public void append(long tick, long millis, long tickProfit, long cumulativeProfit, int valueMode) {
+        int position = log.append(tick, millis);
+        if (position < 0) {
+            return;
+        }
+        int fields = position + ProfitTrackerMappedLog.FIELDS_OFFSET;
+        log.getBuffer().putLong(fields, tickProfit);
+        log.getBuffer().putLong(fields + 8, cumulativeProfit);
+        log.getBuffer().putInt(fields + 16, valueMode);
+        log.commit();
+    }
+
+    public void force() {
+        log.force();
+    }
+
+    public void close() {
+        log.close();
+    }
+
+    /**
+     * Scans every tick from the given time on, oldest first. Can be called from any thread.
+     */
+    public void scan(long fromMillis, Visitor visitor) throws IOException {
+        log.scan(fromMillis, (buffer, position) -> {
+            int fields = position + ProfitTrackerMappedLog.FIELDS_OFFSET;
+            visitor.visit(ProfitTrackerMappedLog.getTick(buffer, position), ProfitTrackerMappedLog.getMillis(buffer, position),
+                    buffer.getLong(fields), buffer.getLong(fields + 8), buffer.getInt(fields + 16));
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * In-memory ring buffer of what the tracker saw and did on recent ticks, for diagnosing desyncs after the fact.
+ * Records are stored as primitives and only formatted when dumped, so tracing costs a few array writes per record,
+ * and nothing but a flag check while disabled.
+ * Written to by both the client thread and the tick worker, records from the worker are labelled with the latest tick.
+ */
+@Slf4j
+public class ProfitTrackerTracer {
+    public enum Type {
+        TICK("tick", "activeTicks", ""),
+        CONTAINER_CHANGED("container", "containerId", ""),
+        VARBIT_CHANGED("varbit", "varbitId", "value"),
+        MENU_OPTION("menu", "itemId", "id"),
+        STORAGE("storage", "interfaceId", "opened"),
+        ITEM_VALUE("value", "itemId", "value"),
+        PROFIT("profit", "profit", "itemChanges"),
+        SKIPPED("skipped", "itemChanges", ""),
+        GOLD_DROP("goldDrop", "amount", ""),
+        DRIFT("drift", "items", ""),
+        MARKET_MOVEMENT("market", "movement", "repricedItems");
+
+        private final String name;
+        private final String firstName;
+        private final String secondName;
+
+        Type(String name, String firstName, String secondName) {
+            this.name = name;
+            this.firstName = firstName;
+            this.secondName = secondName;
+        }
+    }
+
+    private static final Type[] TYPES = Type.values();
+    static final int CAPACITY = 1 << 14;
+
+    private volatile boolean enabled;
+    private long tick;
+    // Allocated when first enabled
+    private long[] ticks;
+    private byte[] types;
+    private long[] firstValues;
+    private long[] secondValues;
+    private String[] notes;
+    // Total records written, the next slot is this modulo the capacity
+    private long written;
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled && ticks == null) {
+            ticks = new long[CAPACITY];
+            types = new byte[CAPACITY];
+            firstValues = new long[CAPACITY];
+            secondValues = new long[CAPACITY];
+            notes = new String[CAPACITY];
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void startTick(long tick) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            this.tick = tick;
+            writeRecord(Type.TICK, tick, 0, null);
+        }
+    }
+
+    public void record(Type type, long first, long second) {
+        record(type, first, second, null);
+    }
+
+    /**
+     * @param note An existing string to keep with the record, such as a menu option. Should not be built for tracing.
+     */
+    public void record(Type type, long first, long second, String note) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            writeRecord(type, first, second, note);
+        }
+    }
+
+    private void writeRecord(Type type, long first, long second, String note) {
+        if (ticks == null) {
+            return;
+        }
+        int slot = (int) (written & (CAPACITY - 1));
+        ticks[slot] = tick;
+        types[slot] = (byte) type.ordinal();
+        firstValues[slot] = first;
+        secondValues[slot] = second;
+        notes[slot] = note;
+        written++;
+    }
+
+    /**
+     * Writes the records of the last ticks still held in the buffer to a file in the directory
+     * @param tickCount Number of most recent ticks to write
+     * @return The file written, or null if there is nothing to write
+     */
+    public synchronized File dump(File directory, int tickCount, long currentTimeMillis) throws IOException {
+        if (ticks == null || written == 0) {
+            return null;
+        }
+        long oldest = Math.max(0, written - CAPACITY);
+        long first = written;
+        // Walk back to the first record of the oldest tick wanted
+        int ticksSeen = 0;
+        long lastTick = Long.MIN_VALUE;
+        for (long index = written - 1; index >= oldest; index--) {
+            long recordTick = ticks[(int) (index & (CAPACITY - 1))];
+            if (recordTick != lastTick) {
+                if (ticksSeen == tickCount) {
+                    break;
+                }
+                ticksSeen++;
+                lastTick = recordTick;
+            }
+            first = index;
+        }
+
+        StringBuilder output = new StringBuilder();
+        for (long index = first; index < written; index++) {
+            int slot = (int) (index & (CAPACITY - 1));
+            Type type = TYPES[types[slot]];
+            output.append(ticks[slot]).append(' ').append(type.name)
+                    .append(' ').append(type.firstName).append('=').append(firstValues[slot]);
+            if (!type.secondName.isEmpty()) {
+                output.append(' ').append(type.secondName).append('=').append(secondValues[slot]);
+            }
+            if (notes[slot] != null) {
+                output.append(" \"").append(notes[slot]).append('"');
+            }
+            output.append('\n');
+        }
+
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File file = new File(directory, "tick-trace_" + currentTimeMillis + ".txt");
+        Files.write(file.toPath(), output.toString().getBytes(StandardCharsets.UTF_8));
+        log.debug("Wrote {} trace records to {}", written - first, file);
+        return file;
+    }
+}
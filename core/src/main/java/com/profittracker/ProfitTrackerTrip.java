@@ -0,0 +1,62 @@
+package com.profittracker;
+
+/**
+ * A part of a session marked out by the user, like a single trip to a boss, timed without resetting the session.
+ * Never modified once created, ending a trip creates its completed copy.
+ */
+public class ProfitTrackerTrip {
+    public final long startMillis;
+    // Online ticks of the record when the trip started
+    public final long startTicks;
+    /**
+     * Checkpoint of the record's accumulated item difference when the trip started.
+     * The accumulated difference is replaced rather than modified, so this is shared with the record instead of copied.
+     * Dropped once the trip ends, leaving only what changed during the trip.
+     */
+    public final ProfitTrackerItemCollection startItemDifference;
+    // Profit and realized flip profit of the session when the trip started
+    public final long startProfit;
+    public final long startFlipProfit;
+
+    // Only set once the trip has ended
+    public final long endMillis;
+    public final long endTicks;
+    public final ProfitTrackerItemCollection itemDifference;
+    public final long profit;
+    public final long flipProfit;
+
+    public ProfitTrackerTrip(long startMillis, long startTicks, ProfitTrackerItemCollection startItemDifference, long startProfit, long startFlipProfit) {
+        this(startMillis, startTicks, startItemDifference, startProfit, startFlipProfit, 0, 0, null, 0, 0);
+    }
+
+    private ProfitTrackerTrip(long startMillis, long startTicks, ProfitTrackerItemCollection startItemDifference, long startProfit, long startFlipProfit,
+                              long endMillis, long endTicks, ProfitTrackerItemCollection itemDifference, long profit, long flipProfit) {
+        this.startMillis = startMillis;
+        this.startTicks = startTicks;
+        this.startItemDifference = startItemDifference;
+        this.startProfit = startProfit;
+        this.startFlipProfit = startFlipProfit;
+        this.endMillis = endMillis;
+        this.endTicks = endTicks;
+        this.itemDifference = itemDifference;
+        this.profit = profit;
+        this.flipProfit = flipProfit;
+    }
+
+    /**
+     * Item changes since the trip started, the only collection a completed trip keeps
+     */
+    public ProfitTrackerItemCollection getItemDifference(ProfitTrackerItemCollection itemDifferenceAccumulated) {
+        return ProfitTrackerItemCollections.getItemCollectionDifference(startItemDifference, itemDifferenceAccumulated);
+    }
+
+    /**
+     * @param itemDifference Item changes during the trip
+     * @param profit Value of the item changes during the trip
+     * @param flipProfit Realized flip profit of the session now
+     */
+    public ProfitTrackerTrip end(long endMillis, long endTicks, ProfitTrackerItemCollection itemDifference, long profit, long flipProfit) {
+        return new ProfitTrackerTrip(startMillis, startTicks, null, startProfit, startFlipProfit,
+                endMillis, endTicks, itemDifference, profit, flipProfit - startFlipProfit);
+    }
+}
@@ -0,0 +1,29 @@
+package com.profittracker;
+
+/**
+ * Values collections of items for tracking, including any estimates for untradeable items, which are replaced
+ * by what they can be turned into before valuing. Used from the tick worker, so must only read cached prices.
+ */
+public interface ProfitTrackerValuation {
+    long calculateItemValue(ProfitTrackerItemCollection items);
+
+    /**
+     * Value of a single stack of items, estimating untradeables the same way as for collections
+     */
+    long calculateStackValue(ProfitTrackerItem item);
+
+    /**
+     * Whether the item's value is cached, so it can be valued on the tick worker
+     */
+    boolean isValued(int itemId);
+
+    /**
+     * Difference between two collections, replacing untradeables in each first if they are being estimated
+     */
+    ProfitTrackerItemCollection getItemCollectionDifference(ProfitTrackerItemCollection originalItems, ProfitTrackerItemCollection newItems);
+
+    /**
+     * Starts valuing items at refreshed prices. Called on the tick worker, in order with the ticks valued before them.
+     */
+    void updateUnitValues(ProfitTrackerPriceChanges priceChanges);
+}
@@ -0,0 +1,82 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerContributionsTest {
+    private final Map<Integer, Long> prices = new HashMap<>();
+    private final ToLongFunction<ProfitTrackerItem> itemValue = item -> item.getQuantity() * prices.getOrDefault(item.getId(), 0L);
+
+    @Test
+    public void ranksGainersAndLosers() {
+        prices.put(1, 10L);
+        prices.put(2, 10L);
+        prices.put(3, 100L);
+        ProfitTrackerContributions contributions = new ProfitTrackerContributions();
+        contributions.add(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 5), new ProfitTrackerItem(2, -3), new ProfitTrackerItem(3, 2)), itemValue);
+
+        ProfitTrackerItemContribution[] gainers = contributions.getTopGainers();
+        ProfitTrackerItemContribution[] losers = contributions.getTopLosers();
+
+        assertEquals(2, gainers.length);
+        assertEquals(3, gainers[0].itemId);
+        assertEquals(200, gainers[0].value);
+        assertEquals(1, gainers[1].itemId);
+        assertEquals(1, losers.length);
+        assertEquals(2, losers[0].itemId);
+        assertEquals(-30, losers[0].value);
+    }
+
+    @Test
+    public void itemsBackToNothingAreRemoved() {
+        prices.put(1, 10L);
+        ProfitTrackerContributions contributions = new ProfitTrackerContributions();
+        contributions.add(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 5)), itemValue);
+        contributions.add(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, -5)), itemValue);
+
+        assertEquals(0, contributions.getTopGainers().length);
+        assertEquals(0, contributions.getTopLosers().length);
+    }
+
+    @Test
+    public void revaluingReranksAndRecordsMovement() {
+        prices.put(1, 10L);
+        prices.put(3, 100L);
+        ProfitTrackerContributions contributions = new ProfitTrackerContributions();
+        contributions.add(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 5), new ProfitTrackerItem(3, 2)), itemValue);
+        Map<Integer, Long> movements = new HashMap<>();
+
+        prices.put(1, 100L);
+        long movement = contributions.revalue(new int[]{1}, itemValue, movements);
+
+        assertEquals(450, movement);
+        assertEquals(1, contributions.getTopGainers()[0].itemId);
+        assertEquals(500, contributions.getTopGainers()[0].value);
+        assertEquals(Long.valueOf(450), movements.get(1));
+        assertEquals(1, contributions.getTopMovers(movements)[0].itemId);
+        // Nothing else changed price
+        assertEquals(0, contributions.revalue(null, itemValue, movements));
+    }
+
+    @Test
+    public void onlyTopCountIsKept() {
+        ProfitTrackerContributions contributions = new ProfitTrackerContributions();
+        ProfitTrackerItemCollection.Builder change = new ProfitTrackerItemCollection.Builder();
+        int changed = ProfitTrackerContributions.TOP_COUNT + 5;
+        for (int i = 0; i < changed; i++) {
+            prices.put(i, (long) i + 1);
+            change.add(i, 1);
+        }
+        contributions.add(change.build(), itemValue);
+
+        ProfitTrackerItemContribution[] gainers = contributions.getTopGainers();
+
+        assertEquals(ProfitTrackerContributions.TOP_COUNT, gainers.length);
+        assertEquals(changed, gainers[0].value);
+    }
+}
@@ -0,0 +1,57 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfitTrackerCostBasisTest {
+    @Test
+    public void lossesConsumeOldestLotsFirst() {
+        ProfitTrackerCostBasis costBasis = new ProfitTrackerCostBasis();
+        costBasis.add(1, 2, 10);
+        costBasis.add(1, 2, 20);
+        costBasis.add(1, -3, 50);
+
+        // One left, gained at 20
+        assertEquals(1, costBasis.getQuantity(1));
+        assertEquals(20, costBasis.getProfit());
+    }
+
+    @Test
+    public void lossesBeyondGainsAreShortLots() {
+        ProfitTrackerCostBasis costBasis = new ProfitTrackerCostBasis();
+        costBasis.add(1, -3, 100);
+
+        assertEquals(-3, costBasis.getQuantity(1));
+        assertEquals(-300, costBasis.getProfit());
+    }
+
+    @Test
+    public void gainsCoverShortLotsFirst() {
+        ProfitTrackerCostBasis costBasis = new ProfitTrackerCostBasis();
+        costBasis.add(1, -3, 100);
+        costBasis.add(1, 5, 50);
+
+        // The 3 short are covered, the other 2 are held at 50
+        assertEquals(2, costBasis.getQuantity(1));
+        assertEquals(100, costBasis.getProfit());
+
+        costBasis.add(1, -1, 70);
+
+        assertEquals(1, costBasis.getQuantity(1));
+        assertEquals(50, costBasis.getProfit());
+    }
+
+    @Test
+    public void settledItemsAreForgotten() {
+        ProfitTrackerCostBasis costBasis = new ProfitTrackerCostBasis();
+        costBasis.add(1, 4, 10);
+        costBasis.add(1, -4, 30);
+        costBasis.add(2, -1, 10);
+        costBasis.add(2, 1, 30);
+
+        assertTrue(costBasis.getItemIds().isEmpty());
+        assertEquals(0, costBasis.getProfit());
+    }
+}
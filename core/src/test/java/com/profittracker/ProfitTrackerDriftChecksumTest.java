@@ -0,0 +1,71 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfitTrackerDriftChecksumTest {
+    private static ProfitTrackerRecord createRecord(ProfitTrackerItem... inventory) {
+        ProfitTrackerRecord record = new ProfitTrackerRecord(0, "STANDARD", 0);
+        record.startingPossessions.inventoryItems = ProfitTrackerItemCollection.of(inventory);
+        record.currentPossessions.inventoryItems = record.startingPossessions.inventoryItems;
+        return record;
+    }
+
+    @Test
+    public void matchingChangesStayConsistent() {
+        ProfitTrackerRecord record = createRecord(new ProfitTrackerItem(1, 5));
+        ProfitTrackerDriftChecksum checksum = new ProfitTrackerDriftChecksum(record);
+        ProfitTrackerItemCollection change = ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, -2), new ProfitTrackerItem(2, 1));
+
+        checksum.addCurrent(change);
+        checksum.addAccumulated(change);
+
+        assertTrue(checksum.isConsistent());
+    }
+
+    @Test
+    public void changeMissingFromAccumulatedIsReportedOnce() {
+        ProfitTrackerRecord record = createRecord(new ProfitTrackerItem(1, 5));
+        ProfitTrackerDriftChecksum checksum = new ProfitTrackerDriftChecksum(record);
+        ProfitTrackerItemCollection change = ProfitTrackerItemCollection.of(new ProfitTrackerItem(2, 3));
+
+        record.currentPossessions.inventoryItems = ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 5), new ProfitTrackerItem(2, 3));
+        checksum.addCurrent(change);
+
+        assertFalse(checksum.isConsistent());
+        assertEquals(change, checksum.acceptDrift(record));
+        assertTrue(checksum.isConsistent());
+    }
+
+    @Test
+    public void driftPresentWhenCreatedIsAccepted() {
+        ProfitTrackerRecord record = createRecord(new ProfitTrackerItem(1, 5));
+        record.itemDifferenceAccumulated = ProfitTrackerItemCollection.of(new ProfitTrackerItem(3, 10));
+
+        ProfitTrackerDriftChecksum checksum = new ProfitTrackerDriftChecksum(record);
+
+        assertTrue(checksum.isConsistent());
+    }
+
+    @Test
+    public void adjustmentsAreAccepted() {
+        ProfitTrackerRecord record = createRecord(new ProfitTrackerItem(1, 5));
+        ProfitTrackerDriftChecksum checksum = new ProfitTrackerDriftChecksum(record);
+
+        checksum.addAdjustment(ProfitTrackerItemCollection.of(new ProfitTrackerItem(995, 1000)));
+
+        assertTrue(checksum.isConsistent());
+    }
+
+    @Test
+    public void hashIgnoresOrderAndSplitStacks() {
+        ProfitTrackerItemCollection items = ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 5), new ProfitTrackerItem(2, 1));
+        ProfitTrackerItemCollection rearranged = ProfitTrackerItemCollection.of(new ProfitTrackerItem(2, 1), new ProfitTrackerItem(1, 2), new ProfitTrackerItem(1, 3));
+
+        assertEquals(ProfitTrackerDriftChecksum.hash(items), ProfitTrackerDriftChecksum.hash(rearranged));
+        assertEquals(0, ProfitTrackerDriftChecksum.hash(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 0))));
+    }
+}
@@ -0,0 +1,121 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerFlipLedgerTest {
+    private static final int ITEM_ID = 1;
+    private static final IntUnaryOperator MARKET_PRICE = itemId -> 150;
+
+    @Test
+    public void sellsMatchOldestBuysFirst() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.recordBuy(ITEM_ID, 10, 100, 100);
+        ledger.recordBuy(ITEM_ID, 10, 200, 250);
+        ledger.recordSell(ITEM_ID, 15, 300);
+
+        // 15 sold for 294 each after tax, against 10 bought at 100 and 5 at 200
+        assertEquals(15 * 294 - (10 * 100 + 5 * 200), ledger.getRealizedProfit());
+        assertEquals(15 * 6, ledger.getTaxPaid());
+        // The 5 left were bought at 200 and are marked at 250
+        assertEquals(5 * 50, ledger.getUnrealizedProfit());
+    }
+
+    @Test
+    public void sellingWithoutBuyingOnlyPaysTax() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.recordSell(ITEM_ID, 4, 1000);
+
+        assertEquals(0, ledger.getRealizedProfit());
+        assertEquals(4 * 20, ledger.getTaxPaid());
+    }
+
+    @Test
+    public void taxIsCappedPerItem() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.recordBuy(ITEM_ID, 2, 400000000, 400000000);
+        ledger.recordSell(ITEM_ID, 2, 500000000);
+
+        assertEquals(2 * 5000000, ledger.getTaxPaid());
+        assertEquals(2 * (500000000L - 5000000 - 400000000), ledger.getRealizedProfit());
+    }
+
+    @Test
+    public void firstUpdateOfSlotOnlySetsBaseline() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 5, 500, MARKET_PRICE);
+
+        assertEquals(0, ledger.getUnrealizedProfit());
+
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 8, 800, MARKET_PRICE);
+
+        // Only the 3 bought since the baseline are recorded
+        assertEquals(3 * 50, ledger.getUnrealizedProfit());
+    }
+
+    @Test
+    public void offerSeenAgainAfterLoginOnlyRecordsNewFills() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 0, 0, MARKET_PRICE);
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 5, 500, MARKET_PRICE);
+        // Logged out and back in, the same offer is sent again with more filled
+        ProfitTrackerFlipLedger loaded = ledger.copy();
+        loaded.onOfferChanged(0, false, true, ITEM_ID, 5, 500, MARKET_PRICE);
+        loaded.onOfferChanged(0, false, true, ITEM_ID, 8, 800, MARKET_PRICE);
+
+        assertEquals(8 * 50, loaded.getUnrealizedProfit());
+    }
+
+    @Test
+    public void collectedSlotIsReusedByNewOffer() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 0, 0, MARKET_PRICE);
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 5, 500, MARKET_PRICE);
+        ledger.onOfferChanged(0, true, false, 0, 0, 0, MARKET_PRICE);
+        ledger.onOfferChanged(0, false, false, ITEM_ID, 0, 0, MARKET_PRICE);
+        ledger.onOfferChanged(0, false, false, ITEM_ID, 5, 1000, MARKET_PRICE);
+
+        assertEquals(5 * (200 - 4) - 5 * 100, ledger.getRealizedProfit());
+        assertEquals(0, ledger.getUnrealizedProfit());
+    }
+
+    @Test
+    public void differentOfferInKnownSlotStartsFromNothing() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.onOfferChanged(0, false, true, ITEM_ID, 5, 500, MARKET_PRICE);
+        // Collected while logged out, and a new buy placed in the same slot
+        ledger.onOfferChanged(0, false, true, ITEM_ID + 1, 2, 300, MARKET_PRICE);
+
+        assertEquals(2 * 150 - 300, ledger.getUnrealizedProfit());
+    }
+
+    @Test
+    public void markingToMarketOnlyChangesOpenItems() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.recordBuy(ITEM_ID, 4, 100, 100);
+        ledger.recordBuy(ITEM_ID + 1, 1, 100, 100);
+        ledger.recordSell(ITEM_ID + 1, 1, 100);
+
+        assertArrayEquals(new int[]{ITEM_ID}, ledger.getOpenItemIds());
+
+        ledger.markToMarket(new int[]{ITEM_ID, ITEM_ID + 1}, new int[]{130, 500});
+
+        assertEquals(4 * 30, ledger.getUnrealizedProfit());
+    }
+
+    @Test
+    public void resetKeepsOpenLots() {
+        ProfitTrackerFlipLedger ledger = new ProfitTrackerFlipLedger();
+        ledger.recordBuy(ITEM_ID, 2, 100, 100);
+        ledger.recordSell(ITEM_ID, 1, 200);
+        ledger.reset();
+        ledger.recordSell(ITEM_ID, 1, 200);
+
+        assertEquals(200 - 4 - 100, ledger.getRealizedProfit());
+        assertEquals(4, ledger.getTaxPaid());
+    }
+}
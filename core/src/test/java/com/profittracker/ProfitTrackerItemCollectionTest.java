@@ -0,0 +1,58 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ProfitTrackerItemCollectionTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    public void stacksKeepIdsAndNegativeQuantities() {
+        ProfitTrackerItemCollection items = ProfitTrackerItemCollection.of(
+                new ProfitTrackerItem(Integer.MAX_VALUE, -1), new ProfitTrackerItem(995, Integer.MIN_VALUE));
+
+        assertEquals(2, items.size());
+        assertEquals(Integer.MAX_VALUE, items.getId(0));
+        assertEquals(-1, items.getQuantity(0));
+        assertEquals(995, items.getId(1));
+        assertEquals(Integer.MIN_VALUE, items.getQuantity(1));
+    }
+
+    @Test
+    public void emptySlotsAreDropped() {
+        ProfitTrackerItemCollection items = ProfitTrackerItemCollection.of(
+                new ProfitTrackerItem(-1, 0), new ProfitTrackerItem(1, 0), new ProfitTrackerItem(2, 3));
+
+        assertEquals(ProfitTrackerItemCollection.of(new ProfitTrackerItem(2, 3)), items);
+        assertSame(ProfitTrackerItemCollection.EMPTY, ProfitTrackerItemCollection.of(new ProfitTrackerItem(-1, 0)));
+    }
+
+    @Test
+    public void differenceSumAndGainCombineStacksOfTheSameItem() {
+        ProfitTrackerItemCollection original = ProfitTrackerItemCollection.of(
+                new ProfitTrackerItem(1, 5), new ProfitTrackerItem(2, 2), new ProfitTrackerItem(1, 1));
+        ProfitTrackerItemCollection changed = ProfitTrackerItemCollection.of(
+                new ProfitTrackerItem(2, 2), new ProfitTrackerItem(3, 4), new ProfitTrackerItem(1, 2));
+
+        ProfitTrackerItemCollection difference = ProfitTrackerItemCollections.getItemCollectionDifference(original, changed);
+
+        assertEquals(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, -4), new ProfitTrackerItem(3, 4)), difference);
+        assertEquals(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 2), new ProfitTrackerItem(2, 2), new ProfitTrackerItem(3, 4)),
+                ProfitTrackerItemCollections.getItemCollectionSum(original, difference));
+        assertEquals(ProfitTrackerItemCollection.of(new ProfitTrackerItem(3, 4)), ProfitTrackerItemCollections.getItemCollectionGain(difference));
+    }
+
+    @Test
+    public void readsItemsSavedBeforeCollectionsWerePacked() {
+        ProfitTrackerItemCollection items = gson.fromJson(
+                "[{\"id\":1,\"quantity\":2},{\"id\":-1,\"quantity\":0},{\"id\":3,\"quantity\":-4}]", ProfitTrackerItemCollection.class);
+
+        assertEquals(ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 2), new ProfitTrackerItem(3, -4)), items);
+        assertEquals("[{\"id\":1,\"quantity\":2},{\"id\":3,\"quantity\":-4}]", gson.toJson(items));
+        assertNull(gson.fromJson("null", ProfitTrackerItemCollection.class));
+    }
+}
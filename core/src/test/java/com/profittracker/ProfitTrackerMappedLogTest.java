@@ -0,0 +1,92 @@
+package com.profittracker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfitTrackerMappedLogTest {
+    private static final int RECORD_SIZE = ProfitTrackerMappedLog.FIELDS_OFFSET + 8;
+    private static final int RECORDS_PER_FILE = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rollsOverToNewFilesWhenFull() throws IOException {
+        File directory = folder.getRoot();
+        ProfitTrackerMappedLog log = createLog(directory);
+        append(log, 0, 10);
+
+        assertTrue(new File(directory, "test_2.bin").exists());
+        assertEquals(range(0, 10), scanValues(log, 0));
+    }
+
+    @Test
+    public void scanSkipsRecordsBeforeTime() throws IOException {
+        ProfitTrackerMappedLog log = createLog(folder.getRoot());
+        append(log, 0, 10);
+
+        assertEquals(range(6, 10), scanValues(log, 6000));
+        assertEquals(new ArrayList<Long>(), scanValues(log, 20000));
+    }
+
+    @Test
+    public void reopenedLogAppendsAfterExistingRecords() throws IOException {
+        File directory = folder.getRoot();
+        ProfitTrackerMappedLog log = createLog(directory);
+        append(log, 0, 6);
+        log.close();
+
+        ProfitTrackerMappedLog reopened = createLog(directory);
+        append(reopened, 6, 10);
+
+        assertEquals(range(0, 10), scanValues(reopened, 0));
+    }
+
+    @Test
+    public void closedLogIsNotAppendedTo() throws IOException {
+        ProfitTrackerMappedLog log = createLog(folder.getRoot());
+        append(log, 0, 2);
+        log.close();
+
+        assertEquals(-1, log.append(2, 2000));
+        assertEquals(range(0, 2), scanValues(log, 0));
+    }
+
+    private static ProfitTrackerMappedLog createLog(File directory) {
+        return new ProfitTrackerMappedLog(directory, "test", RECORD_SIZE, RECORDS_PER_FILE);
+    }
+
+    /**
+     * Appends a record for each tick in the range, a second apart, holding the tick as its value
+     */
+    private static void append(ProfitTrackerMappedLog log, int fromTick, int toTick) {
+        for (int tick = fromTick; tick < toTick; tick++) {
+            int position = log.append(tick, tick * 1000L);
+            log.getBuffer().putLong(position + ProfitTrackerMappedLog.FIELDS_OFFSET, tick);
+            log.commit();
+        }
+    }
+
+    private static List<Long> scanValues(ProfitTrackerMappedLog log, long fromMillis) throws IOException {
+        List<Long> values = new ArrayList<>();
+        log.scan(fromMillis, (buffer, position) -> values.add(buffer.getLong(position + ProfitTrackerMappedLog.FIELDS_OFFSET)));
+        return values;
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> values = new ArrayList<>();
+        for (long value = from; value < to; value++) {
+            values.add(value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,104 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ProfitTrackerPossessionsTest {
+    private static final int ITEM_TYPES = 12;
+
+    @Test
+    public void patchedItemsMatchRebuiltItems() {
+        Random random = new Random(7);
+        ProfitTrackerPossessions patched = new ProfitTrackerPossessions();
+        patched.inventoryItems = randomItems(random);
+        patched.bankItems = randomItems(random);
+        patched.grandExchangeItems = randomItems(random);
+        patched.untrackedStorageItems = randomItems(random);
+        patched.getItems();
+
+        for (int change = 0; change < 500; change++) {
+            // Mostly one collection at a time, as each tick replaces, sometimes several
+            int replaced = random.nextInt(5) == 0 ? 2 : 1;
+            for (int i = 0; i < replaced; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        patched.inventoryItems = randomItems(random);
+                        break;
+                    case 1:
+                        patched.bankItems = randomItems(random);
+                        break;
+                    case 2:
+                        patched.grandExchangeItems = randomItems(random);
+                        break;
+                    default:
+                        patched.untrackedStorageItems = randomItems(random);
+                        break;
+                }
+            }
+            ProfitTrackerPossessions rebuilt = new ProfitTrackerPossessions();
+            rebuilt.inventoryItems = patched.inventoryItems;
+            rebuilt.bankItems = patched.bankItems;
+            rebuilt.grandExchangeItems = patched.grandExchangeItems;
+            rebuilt.untrackedStorageItems = patched.untrackedStorageItems;
+
+            assertEquals("After change " + change, toQuantities(rebuilt.getItems()), toQuantities(patched.getItems()));
+        }
+    }
+
+    @Test
+    public void itemsAreKeptUntilReplaced() {
+        ProfitTrackerPossessions possessions = new ProfitTrackerPossessions();
+        possessions.inventoryItems = ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 2));
+        possessions.bankItems = ProfitTrackerItemCollection.of(new ProfitTrackerItem(1, 3));
+
+        ProfitTrackerItemCollection items = possessions.getItems();
+
+        assertSame(items, possessions.getItems());
+        assertSame(items, possessions.copy().getItems());
+    }
+
+    @Test
+    public void emptyStacksAreDropped() {
+        ProfitTrackerPossessions possessions = new ProfitTrackerPossessions();
+        possessions.inventoryItems = ProfitTrackerItemCollection.of(new ProfitTrackerItem(-1, 0), new ProfitTrackerItem(1, 2));
+
+        ProfitTrackerItemCollection items = possessions.getItems();
+
+        assertEquals(1, items.size());
+        assertNotEquals(0, items.getQuantity(0));
+    }
+
+    @Test
+    public void noCollectionsHaveNoItems() {
+        assertNull(new ProfitTrackerPossessions().getItems());
+    }
+
+    private static ProfitTrackerItemCollection randomItems(Random random) {
+        ProfitTrackerItem[] items = new ProfitTrackerItem[random.nextInt(6)];
+        for (int i = 0; i < items.length; i++) {
+            // Includes empty slots and stacks of the same item split across slots
+            items[i] = random.nextInt(5) == 0 ? new ProfitTrackerItem(-1, 0)
+                    : new ProfitTrackerItem(random.nextInt(ITEM_TYPES), 1 + random.nextInt(3));
+        }
+        return ProfitTrackerItemCollection.of(items);
+    }
+
+    private static Map<Integer, Long> toQuantities(ProfitTrackerItemCollection items) {
+        Map<Integer, Long> quantities = new HashMap<>();
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                quantities.merge(items.getId(i), (long) items.getQuantity(i), Long::sum);
+            }
+        }
+        quantities.values().removeIf(quantity -> quantity == 0);
+        return quantities;
+    }
+}
@@ -0,0 +1,40 @@
+package com.profittracker;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerRecordTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logsAppendAgainOnceReopened() throws IOException {
+        ProfitTrackerRecord record = new ProfitTrackerRecord(1, "STANDARD", 0);
+        record.openLogs(folder.getRoot());
+        record.timeSeries.append(1, 1000, 10, 10, 0);
+        record.itemChangeLog.append(1, 1000, ProfitTrackerItemCollection.of(new ProfitTrackerItem(995, 10)));
+
+        // Disabling the plugin closes the logs of the record it keeps, enabling it again reopens them
+        record.closeLogs();
+        record.openLogs(folder.getRoot());
+        record.timeSeries.append(2, 2000, 5, 15, 0);
+        record.itemChangeLog.append(2, 2000, ProfitTrackerItemCollection.of(new ProfitTrackerItem(995, 5)));
+
+        List<Long> cumulativeProfits = new ArrayList<>();
+        record.timeSeries.scan(0, (tick, millis, tickProfit, cumulativeProfit, valueMode) -> cumulativeProfits.add(cumulativeProfit));
+        List<Long> quantities = new ArrayList<>();
+        record.itemChangeLog.scan(0, (tick, millis, itemId, quantity) -> quantities.add(quantity));
+        record.closeLogs();
+
+        assertEquals(Arrays.asList(10L, 15L), cumulativeProfits);
+        assertEquals(Arrays.asList(10L, 5L), quantities);
+    }
+}
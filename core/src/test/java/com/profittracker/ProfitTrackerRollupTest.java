@@ -0,0 +1,61 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfitTrackerRollupTest {
+    @Test
+    public void totalsBucketsInRange() {
+        ProfitTrackerRollup rollup = new ProfitTrackerRollup(1000, 0);
+        rollup.add(500, 10, 1);
+        rollup.add(1500, 20, 2);
+        rollup.add(2500, 30, 3);
+
+        assertArrayEquals(new long[]{60, 6}, rollup.getTotal(0, 3000));
+        // Unaligned start includes its whole bucket, the end is exclusive
+        assertArrayEquals(new long[]{20, 2}, rollup.getTotal(1200, 2000));
+        assertArrayEquals(new long[]{0, 0}, rollup.getTotal(5000, 6000));
+    }
+
+    @Test
+    public void lateDataGoesInNewestBucket() {
+        ProfitTrackerRollup rollup = new ProfitTrackerRollup(1000, 0);
+        rollup.add(2500, 30, 1);
+        rollup.add(1200, 5, 1);
+
+        assertArrayEquals(new long[]{0, 0}, rollup.getTotal(1000, 2000));
+        assertArrayEquals(new long[]{35, 2}, rollup.getTotal(2000, 3000));
+    }
+
+    @Test
+    public void droppingOldestBucketsKeepsLaterTotals() {
+        ProfitTrackerRollup rollup = new ProfitTrackerRollup(1000, 3);
+        rollup.add(500, 10, 1);
+        rollup.add(1500, 20, 1);
+        rollup.add(2500, 30, 1);
+
+        assertTrue(rollup.covers(500));
+
+        rollup.add(3500, 40, 1);
+
+        assertFalse(rollup.covers(500));
+        assertTrue(rollup.covers(1000));
+        assertArrayEquals(new long[]{90, 3}, rollup.getTotal(1000, 4000));
+        assertArrayEquals(new long[]{70, 2}, rollup.getTotal(2000, 4000));
+        // Dropped buckets are no longer counted
+        assertArrayEquals(new long[]{90, 3}, rollup.getTotal(0, 4000));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        ProfitTrackerRollup rollup = new ProfitTrackerRollup(1000, 0);
+        rollup.add(500, 10, 1);
+        ProfitTrackerRollup copy = rollup.copy();
+        rollup.add(600, 5, 1);
+
+        assertArrayEquals(new long[]{10, 1}, copy.getTotal(0, 1000));
+    }
+}
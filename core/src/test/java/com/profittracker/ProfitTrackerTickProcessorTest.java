@@ -0,0 +1,68 @@
+package com.profittracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerTickProcessorTest {
+    private static final int COINS = 995;
+    private static final int UNIT_VALUE = 2;
+
+    private static final ProfitTrackerValuation VALUATION = new ProfitTrackerValuation() {
+        @Override
+        public long calculateItemValue(ProfitTrackerItemCollection items) {
+            long value = 0;
+            for (int i = 0; i < items.size(); i++) {
+                value += (long) items.getQuantity(i) * UNIT_VALUE;
+            }
+            return value;
+        }
+
+        @Override
+        public long calculateStackValue(ProfitTrackerItem item) {
+            return (long) item.getQuantity() * UNIT_VALUE;
+        }
+
+        @Override
+        public boolean isValued(int itemId) {
+            return true;
+        }
+
+        @Override
+        public ProfitTrackerItemCollection getItemCollectionDifference(ProfitTrackerItemCollection originalItems, ProfitTrackerItemCollection newItems) {
+            return ProfitTrackerItemCollections.getItemCollectionDifference(originalItems, newItems);
+        }
+
+        @Override
+        public void updateUnitValues(ProfitTrackerPriceChanges priceChanges) {
+        }
+    };
+
+    @Test
+    public void skippedTickIsAddedToTotalWithoutBeingCountedAsTickProfit() {
+        ProfitTrackerRecord record = new ProfitTrackerRecord(1, "STANDARD", 0);
+        record.updateInventoryItems(coins(100));
+        ProfitTrackerTickProcessor processor = new ProfitTrackerTickProcessor(VALUATION, new ProfitTrackerTracer(), null);
+
+        ProfitTrackerTickResult skipped = processor.process(snapshot(record, 1, coins(110), true));
+        ProfitTrackerTickResult counted = processor.process(snapshot(record, 2, coins(115), false));
+
+        assertEquals(0, skipped.tickProfit);
+        assertEquals(5 * UNIT_VALUE, counted.tickProfit);
+        assertEquals(VALUATION.calculateItemValue(record.itemDifferenceAccumulated), record.profitAccumulated);
+        assertEquals(15 * UNIT_VALUE, record.profitAccumulated);
+    }
+
+    private static ProfitTrackerItemCollection coins(int quantity) {
+        return ProfitTrackerItemCollection.of(new ProfitTrackerItem(COINS, quantity));
+    }
+
+    private static ProfitTrackerTickSnapshot snapshot(ProfitTrackerRecord record, long tick, ProfitTrackerItemCollection inventoryItems, boolean skipProfit) {
+        return new ProfitTrackerTickSnapshot(record, -1, tick, tick * 600, 0, 0, 0,
+                false, null,
+                inventoryItems, null, null,
+                true, false, false, false,
+                skipProfit, false, false, false,
+                false, false, false);
+    }
+}
@@ -0,0 +1,153 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.gameval.ItemID;
+import net.runelite.client.game.ItemManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Synthetic possessions shared by the benchmarks.
+ * Banks are made of unique items, and each tick variant changes a few slots of the bank and inventory,
+ * similar to withdrawing, depositing, and using items while banking.
+ */
+@State(Scope.Thread)
+public class ProfitTrackerBenchmarkState {
+    private static final long SEED = 1337;
+    private static final int TICK_VARIANTS = 64;
+    private static final int INVENTORY_SIZE = 28;
+    private static final int EQUIPMENT_SIZE = 14;
+    private static final int GRAND_EXCHANGE_SIZE = 8;
+    private static final int MAX_ITEM_ID = 30000;
+
+    // Untradeables mixed into banks so their replacement is part of the measurement
+    private static final int[] UNTRADEABLE_ITEM_IDS = {
+            ItemID.MINNOW,
+            ItemID.STAR_DUST,
+            ItemID.MOTHERLODE_NUGGET,
+            ItemID.TZHAAR_TOKEN,
+            ItemID.PRIF_CRYSTAL_SHARD,
+            ItemID.BIRD_EGG_RED,
+            ItemID.MAGIC_IMP_BOX_FULL,
+            ItemID.ABYSSAL_PEARL
+    };
+
+    @Param({"100", "800", "1400"})
+    public int bankSize;
+
+    public ProfitTrackerInventoryValue inventoryValue;
+    public ProfitTrackerItemCollection bank;
+    public ProfitTrackerItemCollection inventory;
+    public ProfitTrackerItemCollection[] bankVariants;
+    public ProfitTrackerItemCollection[] inventoryVariants;
+    public ProfitTrackerItemCollection[] tickDifferences;
+    public ProfitTrackerPossessions possessions;
+    public ProfitTrackerPossessions[] possessionVariants;
+
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+
+        ItemManager itemManager = mock(ItemManager.class);
+        ItemComposition itemComposition = mock(ItemComposition.class);
+        when(itemComposition.getPrice()).thenReturn(100);
+        when(itemManager.getItemPrice(anyInt())).thenAnswer(invocation -> ((Integer) invocation.getArgument(0) * 31) % 100000);
+        when(itemManager.getItemComposition(anyInt())).thenReturn(itemComposition);
+        ProfitTrackerConfig config = mock(ProfitTrackerConfig.class);
+        when(config.valueMode()).thenReturn(ProfitTrackerPriceType.GE);
+        when(config.estimateUntradeables()).thenReturn(true);
+        // Benchmarks value items the way the client thread does, looking up any not cached yet
+        Client client = mock(Client.class);
+        when(client.isClientThread()).thenReturn(true);
+        inventoryValue = new ProfitTrackerInventoryValue(client, itemManager, config);
+
+        Set<Integer> usedIds = new HashSet<>();
+        // Generated slot by slot like the client's containers, then captured the way the client's items are
+        ProfitTrackerItem[] bankSlots = new ProfitTrackerItem[bankSize];
+        for (int slot = 0; slot < bankSize; slot++) {
+            int itemId = slot < UNTRADEABLE_ITEM_IDS.length ? UNTRADEABLE_ITEM_IDS[slot] : uniqueItemId(random, usedIds);
+            usedIds.add(itemId);
+            bankSlots[slot] = new ProfitTrackerItem(itemId, 1 + random.nextInt(10000));
+        }
+        ProfitTrackerItem[] inventorySlots = new ProfitTrackerItem[INVENTORY_SIZE + EQUIPMENT_SIZE];
+        for (int slot = 0; slot < inventorySlots.length; slot++) {
+            inventorySlots[slot] = random.nextInt(4) == 0 ? new ProfitTrackerItem(-1, 0) : new ProfitTrackerItem(bankSlots[random.nextInt(bankSize)].getId(), 1);
+        }
+        bank = ProfitTrackerItemCollection.of(bankSlots);
+        inventory = ProfitTrackerItemCollection.of(inventorySlots);
+
+        possessions = createPossessions(inventory, bank, random);
+        bankVariants = new ProfitTrackerItemCollection[TICK_VARIANTS];
+        inventoryVariants = new ProfitTrackerItemCollection[TICK_VARIANTS];
+        tickDifferences = new ProfitTrackerItemCollection[TICK_VARIANTS];
+        possessionVariants = new ProfitTrackerPossessions[TICK_VARIANTS];
+        for (int variant = 0; variant < TICK_VARIANTS; variant++) {
+            bankVariants[variant] = ProfitTrackerItemCollection.of(churn(bankSlots, 1 + random.nextInt(6), random, usedIds));
+            inventoryVariants[variant] = ProfitTrackerItemCollection.of(churn(inventorySlots, 1 + random.nextInt(4), random, usedIds));
+            tickDifferences[variant] = ProfitTrackerItemCollections.getItemCollectionDifference(bank, bankVariants[variant]);
+            possessionVariants[variant] = createPossessions(inventoryVariants[variant], bankVariants[variant], random);
+        }
+    }
+
+    /**
+     * Returns the index of the next tick variant, cycling through all of them
+     */
+    public int nextTick() {
+        tick = (tick + 1) % TICK_VARIANTS;
+        return tick;
+    }
+
+    private static ProfitTrackerPossessions createPossessions(ProfitTrackerItemCollection inventory, ProfitTrackerItemCollection bank, Random random) {
+        ProfitTrackerPossessions possessions = new ProfitTrackerPossessions();
+        possessions.inventoryItems = inventory;
+        possessions.bankItems = bank;
+        ProfitTrackerItemCollection.Builder grandExchangeItems = new ProfitTrackerItemCollection.Builder(GRAND_EXCHANGE_SIZE);
+        for (int slot = 0; slot < GRAND_EXCHANGE_SIZE; slot++) {
+            grandExchangeItems.add(ItemID.COINS, random.nextInt(1000000));
+        }
+        possessions.grandExchangeItems = grandExchangeItems.build();
+        possessions.untrackedStorageItems = ProfitTrackerItemCollection.EMPTY;
+        return possessions;
+    }
+
+    /**
+     * Copies the items, then changes a few slots by adjusting quantities, emptying them, or filling them with a new item
+     */
+    private static ProfitTrackerItem[] churn(ProfitTrackerItem[] items, int changedSlots, Random random, Set<Integer> usedIds) {
+        ProfitTrackerItem[] result = items.clone();
+        for (int change = 0; change < changedSlots; change++) {
+            int slot = random.nextInt(result.length);
+            int roll = random.nextInt(10);
+            if (roll < 6 && result[slot].getId() != -1) {
+                result[slot] = new ProfitTrackerItem(result[slot].getId(), Math.max(1, result[slot].getQuantity() + random.nextInt(200) - 100));
+            } else if (roll < 8) {
+                result[slot] = new ProfitTrackerItem(-1, 0);
+            } else {
+                result[slot] = new ProfitTrackerItem(uniqueItemId(random, usedIds), 1 + random.nextInt(100));
+            }
+        }
+        return result;
+    }
+
+    private static int uniqueItemId(Random random, Set<Integer> usedIds) {
+        int itemId;
+        do {
+            itemId = 1 + random.nextInt(MAX_ITEM_ID);
+        } while (usedIds.contains(itemId));
+        return itemId;
+    }
+}
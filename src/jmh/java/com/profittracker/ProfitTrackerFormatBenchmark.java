@@ -0,0 +1,30 @@
+package com.profittracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for formatting gold drop text, covering each magnitude of value shown
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ProfitTrackerFormatBenchmark {
+    private static final long[] GOLD_DROP_VALUES = {
+            -120, 999, 4567, -45678, 345678, 2345678, -23456789, 3456789012L
+    };
+
+    private int index;
+
+    @Benchmark
+    public String formatGoldDropText() {
+        index = (index + 1) % GOLD_DROP_VALUES.length;
+        return ProfitTrackerGoldDrops.formatGoldDropText(GOLD_DROP_VALUES[index]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for saving and loading account records with Gson, without touching the disk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ProfitTrackerRecordBenchmark {
+    private final Gson gson = new Gson();
+    private ProfitTrackerRecord record;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp(ProfitTrackerBenchmarkState state) {
+        record = new ProfitTrackerRecord(1, "STANDARD", 1);
+        record.name = "Benchmark";
+        record.ticksOnline = 6000;
+        record.startingPossessions = state.possessions;
+        record.currentPossessions = state.possessionVariants[0];
+        record.itemDifferenceAccumulated = ProfitTrackerItemCollections.getItemCollectionDifference(state.possessions.getItems(), state.possessionVariants[0].getItems());
+        ProfitTrackerItemCollection accumulatedItems = record.itemDifferenceAccumulated;
+        record.lastPossessionChange = !accumulatedItems.isEmpty()
+                ? new ProfitTrackerItemCollection.Builder(1).add(accumulatedItems.getId(0), accumulatedItems.getQuantity(0)).build() : null;
+        json = gson.toJson(record);
+    }
+
+    @Benchmark
+    public String serializeRecord() {
+        return gson.toJson(record);
+    }
+
+    @Benchmark
+    public ProfitTrackerRecord deserializeRecord() {
+        return gson.fromJson(json, ProfitTrackerRecord.class);
+    }
+
+    @Benchmark
+    public ProfitTrackerRecord roundTripRecord() {
+        return gson.fromJson(gson.toJson(record), ProfitTrackerRecord.class);
+    }
+}
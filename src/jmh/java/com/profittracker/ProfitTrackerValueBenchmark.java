@@ -0,0 +1,60 @@
+package com.profittracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the collection and valuation work done each tick by the profit calculation
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProfitTrackerValueBenchmark {
+    @Benchmark
+    public ProfitTrackerItemCollection itemCollectionDifference(ProfitTrackerBenchmarkState state) {
+        return ProfitTrackerItemCollections.getItemCollectionDifference(state.bank, state.bankVariants[state.nextTick()]);
+    }
+
+    @Benchmark
+    public ProfitTrackerItemCollection itemCollectionDifferenceWithUntradeables(ProfitTrackerBenchmarkState state) {
+        return state.inventoryValue.getItemCollectionDifference(state.bank, state.bankVariants[state.nextTick()]);
+    }
+
+    @Benchmark
+    public ProfitTrackerItemCollection itemCollectionSum(ProfitTrackerBenchmarkState state) {
+        return ProfitTrackerItemCollections.getItemCollectionSum(state.bank, state.tickDifferences[state.nextTick()]);
+    }
+
+    @Benchmark
+    public ProfitTrackerItemCollection replaceUntradeables(ProfitTrackerBenchmarkState state) {
+        return state.inventoryValue.replaceUntradeables(state.bankVariants[state.nextTick()]);
+    }
+
+    @Benchmark
+    public long calculateItemValue(ProfitTrackerBenchmarkState state) {
+        return state.inventoryValue.calculateItemValue(state.bankVariants[state.nextTick()]);
+    }
+
+    /**
+     * Replaces only the inventory, so the change is applied to the items already added up
+     */
+    @Benchmark
+    public ProfitTrackerItemCollection possessionsGetItemsOneReplaced(ProfitTrackerBenchmarkState state) {
+        state.possessions.inventoryItems = state.inventoryVariants[state.nextTick()];
+        return state.possessions.getItems();
+    }
+
+    /**
+     * Replaces the inventory and bank, so every collection is added up again
+     */
+    @Benchmark
+    public ProfitTrackerItemCollection possessionsGetItemsAllReplaced(ProfitTrackerBenchmarkState state) {
+        int tick = state.nextTick();
+        state.possessions.inventoryItems = state.inventoryVariants[tick];
+        state.possessions.bankItems = state.bankVariants[tick];
+        return state.possessions.getItems();
+    }
+}
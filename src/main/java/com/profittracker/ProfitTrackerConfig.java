@@ -4,6 +4,7 @@ import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
 
 import java.awt.Color;
 
@@ -39,6 +40,14 @@ public interface ProfitTrackerConfig extends Config
     )
     String CALCULATION_SETTINGS = "Calculation";
 
+    @ConfigSection(
+            name = "Debug",
+            description = "Settings for diagnosing tracking and performance problems.",
+            position =  3,
+            closedByDefault = true
+    )
+    String DEBUG_SETTINGS = "Debug";
+
     @ConfigItem(
             keyName = "goldDrops",
             name = "Show value changes (gold drops)",
@@ -63,6 +72,30 @@ public interface ProfitTrackerConfig extends Config
         return true;
     }
 
+    @ConfigItem(
+            keyName = "showFlipProfit",
+            name = "Show flip profit",
+            description = "Show profit from grand exchange buys matched to later sells, and the current value of unsold buys.",
+            section = VISUAL_SETTINGS,
+            position = 7
+    )
+    default boolean showFlipProfit()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "showItemPanel",
+            name = "Show item panel",
+            description = "Adds a side panel listing the items that made or lost the most value this session.",
+            section = VISUAL_SETTINGS,
+            position = 8
+    )
+    default boolean showItemPanel()
+    {
+        return true;
+    }
+
     @ConfigItem(
             keyName = "rememberProfit",
             name = "Remember profit",
@@ -74,6 +107,17 @@ public interface ProfitTrackerConfig extends Config
         return true;
     }
 
+    @ConfigItem(
+            keyName = "exportFormat",
+            name = "Export format",
+            description = "Format of files written by the Export menu option and ::profit export.",
+            section = BEHAVIOR_SETTINGS
+    )
+    default ProfitTrackerExport.Format exportFormat()
+    {
+        return ProfitTrackerExport.Format.CSV;
+    }
+
     @ConfigItem(
             keyName = "shortDrops",
             name = "Shorten drop numbers",
@@ -134,6 +178,32 @@ public interface ProfitTrackerConfig extends Config
         return ProfitTrackerPriceType.GE;
     }
 
+    @ConfigItem(
+            keyName = "priceSource",
+            name = "Prices",
+            description = "Where prices come from. A snapshot is saved with ::profit prices save, and keeps values fixed"
+                    + " until saved again. Live prices are used if there is no snapshot.",
+            section = CALCULATION_SETTINGS,
+            position = 3
+    )
+    default ProfitTrackerPriceSourceType priceSource()
+    {
+        return ProfitTrackerPriceSourceType.LIVE;
+    }
+
+    @ConfigItem(
+            keyName = "costBasis",
+            name = "Value when gained",
+            description = "Value items at the price they had when gained rather than their current price, losing the oldest first."
+                    + " The profit held items would make at current prices is shown separately.",
+            section = CALCULATION_SETTINGS,
+            position = 4
+    )
+    default boolean costBasis()
+    {
+        return false;
+    }
+
     @ConfigItem(
             keyName = "colorGoldDrops",
             name = "Color drop text",
@@ -169,5 +239,56 @@ public interface ProfitTrackerConfig extends Config
     {
         return Color.RED;
     }
-}
 
+    @ConfigItem(
+            keyName = "recordEvents",
+            name = "Record events",
+            description = "Record the events used to track profit to a trace file in the profit-tracker folder, for replaying later.<br>" +
+                    "Recording starts the next time the plugin starts.",
+            section = DEBUG_SETTINGS,
+            position = 0
+    )
+    default boolean recordEvents()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "showTickStats",
+            name = "Show tick stats",
+            description = "Measure the time and memory used to process each tick, and show them in an overlay.<br>" +
+                    "Right click the overlay to dump the full histograms to the profit-tracker folder.",
+            section = DEBUG_SETTINGS,
+            position = 1
+    )
+    default boolean showTickStats()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "traceTicks",
+            name = "Trace recent ticks",
+            description = "Keep a record of the events and item values seen on recent ticks.<br>" +
+                    "Right click the debug overlay to dump them to the profit-tracker folder when tracking goes wrong.",
+            section = DEBUG_SETTINGS,
+            position = 2
+    )
+    default boolean traceTicks()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "traceDumpTicks",
+            name = "Ticks to dump",
+            description = "Number of most recent ticks written when dumping the trace.",
+            section = DEBUG_SETTINGS,
+            position = 3
+    )
+    @Range(min = 1, max = 1000)
+    default int traceDumpTicks()
+    {
+        return 50;
+    }
+}
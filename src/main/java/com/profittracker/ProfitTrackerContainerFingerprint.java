@@ -0,0 +1,56 @@
+package com.profittracker;
+
+import net.runelite.api.Item;
+
+/**
+ * Order insensitive fingerprint of an item container, using the same additive multiset hash as the drift checksum.
+ * Only the slots that changed since the container was last seen are hashed again, and moving items between slots,
+ * tabs or into placeholders leaves the fingerprint as it was, so rearranging alone isn't seen as a change.
+ */
+public class ProfitTrackerContainerFingerprint {
+    private int[] itemIds = new int[0];
+    private int[] quantities = new int[0];
+    private long fingerprint;
+
+    /**
+     * Updates the fingerprint with the container's current items
+     * @return True if the items in the container changed, rather than only being rearranged
+     */
+    public boolean update(Item[] items) {
+        long previousFingerprint = fingerprint;
+        if (items.length > itemIds.length) {
+            int[] newItemIds = new int[items.length];
+            int[] newQuantities = new int[items.length];
+            System.arraycopy(itemIds, 0, newItemIds, 0, itemIds.length);
+            System.arraycopy(quantities, 0, newQuantities, 0, quantities.length);
+            itemIds = newItemIds;
+            quantities = newQuantities;
+        }
+        for (int slot = 0; slot < itemIds.length; slot++) {
+            // Slots past the end of a shrunk container are emptied
+            int itemId = slot < items.length ? items[slot].getId() : 0;
+            int quantity = slot < items.length ? items[slot].getQuantity() : 0;
+            if (itemId == itemIds[slot] && quantity == quantities[slot]) {
+                continue;
+            }
+            fingerprint -= quantities[slot] * ProfitTrackerDriftChecksum.hashItemId(itemIds[slot]);
+            fingerprint += quantity * ProfitTrackerDriftChecksum.hashItemId(itemId);
+            itemIds[slot] = itemId;
+            quantities[slot] = quantity;
+        }
+        return fingerprint != previousFingerprint;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Forgets the container, so its next items are seen as a change
+     */
+    public void reset() {
+        itemIds = new int[0];
+        quantities = new int[0];
+        fingerprint = 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.MenuAction;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+import javax.inject.Inject;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shows tick processing statistics, as p50 / p99 / max in microseconds for each phase.
+ * Also offers dumping the trace of recent ticks while tracing is enabled.
+ */
+@Slf4j
+public class ProfitTrackerDebugOverlay extends Overlay {
+    private static final String DUMP_MENU_OPTION = "Dump stats";
+    private static final String RESET_MENU_OPTION = "Reset stats";
+    private static final String DUMP_TRACE_MENU_OPTION = "Dump trace";
+
+    private final ProfitTrackerConfig ptConfig;
+    private final ProfitTrackerPlugin ptPlugin;
+    private final ProfitTrackerTickStats tickStats;
+    private final ProfitTrackerTracer tracer;
+    private final PanelComponent panelComponent = new PanelComponent();
+    private String lastDumpFile;
+
+    @Inject
+    private ProfitTrackerDebugOverlay(ProfitTrackerConfig config, ProfitTrackerPlugin trackerPlugin)
+    {
+        setPosition(OverlayPosition.TOP_LEFT);
+        ptConfig = config;
+        ptPlugin = trackerPlugin;
+        tickStats = trackerPlugin.tickStats;
+        tracer = trackerPlugin.tracer;
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, DUMP_MENU_OPTION, "Profit Tracker", menuEntry ->
+        {
+            try {
+                File file = tickStats.dump(ptPlugin.clock.millis());
+                lastDumpFile = file.getName();
+            } catch (IOException e) {
+                log.warn("Unable to dump tick stats", e);
+            }
+        });
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, RESET_MENU_OPTION, "Profit Tracker", menuEntry ->
+                tickStats.reset());
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, DUMP_TRACE_MENU_OPTION, "Profit Tracker", menuEntry ->
+        {
+            try {
+                File file = tracer.dump(ProfitTrackerFiles.RECORD_DIRECTORY, ptConfig.traceDumpTicks(), ptPlugin.clock.millis());
+                if (file != null) {
+                    lastDumpFile = file.getName();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to dump tick trace", e);
+            }
+        });
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics) {
+        panelComponent.getChildren().clear();
+        panelComponent.setPreferredSize(new Dimension(200, 0));
+
+        if (tickStats.isEnabled()) {
+            panelComponent.getChildren().add(TitleComponent.builder()
+                    .text("Tick stats (us)")
+                    .build());
+
+            ProfitTrackerHistogram tickHistogram = tickStats.getTickHistogram();
+            addLine("Ticks", Long.toString(tickHistogram.getCount()));
+            addLine("Total", formatNanos(tickHistogram));
+            for (ProfitTrackerTickStats.Phase phase : ProfitTrackerTickStats.Phase.values()) {
+                addLine(phase.toString(), formatNanos(tickStats.getPhaseHistogram(phase)));
+            }
+
+            ProfitTrackerHistogram allocationHistogram = tickStats.getAllocationHistogram();
+            if (allocationHistogram != null) {
+                addLine("Alloc (KB)", allocationHistogram.getPercentile(0.5) / 1024 + " / "
+                        + allocationHistogram.getPercentile(0.99) / 1024 + " / "
+                        + allocationHistogram.getMax() / 1024);
+            }
+        }
+
+        if (tracer.isEnabled()) {
+            addLine("Tracing", "Right click to dump");
+        }
+
+        if (lastDumpFile != null) {
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left(lastDumpFile)
+                    .leftColor(Color.GRAY)
+                    .build());
+        }
+
+        return panelComponent.render(graphics);
+    }
+
+    private void addLine(String left, String right) {
+        panelComponent.getChildren().add(LineComponent.builder()
+                .left(left)
+                .right(right)
+                .build());
+    }
+
+    private static String formatNanos(ProfitTrackerHistogram histogram) {
+        return histogram.getPercentile(0.5) / 1000 + " / "
+                + histogram.getPercentile(0.99) / 1000 + " / "
+                + histogram.getMax() / 1000;
+    }
+}
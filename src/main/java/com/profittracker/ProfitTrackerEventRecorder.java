@@ -0,0 +1,269 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.GrandExchangeOffer;
+import net.runelite.api.Item;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.profittracker.ProfitTrackerEventTrace.*;
+
+/**
+ * Records the events consumed by the plugin into a binary trace file, so a session can be replayed without a client.
+ * Prices and enum values are recorded as they are looked up, so a replay values items exactly as they were valued live.
+ * Records for a tick are held back until the tick is snapshot, so any prices it looked up are written ahead of it.
+ * Only used on the client thread.
+ */
+@Slf4j
+public class ProfitTrackerEventRecorder {
+    static final File TRACE_DIRECTORY = new File(ProfitTrackerFiles.RECORD_DIRECTORY, "traces");
+
+    private final File file;
+    private final DataOutputStream fileOut;
+    // Records seen since the last processed tick
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+    // Prices and enum values looked up since the last processed tick
+    private final ByteArrayOutputStream lookupBytes = new ByteArrayOutputStream();
+    private final DataOutputStream lookups = new DataOutputStream(lookupBytes);
+
+    private final Map<Integer, Integer> recordedGrandExchangePrices = new HashMap<>();
+    private final Map<Integer, Integer> recordedStorePrices = new HashMap<>();
+    private final Map<Long, Integer> recordedEnumValues = new HashMap<>();
+    private long recordedTicks;
+    private boolean failed;
+
+    private ProfitTrackerEventRecorder(File file) throws IOException {
+        this.file = file;
+        this.fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Creates a new trace file and writes its header
+     */
+    public static ProfitTrackerEventRecorder start(long startMillis, long accountHash, String playerName, String profileType) throws IOException {
+        if (!TRACE_DIRECTORY.exists()) {
+            TRACE_DIRECTORY.mkdirs();
+        }
+        ProfitTrackerEventRecorder recorder = new ProfitTrackerEventRecorder(new File(TRACE_DIRECTORY, "trace_" + startMillis + ".bin"));
+        DataOutputStream out = recorder.fileOut;
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(startMillis);
+        out.writeLong(accountHash);
+        out.writeUTF(playerName != null ? playerName : "");
+        out.writeUTF(profileType != null ? profileType : "");
+        log.debug("Recording events to {}", recorder.file);
+        return recorder;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void recordContainer(boolean state, int containerId, Item[] items) {
+        try {
+            pending.writeByte(CONTAINER | (state ? STATE_FLAG : 0));
+            writeVarLong(pending, containerId);
+            writeVarLong(pending, items.length);
+            for (Item item : items) {
+                writeVarLong(pending, item.getId());
+                writeVarLong(pending, item.getQuantity());
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordVarbit(boolean state, int varbitId, int value) {
+        try {
+            pending.writeByte(VARBIT | (state ? STATE_FLAG : 0));
+            writeVarLong(pending, varbitId);
+            writeVarLong(pending, value);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordWidgetLoaded(int groupId) {
+        try {
+            pending.writeByte(WIDGET_LOADED);
+            writeVarLong(pending, groupId);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordWidgetClosed(int groupId) {
+        try {
+            pending.writeByte(WIDGET_CLOSED);
+            writeVarLong(pending, groupId);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordMenuOptionClicked(String option, String target, int itemId, int id) {
+        try {
+            pending.writeByte(MENU_OPTION_CLICKED);
+            pending.writeUTF(option != null ? option : "");
+            pending.writeUTF(target != null ? target : "");
+            writeVarLong(pending, itemId);
+            writeVarLong(pending, id);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordGrandExchangeOffer(boolean state, int slot, GrandExchangeOffer offer) {
+        try {
+            pending.writeByte(GRAND_EXCHANGE_OFFER | (state ? STATE_FLAG : 0));
+            writeVarLong(pending, slot);
+            writeVarLong(pending, offer.getItemId());
+            writeVarLong(pending, offer.getState().ordinal());
+            writeVarLong(pending, offer.getQuantitySold());
+            writeVarLong(pending, offer.getTotalQuantity());
+            writeVarLong(pending, offer.getPrice());
+            writeVarLong(pending, offer.getSpent());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * @param recordJson The saved record the plugin is about to load for this profile, or null if there is none
+     */
+    public void recordProfileChanged(long accountHash, String recordJson) {
+        try {
+            pending.writeByte(PROFILE_CHANGED);
+            pending.writeLong(accountHash);
+            pending.writeBoolean(recordJson != null);
+            if (recordJson != null) {
+                writeLongUTF(pending, recordJson);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordConfig(boolean state, String key, String value) {
+        try {
+            pending.writeByte(CONFIG | (state ? STATE_FLAG : 0));
+            pending.writeUTF(key);
+            pending.writeUTF(value != null ? value : "");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordGrandExchangePrice(int itemId, int price) {
+        Integer previousPrice = recordedGrandExchangePrices.put(itemId, price);
+        if (previousPrice != null && previousPrice == price) {
+            return;
+        }
+        try {
+            lookups.writeByte(GRAND_EXCHANGE_PRICE);
+            writeVarLong(lookups, itemId);
+            writeVarLong(lookups, price);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordStorePrice(int itemId, int price) {
+        Integer previousPrice = recordedStorePrices.put(itemId, price);
+        if (previousPrice != null && previousPrice == price) {
+            return;
+        }
+        try {
+            lookups.writeByte(STORE_PRICE);
+            writeVarLong(lookups, itemId);
+            writeVarLong(lookups, price);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void recordEnumValue(int enumId, int key, int value) {
+        Integer previousValue = recordedEnumValues.put(((long) enumId << 32) | (key & 0xFFFFFFFFL), value);
+        if (previousValue != null && previousValue == value) {
+            return;
+        }
+        try {
+            lookups.writeByte(ENUM_VALUE);
+            writeVarLong(lookups, enumId);
+            writeVarLong(lookups, key);
+            writeVarLong(lookups, value);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * @return Index of the tick in the trace, to pass to {@link #recordTickResult} once it is processed
+     */
+    public long recordGameTick(long wallTimeMillis) {
+        try {
+            pending.writeByte(GAME_TICK);
+            writeVarLong(pending, wallTimeMillis);
+        } catch (IOException e) {
+            fail(e);
+        }
+        return recordedTicks++;
+    }
+
+    /**
+     * Writes out everything held back for the tick, once it has been snapshot for processing
+     */
+    public void recordTickSnapshot() {
+        try {
+            flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes the profit a tick produced, once its processing is published
+     */
+    public void recordTickResult(long tick, long tickProfit, long totalProfit) {
+        try {
+            fileOut.writeByte(TICK_RESULT);
+            writeVarLong(fileOut, tick);
+            writeVarLong(fileOut, tickProfit);
+            writeVarLong(fileOut, totalProfit);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void close() {
+        try {
+            flush();
+            fileOut.close();
+        } catch (IOException e) {
+            log.warn("Failed to close event trace {}", file, e);
+        }
+    }
+
+    private void flush() throws IOException {
+        lookupBytes.writeTo(fileOut);
+        lookupBytes.reset();
+        pendingBytes.writeTo(fileOut);
+        pendingBytes.reset();
+    }
+
+    private void fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            log.warn("Failed to record event to trace {}", file, e);
+        }
+    }
+}
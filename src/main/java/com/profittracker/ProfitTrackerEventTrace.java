@@ -0,0 +1,210 @@
+package com.profittracker;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary format of recorded event traces, shared by the recorder and the replay harness.
+ * A trace is a header followed by records, each being a type byte and its values.
+ * Integers are written as zigzag encoded variable length values, as most ids and quantities are small.
+ * Records with {@link #STATE_FLAG} set describe state present before recording started, and are not fired as events.
+ */
+public final class ProfitTrackerEventTrace {
+    static final int MAGIC = 0x50545452; // PTTR
+    static final int VERSION = 2;
+
+    static final int STATE_FLAG = 0x80;
+
+    static final int GAME_TICK = 1;
+    static final int CONTAINER = 2;
+    static final int VARBIT = 3;
+    static final int WIDGET_LOADED = 4;
+    static final int WIDGET_CLOSED = 5;
+    static final int MENU_OPTION_CLICKED = 6;
+    static final int GRAND_EXCHANGE_OFFER = 7;
+    static final int GRAND_EXCHANGE_PRICE = 8;
+    static final int STORE_PRICE = 9;
+    static final int ENUM_VALUE = 10;
+    static final int PROFILE_CHANGED = 11;
+    static final int CONFIG = 12;
+    static final int TICK_RESULT = 13;
+
+    private ProfitTrackerEventTrace() {
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    /**
+     * Receives each record of a trace as it is read
+     */
+    interface Visitor {
+        void onGameTick(long wallTimeMillis);
+
+        void onContainer(boolean state, int containerId, int[] itemIds, int[] quantities);
+
+        void onVarbit(boolean state, int varbitId, int value);
+
+        void onWidgetLoaded(int groupId);
+
+        void onWidgetClosed(int groupId);
+
+        void onMenuOptionClicked(String option, String target, int itemId, int id);
+
+        void onGrandExchangeOffer(boolean state, int slot, int itemId, int stateOrdinal, int quantitySold, int totalQuantity, int price, int spent);
+
+        void onGrandExchangePrice(int itemId, int price);
+
+        void onStorePrice(int itemId, int price);
+
+        void onEnumValue(int enumId, int key, int value);
+
+        void onProfileChanged(long accountHash, String recordJson);
+
+        void onConfig(boolean state, String key, String value);
+
+        /**
+         * @param tick Index of the game tick the result is for, counting from 0 at the start of the trace.
+         *             Results can arrive after later ticks, as ticks are processed off the client thread.
+         */
+        void onTickResult(long tick, long tickProfit, long totalProfit);
+    }
+
+    /**
+     * Trace header, describing the account and client at the time recording started
+     */
+    static class Header {
+        long startMillis;
+        long accountHash;
+        String playerName;
+        String profileType;
+    }
+
+    static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a profit tracker trace");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        Header header = new Header();
+        header.startMillis = in.readLong();
+        header.accountHash = in.readLong();
+        header.playerName = in.readUTF();
+        header.profileType = in.readUTF();
+        return header;
+    }
+
+    /**
+     * Reads records until the end of the trace, passing each one to the visitor
+     * @return Number of records read
+     */
+    static long readRecords(DataInputStream in, Visitor visitor) throws IOException {
+        long records = 0;
+        while (true) {
+            int type;
+            try {
+                type = in.readUnsignedByte();
+            } catch (EOFException e) {
+                return records;
+            }
+            boolean state = (type & STATE_FLAG) != 0;
+            switch (type & ~STATE_FLAG) {
+                case GAME_TICK:
+                    visitor.onGameTick(readVarLong(in));
+                    break;
+                case CONTAINER:
+                    int containerId = readVarInt(in);
+                    int size = readVarInt(in);
+                    int[] itemIds = new int[size];
+                    int[] quantities = new int[size];
+                    for (int slot = 0; slot < size; slot++) {
+                        itemIds[slot] = readVarInt(in);
+                        quantities[slot] = readVarInt(in);
+                    }
+                    visitor.onContainer(state, containerId, itemIds, quantities);
+                    break;
+                case VARBIT:
+                    visitor.onVarbit(state, readVarInt(in), readVarInt(in));
+                    break;
+                case WIDGET_LOADED:
+                    visitor.onWidgetLoaded(readVarInt(in));
+                    break;
+                case WIDGET_CLOSED:
+                    visitor.onWidgetClosed(readVarInt(in));
+                    break;
+                case MENU_OPTION_CLICKED:
+                    visitor.onMenuOptionClicked(in.readUTF(), in.readUTF(), readVarInt(in), readVarInt(in));
+                    break;
+                case GRAND_EXCHANGE_OFFER:
+                    visitor.onGrandExchangeOffer(state, readVarInt(in), readVarInt(in), readVarInt(in),
+                            readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in));
+                    break;
+                case GRAND_EXCHANGE_PRICE:
+                    visitor.onGrandExchangePrice(readVarInt(in), readVarInt(in));
+                    break;
+                case STORE_PRICE:
+                    visitor.onStorePrice(readVarInt(in), readVarInt(in));
+                    break;
+                case ENUM_VALUE:
+                    visitor.onEnumValue(readVarInt(in), readVarInt(in), readVarInt(in));
+                    break;
+                case PROFILE_CHANGED:
+                    long accountHash = in.readLong();
+                    String recordJson = in.readBoolean() ? readLongUTF(in) : null;
+                    visitor.onProfileChanged(accountHash, recordJson);
+                    break;
+                case CONFIG:
+                    visitor.onConfig(state, in.readUTF(), in.readUTF());
+                    break;
+                case TICK_RESULT:
+                    visitor.onTickResult(readVarLong(in), readVarLong(in), readVarLong(in));
+                    break;
+                default:
+                    throw new IOException("Unknown trace record type " + type);
+            }
+            records++;
+        }
+    }
+
+    /**
+     * Writes a string that may be longer than {@link DataOutputStream#writeUTF} allows, such as a saved record
+     */
+    static void writeLongUTF(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readLongUTF(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
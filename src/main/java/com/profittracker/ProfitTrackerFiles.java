@@ -0,0 +1,54 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+import net.runelite.api.Client;
+import net.runelite.client.RuneLite;
+import net.runelite.client.config.RuneScapeProfileType;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Where the plugin keeps its files, and how the logged in account's record is found among them
+ */
+public final class ProfitTrackerFiles {
+    public static final File RECORD_DIRECTORY = new File(RuneLite.RUNELITE_DIR, "profit-tracker");
+    public static final File EXPORT_DIRECTORY = new File(RECORD_DIRECTORY, "exports");
+    public static final File PRICE_SNAPSHOT_FILE = new File(RECORD_DIRECTORY, "prices.bin");
+    public static final File PRICE_HISTORY_FILE = new File(RECORD_DIRECTORY, "price_history.bin");
+
+    private ProfitTrackerFiles() {
+    }
+
+    public static String getAccountRecordKey(Client client){
+        return ProfitTrackerRecord.createAccountRecordKey(client.getAccountHash(), RuneScapeProfileType.getCurrent(client).name());
+    }
+
+    static File getAccountRecordFile(Client client){
+        return new File(RECORD_DIRECTORY, getAccountRecordKey(client) + ".json");
+    }
+
+    /**
+     * Reads the current accounts saved record, without parsing it
+     * Returns null if there is no record, or it can't be read
+     */
+    static String readJson(Client client){
+        return readJson(getAccountRecordFile(client));
+    }
+
+    static String readJson(File recordFile){
+        try {
+            return new String(Files.readAllBytes(recordFile.toPath()));
+        } catch(Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads a record from its file, without needing the client, so it can be loaded off the client thread
+     * Returns null if anything fails
+     */
+    public static ProfitTrackerRecord load(File recordFile, Gson gson){
+        return ProfitTrackerRecord.load(readJson(recordFile), gson);
+    }
+}
@@ -82,14 +82,15 @@ public class ProfitTrackerGoldDrops {
     // Specifically needed to ensure visibility for incompatible plugins like "Customize XP Drops"
     private Widget lastDropWidget;
 
+    // Coin sprites are prepared once a session starts rather than with the plugin, so starting it loads no images
+    private final boolean[] preparedCoinSprites = new boolean[COINS_SPRITES.length];
+
     ProfitTrackerGoldDrops(Client client, ItemManager itemManager, ProfitTrackerConfig config)
     {
         this.client = client;
         this.itemManager = itemManager;
         this.config = config;
 
-        prepareCoinSprite();
-
         currentGoldDropValue = 0L;
         doingGoldDrop = false;
     }
@@ -225,49 +226,69 @@ public class ProfitTrackerGoldDrops {
         }
 
         // change skill sprite to coin sprite
-        if (config.iconStyle() == ProfitTrackerIconType.DYNAMIC){
-            for (int spriteIndex = 1; spriteIndex < COINS_SPRITES.length; spriteIndex++){
-                if (Math.abs(goldDropValue) < COINS_SPRITES[spriteIndex]){
-                    dropSpriteWidget.setSpriteId(COINS_SPRITE_ID_START - spriteIndex + 1);
-                    break;
-                } else if (spriteIndex == COINS_SPRITES.length - 1) {
-                    dropSpriteWidget.setSpriteId(COINS_SPRITE_ID_START - spriteIndex);
-                }
+        dropSpriteWidget.setSpriteId(COINS_SPRITE_ID_START - getCoinSpriteIndex(goldDropValue));
+    }
+
+    /**
+     * Index of the coin sprite shown for a gold drop, by its size when dynamic, otherwise the configured style
+     */
+    private int getCoinSpriteIndex(long goldDropValue)
+    {
+        if (config.iconStyle() != ProfitTrackerIconType.DYNAMIC){
+            return config.iconStyle().ordinal() - 1;
+        }
+        for (int spriteIndex = 1; spriteIndex < COINS_SPRITES.length; spriteIndex++){
+            if (Math.abs(goldDropValue) < COINS_SPRITES[spriteIndex]){
+                return spriteIndex - 1;
             }
-        } else {
-            dropSpriteWidget.setSpriteId(COINS_SPRITE_ID_START - config.iconStyle().ordinal() + 1);
         }
+        return COINS_SPRITES.length - 1;
     }
 
-    private void prepareCoinSprite()
+    /**
+     * Prepares the coin sprites drops can show, ahead of the drops so each is loaded by the time it is shown.
+     * Only the configured sprite is prepared for a fixed icon style, otherwise those of every size.
+     */
+    public void prepareCoinSprites()
+    {
+        if (config.iconStyle() != ProfitTrackerIconType.DYNAMIC){
+            prepareCoinSprite(getCoinSpriteIndex(0));
+            return;
+        }
+        for (int spriteIndex = 0; spriteIndex < COINS_SPRITES.length; spriteIndex++){
+            prepareCoinSprite(spriteIndex);
+        }
+    }
+
+    private void prepareCoinSprite(int spriteIndex)
     {
         /*
-        Prepare coin sprites for use in the gold drops.
+        Prepare a coin sprite for use in the gold drops.
         It seems item icons are not available as sprites with id,
         so we convert in this function.
 
         */
+        if (preparedCoinSprites[spriteIndex]){
+            return;
+        }
+        preparedCoinSprites[spriteIndex] = true;
 
-        //Create a sprite for each coin type
-        for (int spriteIndex = 0; spriteIndex < COINS_SPRITES.length; spriteIndex++){
-            AsyncBufferedImage coin_image_raw;
+        AsyncBufferedImage coin_image_raw;
 
-            // get image object by coin item id
-            coin_image_raw = itemManager.getImage(ItemID.COINS, COINS_SPRITES[spriteIndex], false);
+        // get image object by coin item id
+        coin_image_raw = itemManager.getImage(ItemID.COINS, COINS_SPRITES[spriteIndex], false);
 
-            // since getImage returns an AsyncBufferedImage, which is not loaded initially,
-            // we schedule sprite conversion and sprite override for when the image is actually loaded
-            int finalSpriteIndex = spriteIndex;
-            coin_image_raw.onLoaded(() -> {
-                final SpritePixels coin_sprite;
+        // since getImage returns an AsyncBufferedImage, which is not loaded initially,
+        // we schedule sprite conversion and sprite override for when the image is actually loaded
+        coin_image_raw.onLoaded(() -> {
+            final SpritePixels coin_sprite;
 
-                // convert image to sprite
-                coin_sprite = ImageUtil.getImageSpritePixels(coin_image_raw, client);
+            // convert image to sprite
+            coin_sprite = ImageUtil.getImageSpritePixels(coin_image_raw, client);
 
-                // register new coin sprite by overriding a free sprite id
-                client.getSpriteOverrides().put(COINS_SPRITE_ID_START - finalSpriteIndex, coin_sprite);
-            });
-        }
+            // register new coin sprite by overriding a free sprite id
+            client.getSpriteOverrides().put(COINS_SPRITE_ID_START - spriteIndex, coin_sprite);
+        });
     }
 
     public void requestGoldDrop(long amount)
@@ -276,7 +297,13 @@ public class ProfitTrackerGoldDrops {
         We create gold drops by faking a fake xp drop :)
          */
 
-        log.debug(String.format("goldDrop: %d", amount));
+        log.debug("goldDrop: {}", amount);
+
+        ProfitTrackerFlightEvents.GoldDropEvent goldDropEvent = new ProfitTrackerFlightEvents.GoldDropEvent();
+        if (goldDropEvent.isEnabled()) {
+            goldDropEvent.amount = amount;
+            goldDropEvent.commit();
+        }
 
         // save the value and mark an ongoing gold drop
         currentGoldDropValue = amount;
@@ -293,7 +320,7 @@ public class ProfitTrackerGoldDrops {
         client.runScript(XPDROP_DISABLED, XPDROP_SKILL, (int) Math.abs(currentGoldDropValue != 0 ? currentGoldDropValue : 1));
     }
 
-    private String formatGoldDropText(long goldDropValue)
+    static String formatGoldDropText(long goldDropValue)
     {
         // Format gold value to fit in xp drop to avoid being cut off by gold sprite
         // 999
@@ -3,18 +3,19 @@ package com.profittracker;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import net.runelite.client.game.ItemManager;
-import org.apache.commons.lang3.ArrayUtils;
 import net.runelite.api.gameval.ItemID;
 import net.runelite.api.gameval.VarbitID;
 import net.runelite.api.gameval.InventoryID;
 
 import javax.inject.Inject;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Values items with prices from the client, adapting its containers to the tracker's own items
+ */
 @Slf4j
-public class ProfitTrackerInventoryValue {
+public class ProfitTrackerInventoryValue implements ProfitTrackerValuation {
     /*
     Provide functional methods for calculating inventory value
      */
@@ -45,7 +46,7 @@ public class ProfitTrackerInventoryValue {
             VarbitID.RUNE_POUCH_TYPE_4
     };
 
-    private final int[] COLLECTION_BOX_INVENTORY_IDS = {
+    static final int[] COLLECTION_BOX_INVENTORY_IDS = {
             InventoryID.TRADINGPOST_SELL_0,
             InventoryID.TRADINGPOST_SELL_1,
             InventoryID.TRADINGPOST_SELL_2,
@@ -56,14 +57,53 @@ public class ProfitTrackerInventoryValue {
             InventoryID.GE_COLLECT_7
     };
 
-    private static final double GE_TAX = 0.02;
+
+    // Items valued by replaceUntradeables, which may not be in any container when valuation runs
+    private static final int[] UNTRADEABLE_VALUE_ITEM_IDS = {
+            ItemID.COINS,
+            ItemID.RAW_SHARK,
+            ItemID.AMYLASE,
+            ItemID.PIRATEHOOK,
+            ItemID.SOFTCLAY,
+            ItemID.FORESTRY_2H_AXE_HANDLE,
+            ItemID.OAK_LOGS,
+            ItemID._4DOSEDIVINECOMBAT,
+            ItemID._4DOSE2COMBAT,
+            ItemID.ONYX,
+            ItemID.RING_OF_ELEMENTS,
+            ItemID.MERFOLK_TRIDENT,
+            ItemID.BIRD_NEST_EMPTY,
+            ItemID.MAGIC_IMP_BOX,
+            ItemID.FORESTRY_STURDY_HARNESS
+    };
 
     private final ItemManager itemManager;
     private final Client client;
+    private ProfitTrackerPriceSource priceSource;
     @Inject
     private ProfitTrackerConfig config;
     private GrandExchangeOfferData[] offers = new GrandExchangeOfferData[8];
-    private Item[] collectionBoxItems = new Item[0];
+    // Set while events are being recorded, so looked up prices can be replayed. Only written to on the client thread.
+    private ProfitTrackerEventRecorder eventRecorder;
+    // Receives the value of each item as it is calculated, while tracing
+    private ProfitTrackerTracer tracer;
+    private ProfitTrackerItemCollection collectionBoxItems = ProfitTrackerItemCollection.EMPTY;
+    /**
+     * Value of one of each item under the current value mode.
+     * Filled on the client thread, where item compositions can be loaded, so valuation can run on the tick worker.
+     * Replaced when cleared, and only switched to on the tick worker once ticks captured before then are valued.
+     */
+    private volatile Map<Integer, Long> itemValues = new ConcurrentHashMap<>();
+    // Values the tick worker uses, which may be those from before the last clear
+    private volatile Map<Integer, Long> workerItemValues = itemValues;
+    // Runes in the pouch when it was last valued on the client thread, which value it elsewhere
+    private volatile ProfitTrackerItemCollection runePouchItems = ProfitTrackerItemCollection.EMPTY;
+    private boolean untradeableValuesPrimed;
+    private Iterator<Integer> refreshIterator;
+    // Refreshed values not yet handed to the tick worker, which applies them. Only used on the client thread.
+    private final Map<Integer, Long> changedValues = new LinkedHashMap<>();
+    // Counts the times all values were cleared, so values refreshed before then are not applied
+    private volatile long valueGeneration;
 
     /**
      * Data storage for GE offers as the normal object always maintains a reference,
@@ -91,12 +131,28 @@ public class ProfitTrackerInventoryValue {
         this.client = client;
         this.itemManager = itemManager;
         this.config = config;
+        this.priceSource = new ProfitTrackerItemManagerPrices(itemManager);
+    }
+
+    /**
+     * Changes where prices come from. Cached values are kept, so they need clearing afterwards.
+     */
+    public void setPriceSource(ProfitTrackerPriceSource priceSource){
+        this.priceSource = priceSource;
+    }
+
+    public void setEventRecorder(ProfitTrackerEventRecorder eventRecorder){
+        this.eventRecorder = eventRecorder;
+    }
+
+    public void setTracer(ProfitTrackerTracer tracer){
+        this.tracer = tracer;
     }
 
     public void setOffers(GrandExchangeOffer[] offers){
         if (offers == null){
             this.offers = new GrandExchangeOfferData[8];
-            this.collectionBoxItems = new Item[0];
+            this.collectionBoxItems = ProfitTrackerItemCollection.EMPTY;
             return;
         }
         for (int index = 0; index < offers.length; index++){
@@ -105,17 +161,15 @@ public class ProfitTrackerInventoryValue {
         this.collectionBoxItems = getCollectionBoxContents();
     }
 
-    private long calculateItemValue(Item item) {
+    private long calculateItemValue(int itemId, int quantity) {
         /*
         Calculate GE value of single item
          */
 
-        int itemId = item.getId();
-
         if (itemId < -1)
         {
             // unexpected
-            log.debug("Bad item id!" + itemId);
+            log.debug("Bad item id! {}", itemId);
             return 0;
 
         }
@@ -125,37 +179,256 @@ public class ProfitTrackerInventoryValue {
             return 0;
         }
 
-        if (Arrays.stream(RUNE_POUCH_ITEM_IDS).anyMatch(pouchID -> itemId == pouchID))
-        {
-            log.debug(String.format("calculateItemValue itemId = %d (Rune pouch variant)", itemId));
-            return item.getQuantity() * calculateRunePouchValue();
+        // multiply quantity  by GE value
+        long value = quantity * getUnitValue(itemId);
+        if (tracer != null) {
+            tracer.record(ProfitTrackerTracer.Type.ITEM_VALUE, itemId, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value of one of the item, looking it up if it hasn't been primed.
+     * Lookups need the client thread, so elsewhere items that haven't been primed are valued at nothing.
+     */
+    public long getUnitValue(int itemId) {
+        if (isRunePouch(itemId)) {
+            // Worth its contents, which change without the pouch, so never cached
+            return getRunePouchValue();
+        }
+        boolean clientThread = client.isClientThread();
+        Map<Integer, Long> values = clientThread ? itemValues : workerItemValues;
+        Long value = values.get(itemId);
+        if (value == null) {
+            if (!clientThread) {
+                log.warn("Item {} was valued off the client thread before being primed", itemId);
+                return 0;
+            }
+            value = (long) getItemValue(itemId);
+            values.put(itemId, value);
         }
+        return value;
+    }
 
-        log.debug(String.format("calculateItemValue itemId = %d", itemId));
+    @Override
+    public boolean isValued(int itemId) {
+        if (isRunePouch(itemId)) {
+            ProfitTrackerItemCollection runes = runePouchItems;
+            for (int i = 0; i < runes.size(); i++) {
+                if (!workerItemValues.containsKey(runes.getId(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return itemId <= EMPTY_SLOT_ITEMID || workerItemValues.containsKey(itemId);
+    }
 
-        // multiply quantity  by GE value
-        return (long) item.getQuantity() * (getItemValue(itemId));
+    private boolean isRunePouch(int itemId) {
+        return Arrays.stream(RUNE_POUCH_ITEM_IDS).anyMatch(pouchID -> itemId == pouchID);
+    }
+
+    /**
+     * Value of the runes in the pouch. Read from the pouch on the client thread, caching the runes' values,
+     * and from the runes it held when last read elsewhere.
+     */
+    private long getRunePouchValue() {
+        if (client.isClientThread()) {
+            runePouchItems = getRunePouchItems();
+        }
+        ProfitTrackerItemCollection runes = runePouchItems;
+        long value = 0;
+        for (int i = 0; i < runes.size(); i++) {
+            value += runes.getQuantity(i) * getUnitValue(runes.getId(i));
+        }
+        return value;
+    }
+
+    /**
+     * Looks up the value of any items not valued yet. Must be called on the client thread.
+     */
+    public void primeItemValues(ProfitTrackerItemCollection items) {
+        if (!untradeableValuesPrimed) {
+            untradeableValuesPrimed = true;
+            for (int itemId : UNTRADEABLE_VALUE_ITEM_IDS) {
+                getUnitValue(itemId);
+            }
+        }
+        if (items == null) {
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            getUnitValue(items.getId(i));
+        }
+    }
+
+    /**
+     * Looks up the value of the given items not valued yet. Must be called on the client thread.
+     */
+    public void primeItemValues(int[] itemIds) {
+        primeItemValues((ProfitTrackerItemCollection) null);
+        for (int itemId : itemIds) {
+            if (itemId > EMPTY_SLOT_ITEMID) {
+                getUnitValue(itemId);
+            }
+        }
+    }
+
+    /**
+     * Looks up the value of items not valued yet, stopping after the given number of lookups,
+     * so a large collection can be valued over several ticks. Must be called on the client thread.
+     * @return True once every item is valued
+     */
+    public boolean primeItemValues(ProfitTrackerItemCollection items, int maxLookups) {
+        primeItemValues((ProfitTrackerItemCollection) null);
+        if (items == null) {
+            return true;
+        }
+        int lookups = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (!itemValues.containsKey(items.getId(i))) {
+                if (lookups == maxLookups) {
+                    return false;
+                }
+                getUnitValue(items.getId(i));
+                lookups++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the value of some cached items again, so prices stay current without revaluing everything in one tick.
+     * Changed values are kept until taken by {@link #takePriceChanges()}. Must be called on the client thread.
+     */
+    public void refreshItemValues(int count) {
+        for (int i = 0; i < count && !itemValues.isEmpty(); i++) {
+            if (refreshIterator == null || !refreshIterator.hasNext()) {
+                refreshIterator = itemValues.keySet().iterator();
+            }
+            int itemId = refreshIterator.next();
+            long value = getItemValue(itemId);
+            Long currentValue = changedValues.containsKey(itemId) ? changedValues.get(itemId) : itemValues.get(itemId);
+            if (currentValue != null && value != currentValue) {
+                changedValues.put(itemId, value);
+            }
+        }
+    }
+
+    /**
+     * Hands over the values found to have changed since last called, or null if none have.
+     * They are applied by the tick worker, so items keep their old value until ticks captured before are valued.
+     * Must be called on the client thread.
+     */
+    public ProfitTrackerPriceChanges takePriceChanges() {
+        if (changedValues.isEmpty()) {
+            return null;
+        }
+        int[] itemIds = new int[changedValues.size()];
+        long[] unitValues = new long[changedValues.size()];
+        boolean estimatesChanged = false;
+        int index = 0;
+        for (Map.Entry<Integer, Long> entry : changedValues.entrySet()) {
+            int itemId = entry.getKey();
+            itemIds[index] = itemId;
+            unitValues[index] = entry.getValue();
+            estimatesChanged |= Arrays.stream(UNTRADEABLE_VALUE_ITEM_IDS).anyMatch(id -> id == itemId);
+            index++;
+        }
+        changedValues.clear();
+        return new ProfitTrackerPriceChanges(valueGeneration, itemIds, unitValues, estimatesChanged && config.estimateUntradeables());
+    }
+
+    @Override
+    public synchronized void updateUnitValues(ProfitTrackerPriceChanges priceChanges) {
+        if (priceChanges.getGeneration() != valueGeneration) {
+            // Cleared since, values are looked up again as needed
+            return;
+        }
+        int[] itemIds = priceChanges.getItemIds();
+        long[] unitValues = priceChanges.getUnitValues();
+        for (int i = 0; i < itemIds.length; i++) {
+            workerItemValues.put(itemIds[i], unitValues[i]);
+        }
     }
 
     /**
-     * Returns the value of an item, based on the plugin configs value mode. (GE, high alch, shop, etc.)
+     * Forgets all cached values, for when the value mode changes. Items need priming again afterwards.
+     * The tick worker keeps the old values until it runs the returned task, so it should be queued behind the ticks
+     * captured before, which were primed with them. Must be called on the client thread.
+     * @return Task switching the tick worker to the new values
+     */
+    public synchronized Runnable clearItemValues() {
+        Map<Integer, Long> clearedValues = new ConcurrentHashMap<>();
+        itemValues = clearedValues;
+        untradeableValuesPrimed = false;
+        refreshIterator = null;
+        changedValues.clear();
+        valueGeneration++;
+        return () -> workerItemValues = clearedValues;
+    }
+
+    /**
+     * Ids of every item valued since values were last cleared
+     */
+    public int[] getValuedItemIds() {
+        return itemValues.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the value of an item from the price source, based on the plugin configs value mode. (GE, high alch, shop, etc.)
      */
     private int getItemValue(int itemID){
         switch (config.valueMode()){
             case GE_TAXED:
-                return (int) Math.ceil(itemManager.getItemPrice(itemID) * (1 - GE_TAX));
+                return (int) Math.ceil(getGrandExchangePrice(itemID) * (1 - ProfitTrackerFlipLedger.GE_TAX));
             case LOW_ALCH:
-                return (int) (itemManager.getItemComposition(itemID).getPrice() * ProfitTrackerShopValues.COMMON_LOW_ALCH);
+                return getAlchPrice(itemID, false);
             case SHOP_SPECIAL:
-                return (int) (itemManager.getItemComposition(itemID).getPrice() * ProfitTrackerShopValues.SPECIAL_55);
+                return (int) (getStorePrice(itemID) * ProfitTrackerShopValues.SPECIAL_55);
             case HIGH_ALCH:
-                return (int) (itemManager.getItemComposition(itemID).getPrice() * ProfitTrackerShopValues.SPECIAL_60_HIGH_ALCH);
+                return getAlchPrice(itemID, true);
             case SHOP_OVERSTOCK:
-                return (int) (itemManager.getItemComposition(itemID).getPrice() * ProfitTrackerShopValues.MINIMUM_PRICE);
+                return (int) (getStorePrice(itemID) * ProfitTrackerShopValues.MINIMUM_PRICE);
             case GE:
             default:
-                return itemManager.getItemPrice(itemID);
+                return getGrandExchangePrice(itemID);
+        }
+    }
+
+    public int getGrandExchangePrice(int itemID){
+        int price = priceSource.getGrandExchangePrice(itemID);
+        if (eventRecorder != null && client.isClientThread()) {
+            eventRecorder.recordGrandExchangePrice(itemID, price);
+        }
+        return price;
+    }
+
+    private int getStorePrice(int itemID){
+        int price = priceSource.getStorePrice(itemID);
+        if (eventRecorder != null && client.isClientThread()) {
+            eventRecorder.recordStorePrice(itemID, price);
+        }
+        return price;
+    }
+
+    /**
+     * Alchemy value from the price source, which a snapshot keeps as it was when taken
+     */
+    private int getAlchPrice(int itemID, boolean high){
+        if (eventRecorder != null && client.isClientThread()) {
+            // Replays value alchemy from the recorded store price
+            getStorePrice(itemID);
         }
+        return high ? priceSource.getHighAlchPrice(itemID) : priceSource.getLowAlchPrice(itemID);
+    }
+
+    private int getRuneItemId(EnumComposition runePouchEnum, int runeId){
+        int itemID = runePouchEnum.getIntValue(runeId);
+        if (eventRecorder != null && client.isClientThread()) {
+            eventRecorder.recordEnumValue(EnumID.RUNEPOUCH_RUNE, runeId, itemID);
+        }
+        return itemID;
     }
 
     public long calculateContainerValue(int containerID)
@@ -171,21 +444,30 @@ public class ProfitTrackerInventoryValue {
             return 0;
         }
 
-        Item[] items = container.getItems();
-
-        return calculateItemValue(items);
+        return calculateItemValue(toItems(container.getItems()));
     }
 
     /**
      * Calculates the value of an array of items
      */
-    public long calculateItemValue(Item[] items) {
+    @Override
+    public long calculateItemValue(ProfitTrackerItemCollection items) {
         if (config.estimateUntradeables()){
             items = replaceUntradeables(items);
         }
-        return Arrays.stream(items).flatMapToLong(item ->
-                LongStream.of(calculateItemValue(item))
-        ).sum();
+        long value = 0;
+        for (int i = 0; i < items.size(); i++) {
+            value += calculateItemValue(items.getId(i), items.getQuantity(i));
+        }
+        return value;
+    }
+
+    /**
+     * Calculates the value of a single stack of items, estimating untradeables the same way as for collections
+     */
+    @Override
+    public long calculateStackValue(ProfitTrackerItem item) {
+        return calculateItemValue(ProfitTrackerItemCollection.of(item));
     }
 
     public long calculateInventoryValue()
@@ -206,32 +488,6 @@ public class ProfitTrackerInventoryValue {
         return calculateContainerValue(InventoryID.WORN);
     }
 
-    public long calculateRunePouchValue()
-    {
-        long runePouchValue = 0;
-        EnumComposition runePouchEnum = client.getEnum(EnumID.RUNEPOUCH_RUNE);
-
-        for (int i = 0; i < RUNE_POUCH_AMOUNT_VARBITS.length; i++)
-        {
-            runePouchValue += calculateRuneValue(
-                    client.getVarbitValue(RUNE_POUCH_RUNE_VARBITS[i]),
-                    client.getVarbitValue(RUNE_POUCH_AMOUNT_VARBITS[i]),
-                    runePouchEnum
-            );
-        }
-
-        return runePouchValue;
-    }
-
-    public long calculateRuneValue(int runeId, int runeQuantity, EnumComposition runePouchEnum)
-    {
-        if (runeQuantity == 0){
-            return 0;
-        }
-        log.debug(String.format("calculateRuneValue runeId = %d", runeId));
-        return (long)(getItemValue(runePouchEnum.getIntValue(runeId))) * runeQuantity;
-    }
-
     public long calculateInventoryAndEquipmentValue()
     {
         /*
@@ -245,52 +501,46 @@ public class ProfitTrackerInventoryValue {
      * Gets all items on the player, or null if inventory or equipment is null
      * @return Array of items from inventory and equipment containers
      */
-    public Item[] getInventoryAndEquipmentContents(){
+    public ProfitTrackerItemCollection getInventoryAndEquipmentContents(){
         ItemContainer inventoryContainer = client.getItemContainer(InventoryID.INV);
         ItemContainer equipmentContainer = client.getItemContainer(InventoryID.WORN);
-        Item[] inventoryItems = new Item[0];
-        Item[] equipmentItems = new Item[0];
+        ProfitTrackerItemCollection.Builder personItems = new ProfitTrackerItemCollection.Builder();
 
         if (inventoryContainer != null){
-            inventoryItems = inventoryContainer.getItems();
+            addItems(personItems, inventoryContainer.getItems());
         }
         if (equipmentContainer != null){
-            equipmentItems = equipmentContainer.getItems();
+            addItems(personItems, equipmentContainer.getItems());
         }
 
-        Item[] personItems = ArrayUtils.addAll(inventoryItems, equipmentItems);
         // Expand to have runes from pouch as individual items
-        return expandContainers(personItems);
+        return expandContainers(personItems.build());
     }
 
-    public Item[] getBankContents(){
+    public ProfitTrackerItemCollection getBankContents(){
         ItemContainer bankContainer = client.getItemContainer(InventoryID.BANK);
 
         if (bankContainer == null)
         {
             return null;
         }
-        return expandContainers(bankContainer.getItems());
+        return expandContainers(toItems(bankContainer.getItems()));
     }
 
-    public Item[] getGrandExchangeContents(){
-        ArrayList<Item> items = new ArrayList<> ();
-        //Unclear why, but without an intermediate storage for this variable, just doing items.add(new ...) caused improper quantities
-        Item coins;
+    public ProfitTrackerItemCollection getGrandExchangeContents(){
+        ProfitTrackerItemCollection.Builder items = new ProfitTrackerItemCollection.Builder();
         for (GrandExchangeOfferData offer : offers) {
             if (offer == null) {
-                items.add(new Item(-1, 0));
                 continue;
             }
             switch (offer.state) {
                 case BOUGHT:
                 case BUYING:
-                    coins = new Item(ItemID.COINS, offer.price * (offer.totalQuantity - offer.quantitySold)); //Gold left to spend
-                    items.add(coins);
+                    items.add(ItemID.COINS, offer.price * (offer.totalQuantity - offer.quantitySold)); //Gold left to spend
                     break;
                 case SOLD:
                 case SELLING:
-                    items.add(new Item(offer.id, offer.totalQuantity - offer.quantitySold)); //Items left to sell
+                    items.add(offer.id, offer.totalQuantity - offer.quantitySold); //Items left to sell
                     break;
                 case CANCELLED_BUY:
                 case CANCELLED_SELL:
@@ -298,11 +548,10 @@ public class ProfitTrackerInventoryValue {
                     break;
                 case EMPTY:
                 default:
-                    items.add(new Item(-1, 0));
                     break;
             }
         }
-        return ArrayUtils.addAll(items.toArray(new Item[0]), collectionBoxItems);
+        return items.addAll(collectionBoxItems).build();
     }
 
     /**
@@ -310,109 +559,116 @@ public class ProfitTrackerInventoryValue {
      * Can only access this data when the interface is open, avoid calling from something like onGrandExchangeOfferChanged
      * which can happen at any time.
      */
-    private Item[] getCollectionBoxContents(){
-        Item[] items = new Item[0];
+    private ProfitTrackerItemCollection getCollectionBoxContents(){
+        ProfitTrackerItemCollection.Builder items = new ProfitTrackerItemCollection.Builder();
         for (int collectionBoxInventoryId : COLLECTION_BOX_INVENTORY_IDS) {
             ItemContainer collectionBox = client.getItemContainer(collectionBoxInventoryId);
             if (collectionBox != null) {
-                items = ArrayUtils.addAll(items, collectionBox.getItems());
+                addItems(items, collectionBox.getItems());
             }
         }
-        return items;
+        return items.build();
     }
 
-    private Item[] expandContainers(Item[] items){
-        Item[] extraItems = new Item[0];
-        for (int i = 0; i < items.length; i++){
-            final int lambdaId = items[i].getId(); // Compiler complains without this
+    private ProfitTrackerItemCollection expandContainers(ProfitTrackerItemCollection items){
+        for (int i = 0; i < items.size(); i++){
+            final int lambdaId = items.getId(i); // Compiler complains without this
             if (Arrays.stream(RUNE_POUCH_ITEM_IDS).anyMatch(pouchID -> lambdaId == pouchID)){
-                extraItems = ArrayUtils.addAll(extraItems,getRunePouchItems());
-                items[i] = new Item(-1,0); // Get rid of pouch
-                break; //TODO Other containers
+                // Pouch replaced by its runes
+                ProfitTrackerItemCollection.Builder expandedItems = new ProfitTrackerItemCollection.Builder(items.size() + RUNE_POUCH_AMOUNT_VARBITS.length);
+                for (int j = 0; j < items.size(); j++) {
+                    if (j != i) {
+                        expandedItems.add(items.getId(j), items.getQuantity(j));
+                    }
+                }
+                return expandedItems.addAll(getRunePouchItems()).build();
+                //TODO Other containers
             }
         }
-        return ArrayUtils.addAll(items,extraItems);
+        return items;
     }
 
     /**
      * Replaces various untradeable items with items they can be converted into, or coin values of those items
      */
-    public Item[] replaceUntradeables(Item[] items){
-        Item[] extraItems = new Item[0];
-        Item[] resultItems = items.clone();
-        for (int i = 0; i < resultItems.length; i++){
+    public ProfitTrackerItemCollection replaceUntradeables(ProfitTrackerItemCollection items){
+        ProfitTrackerItemCollection.Builder resultItems = new ProfitTrackerItemCollection.Builder(items.size());
+        ProfitTrackerItemCollection.Builder extraItems = new ProfitTrackerItemCollection.Builder();
+        boolean replaced = false;
+        for (int i = 0; i < items.size(); i++){
+            int quantity = items.getQuantity(i);
             boolean replaceItem = true;
-            switch (resultItems[i].getId()){
+            switch (items.getId(i)){
                 case ItemID.MINNOW:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.RAW_SHARK,resultItems[i].getQuantity() / 40));
+                    extraItems.add(ItemID.RAW_SHARK, quantity / 40);
                     break;
                 //Mark of grace for amylase crystals seems to be covered already by the GE value checker
                 case ItemID.VARLAMORE_WYRM_AGILITY_TERMITE:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.AMYLASE,resultItems[i].getQuantity()));
+                    extraItems.add(ItemID.AMYLASE, quantity);
                     break;
                 case ItemID.AGILITYARENA_TICKET: //Old agility arena ticket for pirate's hook
                 case ItemID.AGILITYARENA_VOUCHER: //Brimhaven voucher for pirate's hook
-                    long hookValue = calculateItemValue(new Item(ItemID.PIRATEHOOK, 1));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * hookValue / 800)));
+                    long hookValue = calculateItemValue(ItemID.PIRATEHOOK, 1);
+                    extraItems.add(ItemID.COINS, (int)(quantity * hookValue / 800));
                     break;
                 case ItemID.STAR_DUST:
                 case ItemID.STAR_DUST_25:
                 case ItemID.STAR_DUST_75:
                 case ItemID.STAR_DUST_125:
                 case ItemID.STAR_DUST_175:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.SOFTCLAY,resultItems[i].getQuantity() * 2 / 3));
+                    extraItems.add(ItemID.SOFTCLAY, quantity * 2 / 3);
                     break;
                 case ItemID.MOTHERLODE_NUGGET:
                 case ItemID.MGUILD_MINERALS:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.SOFTCLAY,resultItems[i].getQuantity() * 10));
+                    extraItems.add(ItemID.SOFTCLAY, quantity * 10);
                     break;
                 case ItemID.FORESTRY_CURRENCY: //Anima bark for felling axe handle
-                    long handleValue = calculateItemValue(new Item(ItemID.FORESTRY_2H_AXE_HANDLE, 1)) - calculateItemValue(new Item(ItemID.OAK_LOGS, 500));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * handleValue / 10000)));
+                    long handleValue = calculateItemValue(ItemID.FORESTRY_2H_AXE_HANDLE, 1) - calculateItemValue(ItemID.OAK_LOGS, 500);
+                    extraItems.add(ItemID.COINS, (int)(quantity * handleValue / 10000));
                     break;
                 case ItemID.PRIF_CRYSTAL_SHARD: //Crystal shard high alch
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,resultItems[i].getQuantity() * 6000));
+                    extraItems.add(ItemID.COINS, quantity * 6000);
                     break;
                 case ItemID.PRIF_CRYSTAL_SHARD_CRUSHED:
                     // Profit from making divine super combat, used for crystal shards/dust
-                    long potionProfit = calculateItemValue(new Item(ItemID._4DOSEDIVINECOMBAT, 1)) - calculateItemValue(new Item(ItemID._4DOSE2COMBAT,1));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * potionProfit / 4)));
+                    long potionProfit = calculateItemValue(ItemID._4DOSEDIVINECOMBAT, 1) - calculateItemValue(ItemID._4DOSE2COMBAT, 1);
+                    extraItems.add(ItemID.COINS, (int)(quantity * potionProfit / 4));
                     break;
                 case ItemID.TZHAAR_TOKEN: //Tokkul for onyx
-                    long onyxValue = calculateItemValue(new Item(ItemID.ONYX, 1));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * onyxValue / 300000)));
+                    long onyxValue = calculateItemValue(ItemID.ONYX, 1);
+                    extraItems.add(ItemID.COINS, (int)(quantity * onyxValue / 300000));
                     break;
                 case ItemID.ABYSSAL_PEARL: //Abyssal pearls for ring of the elements
-                    long roteValue = calculateItemValue(new Item(ItemID.RING_OF_ELEMENTS, 1));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * roteValue / 400)));
+                    long roteValue = calculateItemValue(ItemID.RING_OF_ELEMENTS, 1);
+                    extraItems.add(ItemID.COINS, (int)(quantity * roteValue / 400));
                     break;
                 case ItemID.FOSSIL_MERMAID_TEAR: //Mermaid tears for merfolk trident
-                    long tridentValue = calculateItemValue(new Item(ItemID.MERFOLK_TRIDENT, 1));
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * tridentValue / 400)));
+                    long tridentValue = calculateItemValue(ItemID.MERFOLK_TRIDENT, 1);
+                    extraItems.add(ItemID.COINS, (int)(quantity * tridentValue / 400));
                     break;
                 case ItemID.KONAR_KEY: //Brimstone key high alch
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.COINS,(int)(resultItems[i].getQuantity() * 48000)));
+                    extraItems.add(ItemID.COINS, (int)(quantity * 48000));
                     break;
                 case ItemID.BIRD_EGG_BLUE: //Bird eggs can be traded in for seed nests
                 case ItemID.BIRD_EGG_RED:
                 case ItemID.BIRD_EGG_GREEN:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.BIRD_NEST_EMPTY,resultItems[i].getQuantity()));
+                    extraItems.add(ItemID.BIRD_NEST_EMPTY, quantity);
                     break;
                 case ItemID.BIRD_NEST_EGG_BLUE:
                 case ItemID.BIRD_NEST_EGG_RED:
                 case ItemID.BIRD_NEST_EGG_GREEN:
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.BIRD_NEST_EMPTY,resultItems[i].getQuantity() * 2));
+                    extraItems.add(ItemID.BIRD_NEST_EMPTY, quantity * 2);
                     break;
                 case ItemID.MAGIC_IMP_BOX_FULL:
                 case ItemID.MAGIC_IMP_BOX_HALF:
                     //Replace un-tradeable magic imp boxes with regular ones for value check
                     //Otherwise using them and opening the bank would cause confusing small profits
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.MAGIC_IMP_BOX,resultItems[i].getQuantity()));
+                    extraItems.add(ItemID.MAGIC_IMP_BOX, quantity);
                     break;
                 case ItemID.FORESTRY_BASKET_CLOSED:
                 case ItemID.FORESTRY_BASKET_OPEN:
                     //Forestry basket can be dismantled to return log brace at no cost
-                    extraItems = ArrayUtils.add(extraItems,new Item(ItemID.FORESTRY_STURDY_HARNESS,resultItems[i].getQuantity()));
+                    extraItems.add(ItemID.FORESTRY_STURDY_HARNESS, quantity);
                     break;
                 //TODO Seedlings: Have unwatered seedlings turn into the seed + pot, and the watered versions into saplings
                 default:
@@ -420,36 +676,40 @@ public class ProfitTrackerInventoryValue {
                     break;
             }
             if (replaceItem) {
-                resultItems[i] = new Item(-1,0);
+                replaced = true;
+            } else {
+                resultItems.add(items.getId(i), quantity);
             }
         }
-        return ArrayUtils.addAll(resultItems,extraItems);
+        if (!replaced) {
+            return items;
+        }
+        return resultItems.addAll(extraItems.build()).build();
     }
 
-    private Item[] getRunePouchItems(){
-        List<Item> runes = new ArrayList<>();
+    public ProfitTrackerItemCollection getRunePouchItems(){
+        ProfitTrackerItemCollection.Builder runes = new ProfitTrackerItemCollection.Builder(RUNE_POUCH_AMOUNT_VARBITS.length);
         EnumComposition runePouchEnum = client.getEnum(EnumID.RUNEPOUCH_RUNE);
 
         for (int i = 0; i < RUNE_POUCH_AMOUNT_VARBITS.length; i++)
         {
-            int itemID = runePouchEnum.getIntValue(client.getVarbitValue(RUNE_POUCH_RUNE_VARBITS[i]));
-            runes.add(new Item(itemID,client.getVarbitValue(RUNE_POUCH_AMOUNT_VARBITS[i])));
+            int quantity = client.getVarbitValue(RUNE_POUCH_AMOUNT_VARBITS[i]);
+            if (quantity == 0) {
+                continue;
+            }
+            int itemID = getRuneItemId(runePouchEnum, client.getVarbitValue(RUNE_POUCH_RUNE_VARBITS[i]));
+            runes.add(itemID,quantity);
         }
 
-        return runes.toArray(new Item[0]);
+        return runes.build();
     }
 
     /**
-     * Converts the given item array into a map
-     * @return Map of item ID -> QTY
+     * Difference between two collections, estimating untradeables first if enabled
      */
-    private static Map<Integer, Integer> mapItemArray(Item[] items){
-        return Arrays.stream(items)
-                .collect(Collectors.toMap(Item::getId, Item::getQuantity, Integer::sum));
-    }
-
-    public Item[] getItemCollectionDifference(Item[] originalItems, Item[] newItems, boolean replaceUntradeables){
-        if (replaceUntradeables){
+    @Override
+    public ProfitTrackerItemCollection getItemCollectionDifference(ProfitTrackerItemCollection originalItems, ProfitTrackerItemCollection newItems){
+        if (config.estimateUntradeables()){
             //Replace untradeables with their equivalent items.
             //The replaceUntradeables function is inaccurate for very small amounts, so we need to perform it over the source
             //with larger quantities instead of over the result difference between collections which generally is just 1 item.
@@ -457,75 +717,35 @@ public class ProfitTrackerInventoryValue {
             originalItems = replaceUntradeables(originalItems);
             newItems = replaceUntradeables(newItems);
         }
-        return getItemCollectionDifference(originalItems, newItems);
+        return ProfitTrackerItemCollections.getItemCollectionDifference(originalItems, newItems);
     }
 
     /**
-     * Compares the two arrays, returning an array of item differences
-     * For example, dropping a shark would be an array of 1 shark item, with quantity -1
-     * @return Array of items with quantity set to the difference
+     * Converts items of a client container to the tracker's own items, leaving out empty slots and bank placeholders.
+     * This and {@link #addItems} are the only places the client's items are kept from.
      */
-    public static Item[] getItemCollectionDifference(Item[] originalItems, Item[] newItems){
-        Map<Integer, Integer> originalItemList = mapItemArray(originalItems);
-        Map<Integer, Integer> newItemList = mapItemArray(newItems);
-        //Subtract old quantities from new to get difference
-        originalItemList.forEach((id, quantity) -> newItemList.merge(id, -quantity,(a,b)-> {
-            int sum = a + b;
-            //Returning null if merge removes the entry
-            return sum != 0 ? sum : null;
-        }));
-
-        //Convert back to item array
-        List<Item> itemDifference = new ArrayList<>();
-        newItemList.forEach((id, quantity) -> itemDifference.add(new Item(id, quantity)));
-
-        return itemDifference.toArray(new Item[0]);
+    static ProfitTrackerItemCollection toItems(Item[] items){
+        ProfitTrackerItemCollection.Builder builder = new ProfitTrackerItemCollection.Builder(items.length);
+        addItems(builder, items);
+        return builder.build();
     }
 
     /**
-     * Returns an item array which is the sum of two other item arrays, adjusting quantities as needed
-     * Null collections are not added
-     * If both collections are null, returns null
+     * Adds the items of a client container to a collection being built, which leaves out empty slots and bank placeholders
      */
-    public static Item[] getItemCollectionSum(Item[] items1, Item[] items2){
-        if (items1 == null || items2 == null){
-            if (items1 != null) {
-                return items1;
-            }
-            return items2;
+    private static void addItems(ProfitTrackerItemCollection.Builder builder, Item[] items){
+        for (Item item : items) {
+            builder.add(item.getId(), item.getQuantity());
         }
-        Map<Integer, Integer> firstItems = mapItemArray(items1);
-        Map<Integer, Integer> secondItems = mapItemArray(items2);
-        firstItems.forEach((id, quantity) -> secondItems.merge(id, quantity,(a,b)-> {
-            int sum = a + b;
-            //Returning null if merge removes the entry
-            return sum != 0 ? sum : null;
-        }));
-
-        //Convert back to item array
-        List<Item> itemSum = new ArrayList<>();
-        secondItems.forEach((id, quantity) -> itemSum.add(new Item(id, quantity)));
-
-        return itemSum.toArray(new Item[0]);
-    }
-
-    public static Item[] getItemCollectionGain(Item[] itemDifferences){
-        List<Item> itemGain = new ArrayList<>();
-        mapItemArray(itemDifferences).forEach((id, quantity) -> {
-            if (quantity > 0){
-                itemGain.add(new Item(id, quantity));
-            }
-        });
-        return itemGain.toArray(new Item[0]);
     }
 
     /**
-     * Returns a more readable string representation of the given item array. Function purely for debugging purposes.
+     * Returns a more readable string representation of the given item collection. Function purely for debugging purposes.
      */
-    public String printItemCollection(Item[] items){
+    public String printItemCollection(ProfitTrackerItemCollection items){
         StringBuilder outputString = new StringBuilder();
-        for (Item item : items) {
-            outputString.append(itemManager.getItemComposition(item.getId()).getName() + ", " + item.getQuantity() + "\r\n");
+        for (int i = 0; i < items.size(); i++) {
+            outputString.append(itemManager.getItemComposition(items.getId(i)).getName() + ", " + items.getQuantity(i) + "\r\n");
         }
         return outputString.toString();
     }
@@ -0,0 +1,25 @@
+package com.profittracker;
+
+import net.runelite.client.game.ItemManager;
+
+/**
+ * Live prices from the client, with grand exchange prices from the wiki price feed.
+ * Store prices load item compositions, so must be looked up on the client thread.
+ */
+public class ProfitTrackerItemManagerPrices implements ProfitTrackerPriceSource {
+    private final ItemManager itemManager;
+
+    public ProfitTrackerItemManagerPrices(ItemManager itemManager) {
+        this.itemManager = itemManager;
+    }
+
+    @Override
+    public int getGrandExchangePrice(int itemId) {
+        return itemManager.getItemPrice(itemId);
+    }
+
+    @Override
+    public int getStorePrice(int itemId) {
+        return itemManager.getItemComposition(itemId).getPrice();
+    }
+}
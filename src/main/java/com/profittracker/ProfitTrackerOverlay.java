@@ -2,6 +2,7 @@ package com.profittracker;
 import net.runelite.api.Client;
 import net.runelite.api.MenuAction;
 import net.runelite.client.callback.ClientThread;
+import net.runelite.client.game.ItemManager;
 import net.runelite.client.ui.overlay.Overlay;
 import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.components.LineComponent;
@@ -23,11 +24,28 @@ import java.util.Collections;
  */
 public class ProfitTrackerOverlay extends Overlay {
     private long profitValue;
+    private long flipProfitValue;
+    private long flipUnrealizedValue;
+    // Part of the profit from prices changing, shown only once prices have changed.
+    // When valuing at acquisition prices, the change in value of held items instead
+    private long marketMovementValue;
     private long startTimeMillies;
     private long activeTicks;
     private long lastTickMillies;
     private boolean inProfitTrackSession;
     private boolean hasBankData;
+    // Set while the account's record is loaded in the background, before tracking starts
+    private boolean loadingRecord;
+    // Shown in place of the bank warning when tracked items go out of sync
+    private String driftWarning;
+    // Trip being timed, and the last one completed, or null
+    private ProfitTrackerTrip currentTrip;
+    private ProfitTrackerTrip lastTrip;
+    private int completedTrips;
+    // Items that made or lost the most this session, and the tooltip listing them, built when first hovered
+    private ProfitTrackerItemContribution[] topGainers = new ProfitTrackerItemContribution[0];
+    private ProfitTrackerItemContribution[] topLosers = new ProfitTrackerItemContribution[0];
+    private String contributionsTooltip;
     private String lastTimeDisplay;
     private long lastProfitValue;
     private int lastWidth;
@@ -38,7 +56,12 @@ public class ProfitTrackerOverlay extends Overlay {
 
     private static final String RESET_MENU_OPTION = "Reset";
     private static final String ADJUST_MENU_OPTION = "Adjust";
-    private static final int MILLISECONDS_PER_TICK = 600;
+    private static final String START_TRIP_MENU_OPTION = "Start trip";
+    private static final String END_TRIP_MENU_OPTION = "End trip";
+    private static final String EXPORT_MENU_OPTION = "Export";
+    static final int MILLISECONDS_PER_TICK = 600;
+    // Gainers and losers each listed in the tooltip
+    private static final int TOOLTIP_CONTRIBUTIONS = 5;
 
     public static String FormatIntegerWithCommas(long value) {
         DecimalFormat df = new DecimalFormat("###,###,###");
@@ -47,6 +70,8 @@ public class ProfitTrackerOverlay extends Overlay {
     @Inject
     private TooltipManager tooltipManager;
     @Inject
+    private ItemManager itemManager;
+    @Inject
     private Client client;
     @Inject
     private ClientThread clientThread;
@@ -64,13 +89,25 @@ public class ProfitTrackerOverlay extends Overlay {
         ptPlugin = trackerPlugin;
         this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, RESET_MENU_OPTION, "Profit Tracker", menuEntry ->
                 {
-                    ptPlugin.resetSession(false);
+                    clientThread.invoke(() -> ptPlugin.resetSession(false));
                     profitValue = 0;
                 });
         this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, ADJUST_MENU_OPTION, "Profit Tracker", menuEntry ->
         {
             clientThread.invoke(ptPlugin::adjustProfit);
         });
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, START_TRIP_MENU_OPTION, "Profit Tracker", menuEntry ->
+        {
+            clientThread.invoke(() -> ptPlugin.splitTrip(true));
+        });
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, END_TRIP_MENU_OPTION, "Profit Tracker", menuEntry ->
+        {
+            clientThread.invoke(() -> ptPlugin.splitTrip(false));
+        });
+        this.addMenuEntry(MenuAction.RUNELITE_OVERLAY, EXPORT_MENU_OPTION, "Profit Tracker", menuEntry ->
+        {
+            clientThread.invoke(() -> ptPlugin.exportSession(ptConfig.exportFormat()));
+        });
 
 
     }
@@ -122,10 +159,17 @@ public class ProfitTrackerOverlay extends Overlay {
         // Build overlay title
         panelComponent.getChildren().add(TitleComponent.builder()
                 .text(titleText)
-                .color(hasBankData ? Color.GREEN : Color.YELLOW)
+                .color(driftWarning != null ? Color.ORANGE : hasBankData ? Color.GREEN : Color.YELLOW)
                 .build());
 
-        if (!inProfitTrackSession)
+        if (loadingRecord)
+        {
+            panelComponent.getChildren().add(TitleComponent.builder()
+                    .text("Loading")
+                    .color(Color.YELLOW)
+                    .build());
+        }
+        else if (!inProfitTrackSession)
         {
             // not in session
             // this should not happen if in game, but we can have it just in case
@@ -135,15 +179,29 @@ public class ProfitTrackerOverlay extends Overlay {
                     .build());
         }
 
-        // Show tooltip warning on mouse hover if user hasn't opened bank yet
+        // Show top items on mouse hover, after a warning if items went out of sync, or user hasn't opened bank yet
         Point mousePoint = new Point(client.getMouseCanvasPosition().getX(),client.getMouseCanvasPosition().getY());
-        if(this.getBounds().contains(mousePoint) && ! hasBankData)
+        if(this.getBounds().contains(mousePoint))
         {
-            String tooltipString =
-                    "Open bank first to ensure accurate tracking.</br>" +
-                    "Otherwise, GE offer interaction or emptying containers from deposit boxes may be incorrect.";
-
-            tooltipManager.add(new Tooltip(tooltipString));
+            String tooltipString = getContributionsTooltip();
+            String warning = null;
+            if (driftWarning != null)
+            {
+                warning = driftWarning;
+            }
+            else if (! hasBankData)
+            {
+                warning = "Open bank first to ensure accurate tracking.</br>" +
+                        "Otherwise, GE offer interaction or emptying containers from deposit boxes may be incorrect.";
+            }
+            if (warning != null)
+            {
+                tooltipString = tooltipString.isEmpty() ? warning : warning + "</br></br>" + tooltipString;
+            }
+            if (! tooltipString.isEmpty())
+            {
+                tooltipManager.add(new Tooltip(tooltipString));
+            }
         }
 
         String formattedProfit = String.format("%,d",profitValue);
@@ -151,8 +209,28 @@ public class ProfitTrackerOverlay extends Overlay {
         int titleWidth = graphics.getFontMetrics().stringWidth(titleText) + 40;
         int profitWidth = graphics.getFontMetrics().stringWidth("Profit:    " + formattedProfit);
         int rateWidth = graphics.getFontMetrics().stringWidth("Rate:    " + formattedRate);
+
+        // Trip profit is taken from the session's, so is valued at the prices it was last revalued at until the trip ends
+        String formattedTripProfit = null;
+        String formattedTripRate = null;
+        String tripTimeText = null;
+        int tripWidth = 0;
+        if (currentTrip != null)
+        {
+            long tripMillisecondsElapsed = getTripMillisecondsElapsed(currentTrip);
+            long tripProfit = profitValue - currentTrip.startProfit;
+            tripTimeText = formatTimeIntervalFromMs(tripMillisecondsElapsed, false);
+            formattedTripProfit = String.format("%,d", tripProfit);
+            formattedTripRate = String.format("%,d", calculateProfitHourly(tripMillisecondsElapsed, tripProfit)) + "K/H";
+            tripWidth = graphics.getFontMetrics().stringWidth("Trip profit:    " + formattedTripProfit);
+        }
+        else if (lastTrip != null)
+        {
+            formattedTripProfit = String.format("%,d", lastTrip.profit);
+            tripWidth = graphics.getFontMetrics().stringWidth("Last trip:    " + formattedTripProfit);
+        }
         // Only allow width to grow, to avoid jitters at high values
-        lastWidth = Collections.max(Arrays.asList(lastWidth, titleWidth, profitWidth, rateWidth));
+        lastWidth = Collections.max(Arrays.asList(lastWidth, titleWidth, profitWidth, rateWidth, tripWidth));
 
         // Set the size of the overlay (width)
         panelComponent.setPreferredSize(new Dimension(
@@ -177,6 +255,52 @@ public class ProfitTrackerOverlay extends Overlay {
                 .right(formattedRate)
                 .build());
 
+        if (marketMovementValue != 0)
+        {
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left(ptConfig.costBasis() ? "Held:" : "Market:")
+                    .right(String.format("%,d", marketMovementValue))
+                    .build());
+        }
+
+        if (currentTrip != null)
+        {
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Trip " + (completedTrips + 1) + ":")
+                    .right(tripTimeText)
+                    .build());
+
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Trip profit:")
+                    .right(formattedTripProfit)
+                    .build());
+
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Trip rate:")
+                    .right(formattedTripRate)
+                    .build());
+        }
+        else if (lastTrip != null)
+        {
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Last trip:")
+                    .right(formattedTripProfit)
+                    .build());
+        }
+
+        if (ptConfig.showFlipProfit())
+        {
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Flips:")
+                    .right(String.format("%,d", flipProfitValue))
+                    .build());
+
+            panelComponent.getChildren().add(LineComponent.builder()
+                    .left("Unrealized:")
+                    .right(String.format("%,d", flipUnrealizedValue))
+                    .build());
+        }
+
         return panelComponent.render(graphics);
     }
 
@@ -194,6 +318,24 @@ public class ProfitTrackerOverlay extends Overlay {
         );
     }
 
+    /**
+     * Updates the part of the profit from price changes
+     */
+    public void updateMarketMovement(final long newValue) {
+        SwingUtilities.invokeLater(() -> marketMovementValue = newValue);
+    }
+
+    /**
+     * Updates grand exchange flip values display
+     */
+    public void updateFlipProfit(final long realizedValue, final long unrealizedValue) {
+        SwingUtilities.invokeLater(() ->
+                {
+                    flipProfitValue = realizedValue;
+                    flipUnrealizedValue = unrealizedValue;
+                }
+        );
+    }
 
     /**
      * Updates startTimeMillies display
@@ -226,6 +368,13 @@ public class ProfitTrackerOverlay extends Overlay {
         );
     }
 
+    public void updateLoading(final boolean loading)
+    {
+        SwingUtilities.invokeLater(() ->
+                loadingRecord = loading
+        );
+    }
+
     public void updateBankStatus(ProfitTrackerRecord accountRecord)
     {
         SwingUtilities.invokeLater(() ->
@@ -233,7 +382,89 @@ public class ProfitTrackerOverlay extends Overlay {
         );
     }
 
-    private static String formatTimeIntervalFromMs(final long totalMsElapsed, boolean showMilliseconds)
+    /**
+     * Updates the items that made or lost the most, which are only described once the tooltip is shown
+     */
+    public void updateContributions(final ProfitTrackerItemContribution[] gainers, final ProfitTrackerItemContribution[] losers)
+    {
+        SwingUtilities.invokeLater(() ->
+                {
+                    topGainers = gainers;
+                    topLosers = losers;
+                    contributionsTooltip = null;
+                }
+        );
+    }
+
+    private String getContributionsTooltip()
+    {
+        if (contributionsTooltip == null)
+        {
+            StringBuilder tooltip = new StringBuilder();
+            for (ProfitTrackerItemContribution[] contributions : new ProfitTrackerItemContribution[][] {topGainers, topLosers})
+            {
+                for (int i = 0; i < contributions.length && i < TOOLTIP_CONTRIBUTIONS; i++)
+                {
+                    if (tooltip.length() > 0)
+                    {
+                        tooltip.append("</br>");
+                    }
+                    tooltip.append(formatContribution(contributions[i], itemManager.getItemComposition(contributions[i].itemId).getName()));
+                }
+            }
+            contributionsTooltip = tooltip.toString();
+        }
+        return contributionsTooltip;
+    }
+
+    /**
+     * Formats a contribution like "+4.2M Zulrah's scales"
+     */
+    static String formatContribution(ProfitTrackerItemContribution contribution, String itemName)
+    {
+        return (contribution.value > 0 ? "+" : "") + ProfitTrackerGoldDrops.formatGoldDropText(contribution.value) + " " + itemName;
+    }
+
+    /**
+     * Updates the trip display
+     * @param trip Trip being timed, or null
+     * @param completedTrip Last completed trip, or null
+     * @param completedTripCount Number of trips completed this session
+     */
+    public void updateTrips(final ProfitTrackerTrip trip, final ProfitTrackerTrip completedTrip, final int completedTripCount)
+    {
+        SwingUtilities.invokeLater(() ->
+                {
+                    currentTrip = trip;
+                    lastTrip = completedTrip;
+                    completedTrips = completedTripCount;
+                }
+        );
+    }
+
+    private long getTripMillisecondsElapsed(ProfitTrackerTrip trip)
+    {
+        if (ptConfig.onlineOnlyRate()) {
+            long millisecondsElapsed = Math.max(0, activeTicks - trip.startTicks) * MILLISECONDS_PER_TICK;
+            if (lastTickMillies != 0 && inProfitTrackSession) {
+                millisecondsElapsed += System.currentTimeMillis() - lastTickMillies;
+            }
+            return millisecondsElapsed;
+        }
+        return System.currentTimeMillis() - trip.startMillis;
+    }
+
+    /**
+     * @param warning Description of the items out of sync, or null once tracking is back in sync
+     */
+    public void updateDriftWarning(final String warning)
+    {
+        SwingUtilities.invokeLater(() ->
+                driftWarning = warning
+        );
+    }
+
+    static String formatTimeIntervalFromMs(final long totalMsElapsed, boolean showMilliseconds)
     {
         /*
         elapsed seconds to format HH:MM:SS
@@ -0,0 +1,84 @@
+package com.profittracker;
+
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.FontManager;
+import net.runelite.client.ui.PluginPanel;
+
+import javax.swing.BoxLayout;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.border.EmptyBorder;
+import java.awt.Color;
+import java.awt.GridLayout;
+import java.util.List;
+
+/**
+ * Side panel listing the items that made or lost the most value this session, and those that moved most in price.
+ * Only kept up to date while it is open.
+ */
+public class ProfitTrackerPanel extends PluginPanel {
+    private final ProfitTrackerPlugin plugin;
+    private final JPanel gainersPanel = new JPanel(new GridLayout(0, 1, 0, 2));
+    private final JPanel losersPanel = new JPanel(new GridLayout(0, 1, 0, 2));
+    private final JPanel moversPanel = new JPanel(new GridLayout(0, 1, 0, 2));
+    private volatile boolean active;
+
+    ProfitTrackerPanel(ProfitTrackerPlugin plugin) {
+        this.plugin = plugin;
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        add(createTitle("Top gainers"));
+        add(gainersPanel);
+        add(createTitle("Top losers"));
+        add(losersPanel);
+        add(createTitle("Market movers"));
+        add(moversPanel);
+    }
+
+    private static JLabel createTitle(String text) {
+        JLabel title = new JLabel(text);
+        title.setFont(FontManager.getRunescapeBoldFont());
+        title.setBorder(new EmptyBorder(8, 0, 4, 0));
+        return title;
+    }
+
+    @Override
+    public void onActivate() {
+        active = true;
+        plugin.updateContributionsPanel();
+    }
+
+    @Override
+    public void onDeactivate() {
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Replaces the listed items. Must be called on the event dispatch thread.
+     */
+    void setContributions(List<String> gainers, List<String> losers, List<String> movers) {
+        setRows(gainersPanel, gainers, ColorScheme.PROGRESS_COMPLETE_COLOR);
+        setRows(losersPanel, losers, ColorScheme.PROGRESS_ERROR_COLOR);
+        setRows(moversPanel, movers, ColorScheme.BRAND_ORANGE);
+        revalidate();
+        repaint();
+    }
+
+    private static void setRows(JPanel panel, List<String> rows, Color color) {
+        panel.removeAll();
+        if (rows.isEmpty()) {
+            JLabel label = new JLabel("None yet");
+            label.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
+            panel.add(label);
+        }
+        for (String row : rows) {
+            JLabel label = new JLabel(row);
+            label.setFont(FontManager.getRunescapeSmallFont());
+            label.setForeground(color);
+            panel.add(label);
+        }
+    }
+}
@@ -8,12 +8,17 @@ import net.runelite.api.*;
 
 import net.runelite.api.events.*;
 
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
 import net.runelite.api.gameval.InterfaceID;
 import net.runelite.api.gameval.InventoryID;
 import net.runelite.api.gameval.ItemID;
 import net.runelite.api.gameval.VarbitID;
 import net.runelite.client.callback.ClientThread;
+import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.config.RuneScapeProfileType;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ClientShutdown;
 import net.runelite.client.events.ConfigChanged;
@@ -23,10 +28,40 @@ import net.runelite.client.game.chatbox.ChatboxPanelManager;
 import net.runelite.client.game.chatbox.ChatboxTextInput;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.ui.overlay.OverlayManager;
+import net.runelite.client.util.ImageUtil;
 import net.runelite.api.events.VarbitChanged;
 
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,12 +75,49 @@ public class ProfitTrackerPlugin extends Plugin
 {
     ProfitTrackerGoldDrops goldDropsObject;
     ProfitTrackerInventoryValue inventoryValueObject;
+    // Source of wall time for sessions and records, replaced when replaying recorded events
+    Clock clock = Clock.systemUTC();
+    // Set while events are recorded for replay
+    private ProfitTrackerEventRecorder eventRecorder;
+    // Timings of tick processing, only measured while the debug overlay is shown
+    final ProfitTrackerTickStats tickStats = new ProfitTrackerTickStats();
+    // Records of recent ticks, only kept while tracing is enabled
+    final ProfitTrackerTracer tracer = new ProfitTrackerTracer();
 
     // the profit will be calculated against this value
     private long prevInventoryValue;
-    // Holds session data for the current account
+    // Holds session data for the current account, only modified by the tick worker once in use
     private ProfitTrackerRecord accountRecord;
+    // Latest copy of the account record published by the tick worker, for reading on the client thread
+    private ProfitTrackerRecord recordView;
+    // Out of sync items last shown in the overlay
+    private ProfitTrackerItemCollection reportedDriftItems;
+    // Trips last shown in the overlay
+    private ProfitTrackerTrip shownTrip;
+    private ProfitTrackerTrip[] shownCompletedTrips;
+    // Top items last shown in the overlay and side panel
+    private ProfitTrackerItemContribution[] shownGainers = new ProfitTrackerItemContribution[0];
+    private ProfitTrackerItemContribution[] shownLosers = new ProfitTrackerItemContribution[0];
+    private ProfitTrackerItemContribution[] shownMarketMovers = new ProfitTrackerItemContribution[0];
+    private long shownMarketMovement;
+    private long shownFlipProfit;
+    private long shownUnrealizedFlipProfit;
+
+    // Activity keys of the last npc interacted with, and of a storage interface while one is open
+    private int npcActivity = ProfitTrackerAttribution.NO_ACTIVITY;
+    private int interfaceActivity = ProfitTrackerAttribution.NO_ACTIVITY;
+    // Region and activity of the latest ticks, counted here and added to the record once either changes
+    private int attributedRegion = ProfitTrackerAttribution.UNKNOWN_REGION;
+    private int attributedActivity = ProfitTrackerAttribution.NO_ACTIVITY;
+    private long attributedTicks;
+    // Minute of the latest ticks, counted ticks are also added each minute so history rollups stay current
+    private long attributedMinute;
+
+    private ProfitTrackerPanel panel;
+    private NavigationButton navigationButton;
     private String previousAccount;
+    // Account whose record is being loaded in the background, or null if none is
+    private String loadingAccount;
     // Collection of items that was last used to calculate value, includes inventory and equipment
     private long totalProfit;
 
@@ -74,6 +146,41 @@ public class ProfitTrackerPlugin extends Plugin
     private int closingWidgetId;
     // Tracks when an event causes an item to be stored to an untracked location, like using an item on a tackle box
     private boolean depositingUntrackedItem;
+    // Whether the values of the bank's items have been looked up since the bank was last seen
+    private boolean bankValuesPrimed;
+    // Contents of each tracked container last seen, so events that only rearrange items are ignored
+    private final ProfitTrackerContainerFingerprint inventoryFingerprint = new ProfitTrackerContainerFingerprint();
+    private final ProfitTrackerContainerFingerprint equipmentFingerprint = new ProfitTrackerContainerFingerprint();
+    private final ProfitTrackerContainerFingerprint bankFingerprint = new ProfitTrackerContainerFingerprint();
+    private long runePouchFingerprint;
+    // Fingerprint of the inventory, equipment and rune pouch last sent to the tick worker, so ticks that only move
+    // items between them can be skipped. Only set once sent, as the worker must see the possessions at least once.
+    private long sentPersonFingerprint;
+    private boolean personFingerprintSent;
+
+    // Cached item values looked up again each tick, keeping prices current without a burst of lookups
+    private static final int ITEM_VALUES_REFRESHED_PER_TICK = 32;
+    // Values of a changed bank's items looked up each tick, so a large bank not yet valued is reconciled over several ticks
+    private static final int BANK_VALUES_PRIMED_PER_TICK = 200;
+    // Out of sync items listed in the overlay tooltip, any more are counted
+    private static final int DRIFT_ITEMS_DESCRIBED = 5;
+    // Sessions listed by the best sessions command, unless told otherwise
+    private static final int BEST_SESSIONS_LISTED = 10;
+    private static final DateTimeFormatter SESSION_DATE_FORMAT = DateTimeFormatter.ofPattern("d MMM yyyy");
+    // Config keys that change what items are worth, so the whole record is revalued when they change
+    private static final List<String> VALUATION_CONFIG_KEYS = Arrays.asList("valueMode", "priceSource", "costBasis", "estimateUntradeables");
+
+    // Runs tick snapshots through the processor and applies other record changes, one at a time in the order queued.
+    // Being the record's only writer, nothing else needs to lock it.
+    // Replaced with a direct executor when replaying recorded events.
+    Executor tickExecutor;
+    // Dedicated thread behind the tick executor, owned by the plugin while it runs
+    private ExecutorService tickWorker;
+    // Worker of the plugin's last run, which may still be finishing ticks queued before it stopped
+    private ExecutorService stoppedTickWorker;
+    private ProfitTrackerTickProcessor tickProcessor;
+    // Unit values over time, appended to by the tick worker
+    private ProfitTrackerPriceHistory priceHistory;
 
     private final int[] RUNE_POUCH_VARBITS = {
             VarbitID.RUNE_POUCH_QUANTITY_1,
@@ -101,6 +208,9 @@ public class ProfitTrackerPlugin extends Plugin
     @Inject
     private ProfitTrackerOverlay overlay;
 
+    @Inject
+    private ProfitTrackerDebugOverlay debugOverlay;
+
     @Inject
     private ConfigManager configManager;
 
@@ -113,17 +223,159 @@ public class ProfitTrackerPlugin extends Plugin
     @Inject
     private ChatboxPanelManager chatboxPanelManager;
 
+    @Inject
+    private ScheduledExecutorService executor;
+
+    @Inject
+    private ClientToolbar clientToolbar;
+
     @Override
     protected void startUp() throws Exception
     {
         // Add the inventory overlay
         overlayManager.add(overlay);
 
+        updateDebugOverlay();
+
+        panel = new ProfitTrackerPanel(this);
+        navigationButton = NavigationButton.builder()
+                .tooltip("Profit Tracker")
+                .icon(ImageUtil.loadImageResource(getClass(), "panel_icon.png"))
+                .priority(8)
+                .panel(panel)
+                .build();
+        if (config.showItemPanel()) {
+            clientToolbar.addNavigation(navigationButton);
+        }
+
         goldDropsObject = new ProfitTrackerGoldDrops(client, itemManager, config);
 
         inventoryValueObject = new ProfitTrackerInventoryValue(client, itemManager, config);
+        inventoryValueObject.setTracer(tracer);
+        updatePriceSource();
+
+        if (tickExecutor == null) {
+            tickWorker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "profit-tracker-tick");
+                thread.setDaemon(true);
+                return thread;
+            });
+            tickExecutor = tickWorker;
+        }
+        // The price history is only taken over once the last run's worker has closed it, so only one writes it.
+        // The same goes for the logs of a record kept from the last run, which profile changes don't reload when re-enabled.
+        ExecutorService previousTickWorker = stoppedTickWorker;
+        stoppedTickWorker = null;
+        ProfitTrackerRecord keptRecord = accountRecord;
+        tickExecutor.execute(() -> {
+            awaitTermination(previousTickWorker);
+            priceHistory = new ProfitTrackerPriceHistory(ProfitTrackerFiles.PRICE_HISTORY_FILE);
+            tickProcessor = new ProfitTrackerTickProcessor(inventoryValueObject, tracer, priceHistory);
+            if (keptRecord != null) {
+                keptRecord.openLogs(ProfitTrackerFiles.RECORD_DIRECTORY);
+            }
+        });
 
         initializeVariables();
+
+        if (config.recordEvents()) {
+            // Only started with the plugin, so replays begin from the same state
+            clientThread.invoke(this::startRecording);
+        }
+    }
+
+    /**
+     * Starts recording consumed events to a trace file, beginning with the state the plugin can currently see
+     */
+    private void startRecording()
+    {
+        String playerName = client.getLocalPlayer() != null ? client.getLocalPlayer().getName() : null;
+        try {
+            eventRecorder = ProfitTrackerEventRecorder.start(clock.millis(), client.getAccountHash(), playerName,
+                    RuneScapeProfileType.getCurrent(client).name());
+        } catch (IOException e) {
+            log.warn("Unable to start recording events", e);
+            return;
+        }
+        inventoryValueObject.setEventRecorder(eventRecorder);
+
+        for (Method method : ProfitTrackerConfig.class.getMethods()) {
+            ConfigItem configItem = method.getAnnotation(ConfigItem.class);
+            if (configItem != null) {
+                recordConfigItem(configItem.keyName(), true);
+            }
+        }
+        for (int containerId : new int[] {InventoryID.INV, InventoryID.WORN, InventoryID.BANK}) {
+            ItemContainer container = client.getItemContainer(containerId);
+            if (container != null) {
+                eventRecorder.recordContainer(true, containerId, container.getItems());
+            }
+        }
+        recordCollectionBoxes();
+        for (int varbitId : RUNE_POUCH_VARBITS) {
+            eventRecorder.recordVarbit(true, varbitId, client.getVarbitValue(varbitId));
+        }
+        GrandExchangeOffer[] offers = client.getGrandExchangeOffers();
+        if (offers != null) {
+            for (int slot = 0; slot < offers.length; slot++) {
+                if (offers[slot] != null) {
+                    eventRecorder.recordGrandExchangeOffer(true, slot, offers[slot]);
+                }
+            }
+        }
+    }
+
+    private void updateDebugOverlay()
+    {
+        tickStats.setEnabled(config.showTickStats());
+        tracer.setEnabled(config.traceTicks());
+        if (config.showTickStats() || config.traceTicks()) {
+            overlayManager.add(debugOverlay);
+        } else {
+            overlayManager.remove(debugOverlay);
+        }
+    }
+
+    private void stopRecording()
+    {
+        if (eventRecorder != null) {
+            log.debug("Stopped recording events to {}", eventRecorder.getFile());
+            inventoryValueObject.setEventRecorder(null);
+            eventRecorder.close();
+            eventRecorder = null;
+        }
+    }
+
+    /**
+     * Collection box containers fire no events, so their contents are recorded whenever the plugin may read them
+     */
+    private void recordCollectionBoxes()
+    {
+        for (int containerId : ProfitTrackerInventoryValue.COLLECTION_BOX_INVENTORY_IDS) {
+            ItemContainer container = client.getItemContainer(containerId);
+            if (container != null) {
+                eventRecorder.recordContainer(true, containerId, container.getItems());
+            }
+        }
+    }
+
+    private void recordConfigItem(String keyName, boolean state)
+    {
+        for (Method method : ProfitTrackerConfig.class.getMethods()) {
+            ConfigItem configItem = method.getAnnotation(ConfigItem.class);
+            if (configItem == null || !configItem.keyName().equals(keyName)) {
+                continue;
+            }
+            try {
+                Object value = method.invoke(config);
+                if (value instanceof Color) {
+                    value = ((Color) value).getRGB();
+                }
+                eventRecorder.recordConfig(state, keyName, String.valueOf(value));
+            } catch (ReflectiveOperationException e) {
+                log.warn("Unable to record config item {}", keyName, e);
+            }
+        }
     }
 
     private void initializeVariables()
@@ -151,6 +403,8 @@ public class ProfitTrackerPlugin extends Plugin
         runePouchContentsChanged = false;
 
         depositingItem = false;
+
+        personFingerprintSent = false;
     }
 
     private void startProfitTrackingSession()
@@ -162,7 +416,7 @@ public class ProfitTrackerPlugin extends Plugin
         initializeVariables();
 
         // initialize timer
-        startTickMillis = System.currentTimeMillis();
+        startTickMillis = clock.millis();
 
         activeTicks = 0;
 
@@ -178,23 +432,192 @@ public class ProfitTrackerPlugin extends Plugin
     }
 
     public void resetSession(boolean hardReset){
+        long sessionTicks = activeTicks;
         initializeVariables();
         startProfitTrackingSession();
         inventoryValueChanged = true;
         if (accountRecord != null) {
-            accountRecord.reset(configManager, hardReset);
-            accountRecord.save(gson);
-            overlay.updateBankStatus(accountRecord);
+            long resetMillis = clock.millis();
+            addAttributedTicks();
+            updateRecord(accountRecord, record -> {
+                record.archiveSession(sessionTicks, record.flipLedger.getRealizedProfit(), resetMillis);
+                record.reset(hardReset, resetMillis);
+                record.flipLedger.reset();
+            });
+            saveRecord(accountRecord);
+        }
+    }
+
+    /**
+     * Ends the trip being timed, if there is one, and starts timing the next unless told not to.
+     * The session itself carries on.
+     */
+    public void splitTrip(boolean startNext)
+    {
+        if (accountRecord == null) {
+            return;
+        }
+        long millis = clock.millis();
+        long ticks = activeTicks;
+        updateRecord(accountRecord, record -> {
+            long flipProfit = record.flipLedger.getRealizedProfit();
+            ProfitTrackerTrip trip = record.currentTrip;
+            if (trip != null) {
+                ProfitTrackerItemCollection tripItemDifference = trip.getItemDifference(record.itemDifferenceAccumulated);
+                long tripProfit = inventoryValueObject.calculateItemValue(tripItemDifference);
+                record.completeTrip(trip.end(millis, ticks, tripItemDifference, tripProfit, flipProfit));
+                log.debug("Completed trip {} with {} profit", record.completedTrips.length, tripProfit);
+            }
+            if (startNext) {
+                record.currentTrip = new ProfitTrackerTrip(millis, ticks, record.itemDifferenceAccumulated,
+                        record.profitAccumulated, flipProfit);
+            }
+        });
+    }
+
+    /**
+     * Queues a change to the account record on the tick worker, after any ticks already queued.
+     * A copy of the changed record is then published to the client thread for reading.
+     */
+    private void updateRecord(ProfitTrackerRecord record, Consumer<ProfitTrackerRecord> change)
+    {
+        tickExecutor.execute(() -> {
+            change.accept(record);
+            ProfitTrackerRecord view = record.copy();
+            clientThread.invokeLater(() -> publishRecordView(record, view));
+        });
+    }
+
+    private void publishRecordView(ProfitTrackerRecord record, ProfitTrackerRecord view)
+    {
+        if (record != accountRecord) {
+            // Changed accounts since, the old record is only kept to be saved
+            return;
+        }
+        recordView = view;
+        overlay.updateBankStatus(view);
+        if (view.currentTrip != shownTrip || view.completedTrips != shownCompletedTrips) {
+            shownTrip = view.currentTrip;
+            shownCompletedTrips = view.completedTrips;
+            ProfitTrackerTrip lastTrip = shownCompletedTrips.length > 0 ? shownCompletedTrips[shownCompletedTrips.length - 1] : null;
+            overlay.updateTrips(shownTrip, lastTrip, shownCompletedTrips.length);
+        }
+        if (view.topGainers != shownGainers || view.topLosers != shownLosers) {
+            shownGainers = view.topGainers;
+            shownLosers = view.topLosers;
+            overlay.updateContributions(shownGainers, shownLosers);
+            if (panel.isActive()) {
+                updateContributionsPanel();
+            }
+        }
+        if (view.topMarketMovers != shownMarketMovers) {
+            shownMarketMovers = view.topMarketMovers;
+            if (panel.isActive()) {
+                updateContributionsPanel();
+            }
+        }
+        // Valued at acquisition prices, the profit held items would make if lost at current prices is shown instead
+        long marketMovement = config.costBasis() ? view.profitAccumulated - view.costBasisProfit : view.marketMovement;
+        if (marketMovement != shownMarketMovement) {
+            shownMarketMovement = marketMovement;
+            overlay.updateMarketMovement(shownMarketMovement);
+        }
+        if (view.flipLedger.getRealizedProfit() != shownFlipProfit || view.flipLedger.getUnrealizedProfit() != shownUnrealizedFlipProfit) {
+            updateFlipUI();
+        }
+        if (view.driftItems != reportedDriftItems) {
+            reportedDriftItems = view.driftItems;
+            overlay.updateDriftWarning(reportedDriftItems != null ? describeDrift(reportedDriftItems) : null);
         }
     }
 
+    /**
+     * Lists the top items in the side panel, naming them on the client thread
+     */
+    void updateContributionsPanel()
+    {
+        clientThread.invoke(() -> {
+            List<String> gainers = describeContributions(shownGainers);
+            List<String> losers = describeContributions(shownLosers);
+            List<String> movers = describeContributions(shownMarketMovers);
+            SwingUtilities.invokeLater(() -> panel.setContributions(gainers, losers, movers));
+        });
+    }
+
+    private List<String> describeContributions(ProfitTrackerItemContribution[] contributions)
+    {
+        List<String> descriptions = new ArrayList<>(contributions.length);
+        for (ProfitTrackerItemContribution contribution : contributions) {
+            descriptions.add(ProfitTrackerOverlay.formatContribution(contribution,
+                    itemManager.getItemComposition(contribution.itemId).getName()));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes items found out of sync, as shown in the overlay tooltip
+     */
+    private String describeDrift(ProfitTrackerItemCollection driftItems)
+    {
+        StringBuilder description = new StringBuilder("Tracked items went out of sync, profit may be inaccurate.</br>")
+                .append("Unexpected changes:");
+        for (int i = 0; i < driftItems.size() && i < DRIFT_ITEMS_DESCRIBED; i++) {
+            description.append("</br>")
+                    .append(String.format("%,d", driftItems.getQuantity(i)))
+                    .append(" x ")
+                    .append(itemManager.getItemComposition(driftItems.getId(i)).getName());
+        }
+        if (driftItems.size() > DRIFT_ITEMS_DESCRIBED) {
+            description.append("</br>and ").append(driftItems.size() - DRIFT_ITEMS_DESCRIBED).append(" more");
+        }
+        description.append("</br>Resetting will track from your current items.");
+        log.warn("Tracked items went out of sync: {}", driftItems);
+        return description.toString();
+    }
+
+    /**
+     * Saves the record once changes already queued for it are made.
+     * The copy taken by the tick worker is written on a background thread, so neither tracking nor the client waits on it.
+     * @return Completes once the record has been written
+     */
+    private CompletableFuture<Void> saveRecord(ProfitTrackerRecord record)
+    {
+        if (record == accountRecord) {
+            addAttributedTicks();
+        }
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        long ticksOnline = activeTicks;
+        tickExecutor.execute(() -> {
+            record.ticksOnline = ticksOnline;
+            ProfitTrackerRecord copy = record.copyForSave();
+            ProfitTrackerHistory history = record.history != null ? record.history.copy() : null;
+            if (record.timeSeries != null) {
+                record.timeSeries.force();
+                record.itemChangeLog.force();
+            }
+            priceHistory.force();
+            executor.execute(() -> {
+                try {
+                    copy.save(ProfitTrackerFiles.RECORD_DIRECTORY, gson);
+                    if (history != null) {
+                        history.save(copy.getAccountHistoryFile(ProfitTrackerFiles.RECORD_DIRECTORY), gson);
+                    }
+                } finally {
+                    saved.complete(null);
+                }
+            });
+        });
+        return saved;
+    }
+
     /**
      * Creates an entry for the current login if needed.
      * Hooks up the possessions collection for repeat use for the current login.
+     * Records are loaded in the background, tracking starts once the record is ready.
      */
     private void checkAccount()
     {
-        String accountIdentifier = ProfitTrackerRecord.getAccountRecordKey(client);
+        String accountIdentifier = ProfitTrackerFiles.getAccountRecordKey(client);
         if (accountIdentifier == null) {
             return;
         }
@@ -202,41 +625,122 @@ public class ProfitTrackerPlugin extends Plugin
 
         if (previousAccount != null && changedAccounts) {
             // Changed account, save the items we know about
-            accountRecord.save(gson);
+            if (accountRecord != null) {
+                saveRecord(accountRecord);
+                ProfitTrackerRecord previousRecord = accountRecord;
+                tickExecutor.execute(previousRecord::closeLogs);
+            }
             accountRecord = null;
+            recordView = null;
+            inventoryFingerprint.reset();
+            equipmentFingerprint.reset();
+            bankFingerprint.reset();
+            personFingerprintSent = false;
         }
+        previousAccount = accountIdentifier;
 
         if (accountRecord == null) {
-            // Check for existing record
-            ProfitTrackerRecord record = ProfitTrackerRecord.load(client, configManager, gson);
-            if (! config.rememberProfit() && record != null) {
-                record.reset(configManager, true);
+            if (!accountIdentifier.equals(loadingAccount)) {
+                loadRecord(accountIdentifier);
             }
+            return;
+        }
+        showRecord();
+    }
 
+    /**
+     * Reads and parses the account's record on a background thread, then starts using it on the client thread
+     */
+    private void loadRecord(String accountIdentifier)
+    {
+        loadingAccount = accountIdentifier;
+        overlay.updateLoading(true);
+        long accountHash = client.getAccountHash();
+        String rsProfileType = RuneScapeProfileType.getCurrent(client).name();
+        File recordFile = ProfitTrackerFiles.getAccountRecordFile(client);
+        executor.execute(() -> {
+            // Check for existing record
+            ProfitTrackerRecord record = ProfitTrackerFiles.load(recordFile, gson);
+            boolean loaded = record != null;
             if (record == null) {
                 // Create a new one if not found
-                accountRecord = new ProfitTrackerRecord(client);
+                record = new ProfitTrackerRecord(accountHash, rsProfileType, clock.millis());
+            }
+            record.history = ProfitTrackerHistory.load(record.getAccountHistoryFile(ProfitTrackerFiles.RECORD_DIRECTORY), gson);
+            record.openLogs(ProfitTrackerFiles.RECORD_DIRECTORY);
+            ProfitTrackerRecord loadedRecord = record;
+            clientThread.invokeLater(() -> useLoadedRecord(accountIdentifier, loadedRecord, loaded));
+        });
+    }
+
+    private void useLoadedRecord(String accountIdentifier, ProfitTrackerRecord record, boolean loaded)
+    {
+        if (!accountIdentifier.equals(loadingAccount)) {
+            // Changed accounts while loading, the account loaded in its place is used instead
+            if (tickExecutor != null) {
+                tickExecutor.execute(record::closeLogs);
             } else {
-                accountRecord = record;
+                record.closeLogs();
             }
+            return;
+        }
+        loadingAccount = null;
+        overlay.updateLoading(false);
+        if (! config.rememberProfit() && loaded) {
+            record.archiveSession(record.ticksOnline, record.flipLedger.getRealizedProfit(), clock.millis());
+            record.reset(true, clock.millis());
+            record.flipLedger.reset();
         }
+        accountRecord = record;
+        // Not yet handed to the tick worker, so it can be copied here
+        publishRecordView(accountRecord, accountRecord.copy());
+        bankValuesPrimed = false;
+        primeRecordValues();
+        boolean costBasis = config.costBasis();
+        int valueMode = config.valueMode().ordinal();
+        updateRecord(accountRecord, loadedRecord -> {
+            loadedRecord.updateContributions(ProfitTrackerItemCollection.EMPTY, inventoryValueObject::calculateStackValue);
+            if (costBasis) {
+                updateCostBasis(loadedRecord, true, valueMode);
+            }
+        });
+        showRecord();
+    }
 
-        totalProfit = accountRecord.profitAccumulated;
-        activeTicks = accountRecord.ticksOnline;
-        startTickMillis = accountRecord.startTickMillies;
+    /**
+     * Shows the profit and session of the account's record in the overlay
+     */
+    private void showRecord()
+    {
+        totalProfit = getShownProfit(recordView);
+        activeTicks = recordView.ticksOnline;
+        startTickMillis = recordView.startTickMillies;
 
         overlay.updateProfitValue(totalProfit);
         overlay.updateStartTimeMillies(startTickMillis);
         overlay.updateActiveTicks(activeTicks);
 
-        overlay.updateBankStatus(accountRecord);
+        overlay.updateBankStatus(recordView);
+        updateFlipUI();
+    }
 
-        previousAccount = accountIdentifier;
+    /**
+     * Looks up the value of every item the record may need valued, so the tick worker finds them cached
+     */
+    private void primeRecordValues()
+    {
+        inventoryValueObject.primeItemValues(recordView.currentPossessions.getItems());
+        inventoryValueObject.primeItemValues(recordView.itemDifferenceAccumulated);
+        inventoryValueObject.primeItemValues(recordView.lastPossessionChange);
     }
 
     @Subscribe
     public void onRuneScapeProfileChanged(RuneScapeProfileChanged e)
     {
+        if (eventRecorder != null) {
+            // Include the record about to be loaded, so a replay starts from the same profit
+            eventRecorder.recordProfileChanged(client.getAccountHash(), ProfitTrackerFiles.readJson(client));
+        }
         checkAccount();
     }
 
@@ -245,88 +749,571 @@ public class ProfitTrackerPlugin extends Plugin
     {
         // Remove the inventory overlay
         overlayManager.remove(overlay);
+        overlayManager.remove(debugOverlay);
+        clientToolbar.removeNavigation(navigationButton);
+
+        if (tickWorker != null) {
+            // Ticks already submitted finish, their results are dropped once the record is gone.
+            // Files are closed after them, before the worker stops.
+            ProfitTrackerRecord record = accountRecord;
+            tickWorker.execute(() -> {
+                if (record != null) {
+                    record.closeLogs();
+                }
+                priceHistory.close();
+            });
+            tickWorker.shutdown();
+            stoppedTickWorker = tickWorker;
+            tickWorker = null;
+            tickExecutor = null;
+        }
+
+        clientThread.invoke(this::stopRecording);
+    }
+
+    private static void awaitTermination(ExecutorService worker)
+    {
+        if (worker == null) {
+            return;
+        }
+        try {
+            if (!worker.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Previous tick worker is still running");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Subscribe
     public void onGameTick(GameTick gameTick) throws Exception
+    {
+        long traceTick = -1;
+        if (eventRecorder != null) {
+            traceTick = eventRecorder.recordGameTick(clock.millis());
+        }
+
+        tickStats.startTick();
+        boolean submitted = processGameTick(traceTick);
+        tickStats.endTick();
+
+        if (eventRecorder != null) {
+            eventRecorder.recordTickSnapshot();
+            if (!submitted) {
+                eventRecorder.recordTickResult(traceTick, 0, totalProfit);
+            }
+        }
+    }
+
+    /**
+     * Counts the tick towards the region and activity the player is in.
+     * The count is only added to the record when either changes, or a minute passes, so most ticks don't queue anything.
+     */
+    private void attributeTick()
+    {
+        int regionId = getRegionId();
+        int activity = interfaceActivity != ProfitTrackerAttribution.NO_ACTIVITY ? interfaceActivity : npcActivity;
+        long minute = clock.millis() / 60_000L;
+        if (regionId != attributedRegion || activity != attributedActivity || minute != attributedMinute) {
+            addAttributedTicks();
+            attributedRegion = regionId;
+            attributedActivity = activity;
+            attributedMinute = minute;
+        }
+        attributedTicks++;
+    }
+
+    private void addAttributedTicks()
+    {
+        if (attributedTicks == 0 || accountRecord == null) {
+            return;
+        }
+        int regionId = attributedRegion;
+        int activity = attributedActivity;
+        long ticks = attributedTicks;
+        long millis = clock.millis();
+        updateRecord(accountRecord, record -> record.addAttributedTicks(regionId, activity, ticks, millis));
+        attributedTicks = 0;
+    }
+
+    /**
+     * Region of the player's location, using the real location of instanced areas like boss rooms
+     */
+    private int getRegionId()
+    {
+        Player player = client.getLocalPlayer();
+        LocalPoint localLocation = player != null ? player.getLocalLocation() : null;
+        if (localLocation == null) {
+            return ProfitTrackerAttribution.UNKNOWN_REGION;
+        }
+        return WorldPoint.fromLocalInstance(client, localLocation).getRegionID();
+    }
+
+    /**
+     * Answers profit history queries typed as ::profit commands, such as ::profit week or ::profit best 5.
+     * History belongs to the tick worker, so queries run there after any changes already queued.
+     */
+    @Subscribe
+    public void onCommandExecuted(CommandExecuted event)
+    {
+        if (!event.getCommand().equalsIgnoreCase("profit") || accountRecord == null) {
+            return;
+        }
+        String[] arguments = event.getArguments();
+        String query = arguments.length > 0 ? arguments[0].toLowerCase() : "today";
+        if (query.equals("market")) {
+            queryMarketMovement();
+            return;
+        }
+        if (query.equals("prices")) {
+            if (arguments.length > 1 && arguments[1].equalsIgnoreCase("save")) {
+                savePriceSnapshot();
+            } else {
+                sendChatMessage("Usage: ::profit prices save");
+            }
+            return;
+        }
+        if (query.equals("export")) {
+            boolean jsonLines = arguments.length > 1 && arguments[1].toLowerCase().startsWith("json");
+            boolean csv = arguments.length > 1 && arguments[1].equalsIgnoreCase("csv");
+            exportSession(jsonLines ? ProfitTrackerExport.Format.JSON_LINES : csv ? ProfitTrackerExport.Format.CSV : config.exportFormat());
+            return;
+        }
+        ProfitTrackerRecord record = accountRecord;
+        addAttributedTicks();
+        long millis = clock.millis();
+        if (query.equals("best")) {
+            boolean byActivity = false;
+            int count = BEST_SESSIONS_LISTED;
+            for (int i = 1; i < arguments.length; i++) {
+                if (arguments[i].equalsIgnoreCase("activity")) {
+                    byActivity = true;
+                } else if (arguments[i].matches("\\d{1,3}")) {
+                    count = Integer.parseInt(arguments[i]);
+                }
+            }
+            boolean activitySessions = byActivity;
+            int key = byActivity ? attributedActivity : attributedRegion;
+            int listed = count;
+            queryHistory(record, history -> describeBestSessions(history, activitySessions, key, listed));
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(clock.withZone(ZoneId.systemDefault()));
+        ZonedDateTime today = now.truncatedTo(ChronoUnit.DAYS);
+        ZonedDateTime from;
+        switch (query) {
+            case "today":
+                from = today;
+                break;
+            case "week":
+                from = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                break;
+            case "month":
+                from = today.withDayOfMonth(1);
+                break;
+            case "year":
+                from = today.withDayOfYear(1);
+                break;
+            case "all":
+                from = Instant.EPOCH.atZone(ZoneId.systemDefault());
+                break;
+            default:
+                sendChatMessage("Usage: ::profit [today|week|month|year|all], ::profit best [activity] [count],"
+                        + " ::profit market, ::profit export [csv|json], or ::profit prices save");
+                return;
+        }
+        long fromMillis = from.toInstant().toEpochMilli();
+        queryHistory(record, history -> {
+            long[] total = history.getTotal(fromMillis, millis + 1);
+            return Collections.singletonList("Profit " + (query.equals("all") ? "all time" : query.equals("today") ? "today" : "this " + query)
+                    + ": " + describeProfit(total[0], total[1]));
+        });
+    }
+
+    /**
+     * Runs a query on the tick worker and prints its lines in the chat
+     */
+    private void queryHistory(ProfitTrackerRecord record, Function<ProfitTrackerHistory, List<String>> query)
+    {
+        tickExecutor.execute(() -> {
+            if (record.history == null) {
+                return;
+            }
+            for (String line : query.apply(record.history)) {
+                sendChatMessage(line);
+            }
+        });
+    }
+
+    /**
+     * Prints how much of the session's profit came from prices changing, and the items that moved most
+     */
+    private void queryMarketMovement()
+    {
+        ProfitTrackerRecord view = recordView;
+        sendChatMessage("Market movement: " + String.format("%,d", view.marketMovement)
+                + ", earned: " + String.format("%,d", view.profitAccumulated - view.marketMovement));
+        for (String mover : describeContributions(view.topMarketMovers)) {
+            sendChatMessage(mover);
+        }
+    }
+
+    /**
+     * Values items with the configured prices, using live prices if the snapshot can't be read
+     */
+    private void updatePriceSource()
+    {
+        ProfitTrackerPriceSource priceSource = new ProfitTrackerItemManagerPrices(itemManager);
+        if (config.priceSource() == ProfitTrackerPriceSourceType.SNAPSHOT) {
+            try {
+                priceSource = ProfitTrackerPriceSnapshot.open(ProfitTrackerFiles.PRICE_SNAPSHOT_FILE);
+            } catch (IOException e) {
+                log.warn("Unable to read the price snapshot, using live prices", e);
+            }
+        }
+        inventoryValueObject.setPriceSource(priceSource);
+    }
+
+    /**
+     * Forgets cached item values and looks up the record's again, for when prices are to be found differently.
+     * Ticks already queued are valued at the old values, the worker switching to the new ones after them.
+     */
+    private void reloadItemValues()
+    {
+        Runnable useClearedValues = inventoryValueObject.clearItemValues();
+        if (tickExecutor != null) {
+            tickExecutor.execute(useClearedValues);
+        } else {
+            useClearedValues.run();
+        }
+        bankValuesPrimed = false;
+        if (accountRecord != null) {
+            primeRecordValues();
+            // Lots are valued again from the price history of the new values, the next time they are needed
+            updateRecord(accountRecord, ProfitTrackerRecord::clearCostBasis);
+        }
+    }
+
+    /**
+     * Saves live prices of every item valued so far as the price snapshot.
+     * Prices are looked up on the client thread, and written in the background.
+     */
+    private void savePriceSnapshot()
+    {
+        ProfitTrackerPriceSource livePrices = new ProfitTrackerItemManagerPrices(itemManager);
+        int[] itemIds = inventoryValueObject.getValuedItemIds();
+        int[] grandExchangePrices = new int[itemIds.length];
+        int[] storePrices = new int[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            grandExchangePrices[i] = livePrices.getGrandExchangePrice(itemIds[i]);
+            storePrices[i] = livePrices.getStorePrice(itemIds[i]);
+        }
+        long millis = clock.millis();
+        executor.execute(() -> {
+            try {
+                ProfitTrackerPriceSnapshot.write(ProfitTrackerFiles.PRICE_SNAPSHOT_FILE, itemIds, grandExchangePrices, storePrices, millis);
+            } catch (IOException e) {
+                log.warn("Unable to save the price snapshot", e);
+                sendChatMessage("Profit Tracker couldn't save prices: " + e.getMessage());
+                return;
+            }
+            sendChatMessage("Profit Tracker saved prices of " + itemIds.length + " items");
+            if (config.priceSource() == ProfitTrackerPriceSourceType.SNAPSHOT) {
+                clientThread.invoke(() -> {
+                    updatePriceSource();
+                    reloadItemValues();
+                });
+            }
+        });
+    }
+
+    /**
+     * Prints a message in the chat from any thread
+     */
+    private void sendChatMessage(String message)
+    {
+        clientThread.invokeLater(() -> client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", message, null));
+    }
+
+    /**
+     * Exports the session's ticks, item changes and item totals in the background, then says where in the chat.
+     * Starts once ticks already queued are logged, looking up item names on the client thread between reading and writing.
+     */
+    public void exportSession(ProfitTrackerExport.Format format)
+    {
+        if (accountRecord == null || accountRecord.timeSeries == null) {
+            return;
+        }
+        ProfitTrackerRecord record = accountRecord;
+        String name = recordView.name != null ? recordView.name : record.getAccountRecordKey();
+        ProfitTrackerItemCollection items = recordView.itemDifferenceAccumulated;
+        ProfitTrackerExport export = new ProfitTrackerExport(ProfitTrackerFiles.EXPORT_DIRECTORY, record.timeSeries, record.itemChangeLog,
+                recordView.startTickMillies, format, gson);
+        tickExecutor.execute(() -> executor.execute(() -> {
+            Set<Integer> itemIds;
+            try {
+                itemIds = export.findItemIds(items);
+            } catch (IOException e) {
+                log.warn("Unable to read session for export", e);
+                sendChatMessage("Profit Tracker export failed: " + e.getMessage());
+                return;
+            }
+            clientThread.invoke(() -> {
+                Map<Integer, String> itemNames = new HashMap<>();
+                for (int itemId : itemIds) {
+                    itemNames.put(itemId, itemManager.getItemComposition(itemId).getName());
+                }
+                long[] itemValues = new long[items.size()];
+                for (int i = 0; i < items.size(); i++) {
+                    itemValues[i] = inventoryValueObject.calculateStackValue(new ProfitTrackerItem(items.getId(i), items.getQuantity(i)));
+                }
+                long millis = clock.millis();
+                executor.execute(() -> {
+                    try {
+                        File file = export.write(name, items, itemValues, itemNames, millis);
+                        sendChatMessage("Profit Tracker exported the session to " + file.getParent());
+                    } catch (IOException e) {
+                        log.warn("Unable to export session", e);
+                        sendChatMessage("Profit Tracker export failed: " + e.getMessage());
+                    }
+                });
+            });
+        }));
+    }
+
+    private static List<String> describeBestSessions(ProfitTrackerHistory history, boolean byActivity, int key, int count)
+    {
+        List<ProfitTrackerSessionSummary> sessions = byActivity ? history.getBestActivitySessions(key, count)
+                : history.getBestRegionSessions(key, count);
+        List<String> lines = new ArrayList<>();
+        String where = byActivity ? "this activity" : "this region";
+        if (sessions.isEmpty()) {
+            lines.add("No archived sessions in " + where + " yet.");
+            return lines;
+        }
+        lines.add("Best sessions in " + where + ":");
+        for (int i = 0; i < sessions.size(); i++) {
+            ProfitTrackerSessionSummary session = sessions.get(i);
+            long profit = byActivity ? session.getActivityProfit(key) : session.getRegionProfit(key);
+            long ticks = byActivity ? session.getActivityTicks(key) : session.getRegionTicks(key);
+            String date = SESSION_DATE_FORMAT.format(Instant.ofEpochMilli(session.startMillis).atZone(ZoneId.systemDefault()));
+            lines.add((i + 1) + ". " + date + ": " + describeProfit(profit, ticks));
+        }
+        return lines;
+    }
+
+    private static String describeProfit(long profit, long ticks)
+    {
+        long millis = ticks * ProfitTrackerOverlay.MILLISECONDS_PER_TICK;
+        return ProfitTrackerGoldDrops.formatGoldDropText(profit) + " over " + ProfitTrackerOverlay.formatTimeIntervalFromMs(millis, false)
+                + " (" + ProfitTrackerGoldDrops.formatGoldDropText(ProfitTrackerOverlay.calculateProfitHourly(millis, profit) * 1000) + "/hr)";
+    }
+
+    @Subscribe
+    public void onInteractingChanged(InteractingChanged event)
+    {
+        if (event.getSource() == client.getLocalPlayer() && event.getTarget() instanceof NPC) {
+            npcActivity = ProfitTrackerAttribution.npcActivity(((NPC) event.getTarget()).getId());
+        }
+    }
+
+    /**
+     * Captures a snapshot of the tick if anything tracked changed, and hands it to the tick worker
+     * @return True if a snapshot was submitted, whose result will be published later
+     */
+    private boolean processGameTick(long traceTick)
     {
         /*
         Main plugin logic here
 
         1. If inventory changed,
-            - calculate profit (inventory value difference)
-            - generate gold drop (nice animation for showing gold earn or loss)
+            - snapshot possessions for the tick worker to calculate profit (inventory value difference)
+            - once published, generate gold drop (nice animation for showing gold earn or loss)
 
         2. Calculate profit rate and update in overlay
 
         */
 
-        long tickProfit;
-
         if (!inProfitTrackSession)
         {
             if (accountRecord != null){
                 overlay.startSession();
                 inProfitTrackSession = true;
+                if (config.goldDrops()) {
+                    goldDropsObject.prepareCoinSprites();
+                }
                 inventoryValueChanged = true;
                 // Active ticks will only be 0 if toggling the plugin
                 if (activeTicks == 0) {
                     resetSession(true);
                 }
             } else {
-                return;
+                return false;
             }
         }
 
-        if (accountRecord.name == null && client.getGameState() == GameState.LOGGED_IN) {
-            accountRecord.name = client.getLocalPlayer().getName();
+        if (recordView.name == null && client.getGameState() == GameState.LOGGED_IN) {
+            String playerName = client.getLocalPlayer().getName();
+            updateRecord(accountRecord, record -> record.name = playerName);
         }
 
+        // Only written to the record when saving, as it changes every tick
         activeTicks += 1;
-        accountRecord.ticksOnline = activeTicks;
+        attributeTick();
+        tracer.startTick(activeTicks);
+        long phaseStart = tickStats.startPhase();
         overlay.updateActiveTicks(activeTicks);
-
-        if (inventoryValueChanged || runePouchContentsChanged || bankValueChanged || grandExchangeValueChanged)
+        tickStats.endPhase(ProfitTrackerTickStats.Phase.OVERLAY, phaseStart);
+
+        boolean submitted = false;
+        // A changed bank is held back until all its items are valued, other changes carry on being tracked meanwhile
+        ProfitTrackerItemCollection bankItems = null;
+        boolean bankReconciled = true;
+        if (bankValueChanged || !bankValuesPrimed) {
+            bankItems = inventoryValueObject.getBankContents();
+            boolean primed = inventoryValueObject.primeItemValues(bankItems, BANK_VALUES_PRIMED_PER_TICK);
+            bankValuesPrimed = primed && bankItems != null;
+            // Unchanged items aren't valued by the tick worker, so only a changed bank needs to wait
+            bankReconciled = primed || !bankValueChanged;
+        }
+        if (runePouchContentsChanged) {
+            runePouchFingerprint = ProfitTrackerDriftChecksum.hash(inventoryValueObject.getRunePouchItems());
+        }
+        long personFingerprint = inventoryFingerprint.getFingerprint() + equipmentFingerprint.getFingerprint() + runePouchFingerprint;
+        if ((inventoryValueChanged || runePouchContentsChanged) && !bankValueChanged && !grandExchangeValueChanged
+                && !skipTickForProfitCalculation && personFingerprintSent && personFingerprint == sentPersonFingerprint)
         {
-            tickProfit = calculateProfit();
-
-            // Generate gold drop only based on instantaneous profit, to avoid scaring users during GE adjustment ticks
-            if (config.goldDrops() && tickProfit != 0)
-            {
-                goldDropsObject.requestGoldDrop(tickProfit);
-            }
-
-            totalProfit += tickProfit;
-
-            if (tickProfit != 0) {
-                // This causes total profit to only update when we profit off something.
-                // While this may cause temporary inaccuracy when GE prices change, it prevents excessive calculations
-                // every time an item is moved, equipped, deposited, etc.
-                totalProfit = inventoryValueObject.calculateItemValue(accountRecord.itemDifferenceAccumulated);
-            }
-
-            accountRecord.profitAccumulated = totalProfit;
-            overlay.updateProfitValue(totalProfit);
+            // Items only moved between the inventory, equipment and rune pouch, such as gear switches, which can't make profit
+            inventoryValueChanged = false;
+            runePouchContentsChanged = false;
+            depositingItem = false;
+        }
+        if (inventoryValueChanged || runePouchContentsChanged || (bankValueChanged && bankReconciled) || grandExchangeValueChanged)
+        {
+            phaseStart = tickStats.startPhase();
+            ProfitTrackerTickSnapshot snapshot = captureSnapshot(traceTick, bankReconciled, bankItems);
+            tickStats.endPhase(ProfitTrackerTickStats.Phase.SNAPSHOT, phaseStart);
+            tickExecutor.execute(() -> {
+                ProfitTrackerTickResult result;
+                try {
+                    result = tickProcessor.process(snapshot);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to process tick", e);
+                    return;
+                }
+                ProfitTrackerRecord view = snapshot.record.copy();
+                clientThread.invokeLater(() -> {
+                    publishRecordView(snapshot.record, view);
+                    publishTickResult(result);
+                });
+            });
+            submitted = true;
+            sentPersonFingerprint = personFingerprint;
+            personFingerprintSent = true;
 
+            skipTickForProfitCalculation = false;
+            depositingUntrackedItem = false;
             inventoryValueChanged = false;
-            bankValueChanged = false;
+            bankValueChanged = !bankReconciled;
             runePouchContentsChanged = false;
             grandExchangeValueChanged = false;
             depositingItem = false;
         }
+        inventoryValueObject.refreshItemValues(ITEM_VALUES_REFRESHED_PER_TICK);
         resetWidgetClosedVariables();
+        return submitted;
+    }
+
+    /**
+     * Copies what the tick worker needs from the client, and makes sure every item in it has been valued
+     * @param bankReconciled False while a changed bank's items are still being valued. The bank is then left out,
+     *                       and items gained or lost are treated as moved from or to it, as when banking without the widget.
+     *                       Once valued, the whole bank is diffed, giving the same result as if it were valued at once.
+     * @param bankItems Bank contents if already read this tick, otherwise they are read here
+     */
+    private ProfitTrackerTickSnapshot captureSnapshot(long traceTick, boolean bankReconciled, ProfitTrackerItemCollection bankItems)
+    {
+        ProfitTrackerItemCollection inventoryItems = inventoryValueObject.getInventoryAndEquipmentContents();
+        if (!bankReconciled) {
+            bankItems = null;
+        } else if (bankItems == null) {
+            // Unchanged banks were primed when they last changed
+            bankItems = inventoryValueObject.getBankContents();
+        }
+        ProfitTrackerItemCollection grandExchangeItems = grandExchangeValueChanged ? inventoryValueObject.getGrandExchangeContents() : null;
+
+        inventoryValueObject.primeItemValues(inventoryItems);
+        inventoryValueObject.primeItemValues(grandExchangeItems);
+
+        return new ProfitTrackerTickSnapshot(accountRecord, traceTick, activeTicks, clock.millis(), attributedRegion, attributedActivity,
+                config.valueMode().ordinal(), config.costBasis(), inventoryValueObject.takePriceChanges(),
+                inventoryItems, bankItems, grandExchangeItems,
+                inventoryValueChanged, bankValueChanged && bankReconciled, grandExchangeValueChanged, runePouchContentsChanged,
+                skipTickForProfitCalculation, bankOpened || !bankReconciled, depositBoxOpened, depositingItem,
+                grandExchangeOpened, untrackedStorageOpened, depositingUntrackedItem);
+    }
+
+    /**
+     * Applies a tick worker result on the client thread, in the order ticks were captured
+     */
+    private void publishTickResult(ProfitTrackerTickResult result)
+    {
+        tickStats.recordPhase(ProfitTrackerTickStats.Phase.DIFF, result.diffNanos);
+        tickStats.recordPhase(ProfitTrackerTickStats.Phase.VALUATION, result.valuationNanos);
+        tickStats.recordPhase(ProfitTrackerTickStats.Phase.PERSISTENCE, result.persistenceNanos);
+
+        // The account changed, or the plugin stopped, while the tick was processed
+        if (result.record != accountRecord || accountRecord == null) {
+            if (eventRecorder != null) {
+                eventRecorder.recordTickResult(result.traceTick, 0, totalProfit);
+            }
+            return;
+        }
+
+        if (result.unvaluedItemIds.length > 0) {
+            primeCostBasisValues(result.record, result.unvaluedItemIds);
+        }
+
+        long phaseStart = System.nanoTime();
+        long tickProfit = result.tickProfit;
+
+        // Generate gold drop only based on instantaneous profit, to avoid scaring users during GE adjustment ticks
+        if (config.goldDrops() && tickProfit != 0)
+        {
+            tracer.record(ProfitTrackerTracer.Type.GOLD_DROP, tickProfit, 0);
+            goldDropsObject.requestGoldDrop(tickProfit);
+        }
+
+        if (tickProfit != 0 || result.marketMovement != 0 || result.totalProfit != totalProfit) {
+            totalProfit = result.totalProfit;
+            markFlipsToMarket();
+        }
+
+        overlay.updateProfitValue(totalProfit);
+        tickStats.recordPhase(ProfitTrackerTickStats.Phase.OVERLAY, System.nanoTime() - phaseStart);
+
+        if (eventRecorder != null) {
+            eventRecorder.recordTickResult(result.traceTick, tickProfit, totalProfit);
+        }
     }
 
     @Subscribe
     public void onWidgetLoaded(WidgetLoaded event)
     {
+        if (eventRecorder != null) {
+            eventRecorder.recordWidgetLoaded(event.getGroupId());
+            recordCollectionBoxes();
+        }
         boolean isStorage = true;
         switch (event.getGroupId()) {
             case InterfaceID.BANKMAIN:
                 // Bank contents will be null if the bank has no items when first logging in
-                if (inventoryValueObject.getBankContents() == null && accountRecord.currentPossessions.bankItems == null) {
-                    accountRecord.updateBankItems(new Item[0]);
-                    overlay.updateBankStatus(accountRecord);
+                if (accountRecord != null && inventoryValueObject.getBankContents() == null && recordView.currentPossessions.bankItems == null) {
+                    updateRecord(accountRecord, record -> {
+                        if (record.currentPossessions.bankItems == null) {
+                            record.updateBankItems(ProfitTrackerItemCollection.EMPTY);
+                        }
+                    });
                 }
                 bankOpened = true;
                 break;
@@ -350,6 +1337,8 @@ public class ProfitTrackerPlugin extends Plugin
                 break;
         }
         if (isStorage) {
+            commitStorageEvent(event.getGroupId(), true);
+            interfaceActivity = ProfitTrackerAttribution.interfaceActivity(event.getGroupId());
             if (closingWidgetId == event.getGroupId()) {
                 // GE can close and open immediately when using the modify button, which would otherwise cause temporary
                 // profit desync that is stuck until another offer changes. Resetting prevents accidentally thinking storage
@@ -366,6 +1355,9 @@ public class ProfitTrackerPlugin extends Plugin
     @Subscribe
     public void onWidgetClosed(WidgetClosed event)
     {
+        if (eventRecorder != null) {
+            eventRecorder.recordWidgetClosed(event.getGroupId());
+        }
         // Widget closes immediately, but items can still transfer between containers the next tick
         // So actually flagging them is done at the end of the next tick, we just set a variable here to look for later
         switch (event.getGroupId()) {
@@ -408,102 +1400,23 @@ public class ProfitTrackerPlugin extends Plugin
                     depositBoxOpened = false;
                     break;
             }
+            commitStorageEvent(closingWidgetId, false);
+            if (interfaceActivity == ProfitTrackerAttribution.interfaceActivity(closingWidgetId)) {
+                interfaceActivity = ProfitTrackerAttribution.NO_ACTIVITY;
+            }
             closingWidgetId = 0;
         }
     }
 
-    private long calculateProfit()
+    private void commitStorageEvent(int interfaceId, boolean opened)
     {
-        /*
-        Calculate and return the profit for this tick
-        if skipTickForProfitCalculation is set, meaning this tick was bank / deposit
-        so return 0
-         */
-        ProfitTrackerPossessions newPossessions = new ProfitTrackerPossessions();
-        newPossessions.grandExchangeItems = null;
-        long newProfit = 0;
-        Item[] possessionDifference = null;
-
-        // calculate current inventory value
-        newPossessions.inventoryItems = inventoryValueObject.getInventoryAndEquipmentContents();
-        newPossessions.bankItems = inventoryValueObject.getBankContents();
-        if (grandExchangeValueChanged) {
-            newPossessions.grandExchangeItems = inventoryValueObject.getGrandExchangeContents();
-        }
-        accountRecord.currentPossessions.fillNullItems(newPossessions);
-        newPossessions.fillNullItems(accountRecord.currentPossessions);
-        Item[] newItems = newPossessions.getItems();
-
-        if (!skipTickForProfitCalculation && accountRecord.currentPossessions.inventoryItems != null && newItems != null)
-        {
-            // calculate new profit
-            possessionDifference = inventoryValueObject.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems, config.estimateUntradeables());
-            newProfit = inventoryValueObject.calculateItemValue(possessionDifference);
-
-            log.debug("Calculated " + newProfit + " profit for " + (possessionDifference.length) + " item changes.");
+        tracer.record(ProfitTrackerTracer.Type.STORAGE, interfaceId, opened ? 1 : 0);
+        ProfitTrackerFlightEvents.StorageEvent event = new ProfitTrackerFlightEvents.StorageEvent();
+        if (event.isEnabled()) {
+            event.interfaceId = interfaceId;
+            event.opened = opened;
+            event.commit();
         }
-        else
-        {
-            /* first time calculation / banking / equipping */
-            log.debug("Skipping profit calculation!");
-
-            skipTickForProfitCalculation = false;
-        }
-
-        Item[] rawPossessionDifference = new Item[0];
-        if (accountRecord.currentPossessions.getItems() != null) {
-            rawPossessionDifference = ProfitTrackerInventoryValue.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems);
-        }
-        if (rawPossessionDifference.length > 0) {
-            // This block generally checks for possessions changing when they shouldn't be, often when closing storage the same tick as withdraw/depositing
-            // Otherwise, just records the last change seen
-            boolean bankingItemsWithoutWidget = (bankOpened || depositingItem || depositBoxOpened) && inventoryValueObject.getBankContents() == null && !untrackedStorageOpened;
-            // If bank/deposit box/depositing flag, any lost items are in bank, any gained items came from bank
-            if (bankingItemsWithoutWidget) {
-                depositingItem = false;
-                Item[] bankChange = ProfitTrackerInventoryValue.getItemCollectionDifference(rawPossessionDifference, new Item[0]);
-                if (accountRecord.currentPossessions.bankItems != null) {
-                    newPossessions.bankItems = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.currentPossessions.bankItems, bankChange);
-                } else {
-                    // Bank yet to be opened, can't deposit anything, as then it would be like it originally had almost nothing
-                    accountRecord.updateItems(newPossessions, overlay);
-                    return 0;
-                }
-            }
-            // If ge opened, gained items pull from ge, items banked will cause temporary desync
-            if (grandExchangeOpened && !grandExchangeValueChanged) {
-                Item[] grandExchangeChange = ProfitTrackerInventoryValue.getItemCollectionDifference(rawPossessionDifference, new Item[0]);
-                newPossessions.grandExchangeItems = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.currentPossessions.grandExchangeItems, grandExchangeChange);
-            }
-            // If untracked storage, move lost items to untracked storage, add gained items to old record
-            if (untrackedStorageOpened || depositingUntrackedItem) {
-                depositingUntrackedItem = false;
-                Item[] untrackedStorageChange = ProfitTrackerInventoryValue.getItemCollectionDifference(rawPossessionDifference, new Item[0]);
-                newPossessions.untrackedStorageItems = ProfitTrackerInventoryValue.getItemCollectionSum(newPossessions.untrackedStorageItems, untrackedStorageChange);
-                // If we go into the negatives, that means untrackedStorage originally had more items in it
-                Item[] missingItems = ProfitTrackerInventoryValue.getItemCollectionGain(ProfitTrackerInventoryValue.getItemCollectionDifference(newPossessions.untrackedStorageItems, new Item[0]));
-                // Ensure starting possessions has at least as many as were withdrawn
-                accountRecord.startingPossessions.untrackedStorageItems = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.startingPossessions.untrackedStorageItems, missingItems);
-                accountRecord.currentPossessions.untrackedStorageItems = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.currentPossessions.untrackedStorageItems, missingItems);
-                newPossessions.untrackedStorageItems = ProfitTrackerInventoryValue.getItemCollectionSum(newPossessions.untrackedStorageItems, missingItems);
-            }
-
-            newItems = newPossessions.getItems();
-            // This should always be empty in the event of a storage being opened
-            rawPossessionDifference = ProfitTrackerInventoryValue.getItemCollectionDifference(accountRecord.currentPossessions.getItems(), newItems);
-            if (rawPossessionDifference.length > 0) {
-                accountRecord.lastPossessionChange = rawPossessionDifference;
-                accountRecord.itemDifferenceAccumulated = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.itemDifferenceAccumulated, rawPossessionDifference);
-            } else {
-                newProfit = 0;
-            }
-        }
-
-        // update prevInventoryValue for future calculations anyway!
-        //prevInventoryValue = newInventoryValue;
-        accountRecord.updateItems(newPossessions, overlay);
-
-        return newProfit;
     }
 
     @Subscribe
@@ -513,17 +1426,25 @@ public class ProfitTrackerPlugin extends Plugin
         this event tells us when inventory has changed
         and when banking/equipment event occurred this tick
          */
-        log.debug("onItemContainerChanged container id: " + event.getContainerId());
+        log.debug("onItemContainerChanged container id: {}", event.getContainerId());
 
         int containerId = event.getContainerId();
+        tracer.record(ProfitTrackerTracer.Type.CONTAINER_CHANGED, containerId, 0);
+
+        if (eventRecorder != null) {
+            eventRecorder.recordContainer(false, containerId, event.getItemContainer().getItems());
+            recordCollectionBoxes();
+        }
 
-        if (containerId == InventoryID.INV ||
-            containerId == InventoryID.WORN) {
+        // Moving items around, such as sorting the bank or switching tabs, leaves the fingerprint as it was
+        Item[] items = event.getItemContainer().getItems();
+        if ((containerId == InventoryID.INV && inventoryFingerprint.update(items)) ||
+            (containerId == InventoryID.WORN && equipmentFingerprint.update(items))) {
             // Inventory has changed - need calculate profit in onGameTick
             inventoryValueChanged = true;
         }
 
-        if (containerId == InventoryID.BANK) {
+        if (containerId == InventoryID.BANK && bankFingerprint.update(items)) {
             bankValueChanged = true;
         }
 
@@ -537,6 +1458,29 @@ public class ProfitTrackerPlugin extends Plugin
     @Subscribe
     public void onGrandExchangeOfferChanged(GrandExchangeOfferChanged event)
     {
+        if (eventRecorder != null) {
+            eventRecorder.recordGrandExchangeOffer(false, event.getSlot(), event.getOffer());
+            recordCollectionBoxes();
+        }
+        GrandExchangeOffer offer = event.getOffer();
+        // Every slot is sent as empty when logging in or hopping, before the offers in them are sent,
+        // so only empty slots seen while logged in are offers that were collected
+        if (accountRecord != null && offer != null && (offer.getState() != GrandExchangeOfferState.EMPTY
+                || client.getGameState() == GameState.LOGGED_IN)) {
+            GrandExchangeOfferState state = offer.getState();
+            boolean buying = state == GrandExchangeOfferState.BUYING
+                    || state == GrandExchangeOfferState.BOUGHT
+                    || state == GrandExchangeOfferState.CANCELLED_BUY;
+            int slot = event.getSlot();
+            boolean empty = state == GrandExchangeOfferState.EMPTY;
+            int itemId = offer.getItemId();
+            int quantitySold = offer.getQuantitySold();
+            long spent = offer.getSpent();
+            // Looked up here, as the ledger is updated on the tick worker
+            int marketPrice = empty ? 0 : inventoryValueObject.getGrandExchangePrice(itemId);
+            updateRecord(accountRecord, record -> record.flipLedger.onOfferChanged(slot, empty, buying, itemId, quantitySold,
+                    spent, boughtItemId -> marketPrice));
+        }
         if (grandExchangeOpened && closingWidgetId != InterfaceID.GE_OFFERS && closingWidgetId != InterfaceID.GE_COLLECT){
             inventoryValueObject.setOffers(client.getGrandExchangeOffers());
             grandExchangeValueChanged = true;
@@ -547,16 +1491,24 @@ public class ProfitTrackerPlugin extends Plugin
     public void onVarbitChanged(VarbitChanged event)
     {
         if (Arrays.stream(RUNE_POUCH_VARBITS).anyMatch(vb -> event.getVarbitId() == vb)){
+            if (eventRecorder != null) {
+                eventRecorder.recordVarbit(false, event.getVarbitId(), event.getValue());
+            }
+            tracer.record(ProfitTrackerTracer.Type.VARBIT_CHANGED, event.getVarbitId(), event.getValue());
             runePouchContentsChanged = true;
         }
     }
 
     @Subscribe
     public void onMenuOptionClicked(MenuOptionClicked event) {
+        if (eventRecorder != null) {
+            eventRecorder.recordMenuOptionClicked(event.getMenuOption(), event.getMenuTarget(), event.getItemId(), event.getId());
+        }
         /* for ignoring deposit in deposit box */
-        log.debug(String.format("Click! ID: %d ,menuOption: %s, menuTarget: %s",
-                  event.getId(), event.getMenuOption(), event.getMenuTarget()));
+        log.debug("Click! ID: {} ,menuOption: {}, menuTarget: {}",
+                  event.getId(), event.getMenuOption(), event.getMenuTarget());
         String menuOption = event.getMenuOption();
+        tracer.record(ProfitTrackerTracer.Type.MENU_OPTION, event.getItemId(), event.getId(), menuOption);
 
         String[] containerMenuOptions = {"Deposit-"};
         for (String containerMenuOption : containerMenuOptions) {
@@ -739,7 +1691,9 @@ public class ProfitTrackerPlugin extends Plugin
     @Subscribe
     public void onClientShutdown(ClientShutdown event)
     {
-        accountRecord.save(gson);
+        if (accountRecord != null && tickExecutor != null) {
+            event.waitFor(saveRecord(accountRecord));
+        }
     }
 
     @Subscribe
@@ -747,9 +1701,48 @@ public class ProfitTrackerPlugin extends Plugin
     {
         // Allows hot swapping between price calculation methods non-destructively
         if (configChanged.getGroup().equals(ProfitTrackerConfig.GROUP)) {
-            clientThread.invoke(this::updateProfitUI);
+            if (configChanged.getKey().equals("showTickStats") || configChanged.getKey().equals("traceTicks")) {
+                clientThread.invoke(this::updateDebugOverlay);
+            }
+            if (configChanged.getKey().equals("showItemPanel")) {
+                if (config.showItemPanel()) {
+                    clientToolbar.addNavigation(navigationButton);
+                } else {
+                    clientToolbar.removeNavigation(navigationButton);
+                }
+            }
+            clientThread.invoke(() -> {
+                if (eventRecorder != null) {
+                    if (configChanged.getKey().equals("recordEvents") && !config.recordEvents()) {
+                        stopRecording();
+                    } else {
+                        recordConfigItem(configChanged.getKey(), false);
+                    }
+                }
+            });
+            if (configChanged.getKey().equals("priceSource")) {
+                clientThread.invoke(() -> {
+                    updatePriceSource();
+                    reloadItemValues();
+                });
+            }
+            if (configChanged.getKey().equals("valueMode")) {
+                clientThread.invoke(this::reloadItemValues);
+            }
+            if (VALUATION_CONFIG_KEYS.contains(configChanged.getKey())) {
+                clientThread.invoke(this::updateProfitUI);
+            } else {
+                clientThread.invoke(() -> {
+                    if (accountRecord != null) {
+                        showRecord();
+                    }
+                });
+            }
             clientThread.invoke(() -> {
                 if (config.goldDrops()) {
+                    if (configChanged.getKey().equals("goldDrops") || configChanged.getKey().equals("iconStyle")) {
+                        goldDropsObject.prepareCoinSprites();
+                    }
                     String[] goldDropVisuals = {"color", "style", "drop"};
                     for (String containerMenuOption : goldDropVisuals) {
                         if (configChanged.getKey().toLowerCase().contains(containerMenuOption)) {
@@ -763,17 +1756,93 @@ public class ProfitTrackerPlugin extends Plugin
         }
     }
 
+    long getTotalProfit(){
+        return totalProfit;
+    }
+
+    /**
+     * Profit of a record as configured, valued either at current or acquisition prices
+     */
+    private long getShownProfit(ProfitTrackerRecord view){
+        return config.costBasis() ? view.costBasisProfit : view.profitAccumulated;
+    }
+
+    /**
+     * Revalues all accumulated item changes on the tick worker, once changes already queued are made
+     */
     private void updateProfitUI(){
         if (accountRecord != null) {
-            totalProfit = inventoryValueObject.calculateItemValue(accountRecord.itemDifferenceAccumulated);
-            accountRecord.profitAccumulated = totalProfit;
-            overlay.updateProfitValue(totalProfit);
+            boolean costBasis = config.costBasis();
+            int valueMode = config.valueMode().ordinal();
+            updateRecord(accountRecord, record -> {
+                record.profitAccumulated = inventoryValueObject.calculateItemValue(record.itemDifferenceAccumulated);
+                record.clearContributions();
+                record.updateContributions(ProfitTrackerItemCollection.EMPTY, inventoryValueObject::calculateStackValue);
+                updateCostBasis(record, costBasis, valueMode);
+            });
+        }
+    }
+
+    /**
+     * Builds or clears the record's acquisition price lots, then shows its profit. Must be called on the tick worker.
+     * Items the lots need that haven't been valued are first looked up on the client thread, then the lots are built.
+     */
+    private void updateCostBasis(ProfitTrackerRecord record, boolean costBasis, int valueMode){
+        int[] unvaluedItemIds = tickProcessor.updateCostBasis(record, costBasis, valueMode);
+        if (unvaluedItemIds.length > 0) {
+            clientThread.invokeLater(() -> primeCostBasisValues(record, unvaluedItemIds));
+            return;
+        }
+        long profit = costBasis ? record.costBasisProfit : record.profitAccumulated;
+        clientThread.invokeLater(() -> publishProfit(record, profit));
+    }
+
+    private void primeCostBasisValues(ProfitTrackerRecord record, int[] unvaluedItemIds){
+        if (record != accountRecord) {
+            return;
         }
+        inventoryValueObject.primeItemValues(unvaluedItemIds);
+        boolean costBasis = config.costBasis();
+        int valueMode = config.valueMode().ordinal();
+        updateRecord(record, primedRecord -> updateCostBasis(primedRecord, costBasis, valueMode));
+    }
+
+    private void publishProfit(ProfitTrackerRecord record, long profit){
+        if (record != accountRecord) {
+            return;
+        }
+        totalProfit = profit;
+        overlay.updateProfitValue(totalProfit);
+        markFlipsToMarket();
+    }
+
+    /**
+     * Marks the ledger's unsold buys at current prices. Prices are looked up here, and the ledger updated on the tick worker.
+     */
+    private void markFlipsToMarket(){
+        int[] itemIds = recordView.flipLedger.getOpenItemIds();
+        if (itemIds.length == 0) {
+            return;
+        }
+        int[] prices = new int[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            prices[i] = inventoryValueObject.getGrandExchangePrice(itemIds[i]);
+        }
+        updateRecord(accountRecord, record -> record.flipLedger.markToMarket(itemIds, prices));
+    }
+
+    private void updateFlipUI(){
+        shownFlipProfit = recordView.flipLedger.getRealizedProfit();
+        shownUnrealizedFlipProfit = recordView.flipLedger.getUnrealizedProfit();
+        overlay.updateFlipProfit(shownFlipProfit, shownUnrealizedFlipProfit);
     }
 
     public void adjustProfit()
     {
-        String lastChange = accountRecord.lastPossessionChange != null ? Long.toString(-inventoryValueObject.calculateItemValue(accountRecord.lastPossessionChange)) : "";
+        if (accountRecord == null) {
+            return;
+        }
+        String lastChange = recordView.lastPossessionChange != null ? Long.toString(-inventoryValueObject.calculateItemValue(recordView.lastPossessionChange)) : "";
         ChatboxTextInput chatInput = chatboxPanelManager.openTextInput("Adjust profit")
                 .value(lastChange);
         chatInput
@@ -790,11 +1859,17 @@ public class ProfitTrackerPlugin extends Plugin
                     input = input.replace("m", "000000");
                     input = input.replace("k", "000");
                     int adjustment = Integer.parseInt(input);
-                    Item[] coinsAdjustment = new Item[] {new Item(ItemID.COINS, adjustment)};
-                    accountRecord.itemDifferenceAccumulated = ProfitTrackerInventoryValue.getItemCollectionSum(accountRecord.itemDifferenceAccumulated, coinsAdjustment);
-                    accountRecord.profitAccumulated += adjustment;
-                    accountRecord.lastPossessionChange = coinsAdjustment;
+                    ProfitTrackerItemCollection coinsAdjustment = ProfitTrackerItemCollection.of(new ProfitTrackerItem(ItemID.COINS, adjustment));
                     clientThread.invoke(() -> {
+                        if (accountRecord == null) {
+                            return;
+                        }
+                        updateRecord(accountRecord, record -> {
+                            record.addAdjustment(coinsAdjustment);
+                            record.updateContributions(coinsAdjustment, inventoryValueObject::calculateStackValue);
+                            record.updateCostBasis(coinsAdjustment, inventoryValueObject::calculateStackValue);
+                            record.profitAccumulated += adjustment;
+                        });
                         updateProfitUI();
                         goldDropsObject.requestGoldDrop(adjustment);
                     });
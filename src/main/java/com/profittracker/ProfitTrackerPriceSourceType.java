@@ -0,0 +1,18 @@
+package com.profittracker;
+
+public enum ProfitTrackerPriceSourceType {
+    LIVE("Live prices"),
+    SNAPSHOT("Saved price snapshot");
+
+    private final String name;
+
+    ProfitTrackerPriceSourceType(String s) {
+        name = s;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
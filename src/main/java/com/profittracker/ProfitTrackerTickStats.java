@@ -0,0 +1,199 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Timing and allocation statistics for tick processing, split by phase.
+ * Client thread phase durations are summed over a tick, then recorded into histograms when the tick ends.
+ * Phases run by the tick worker are measured there, and recorded when their result is published.
+ * The tick total and allocations only cover the client thread. Does nothing but check a flag while disabled.
+ * Only used on the client thread.
+ */
+@Slf4j
+public class ProfitTrackerTickStats {
+    public enum Phase {
+        SNAPSHOT("Snapshot"),
+        DIFF("Diff"),
+        VALUATION("Valuation"),
+        PERSISTENCE("Persistence"),
+        OVERLAY("Overlay publish");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ProfitTrackerHistogram[] phaseHistograms = new ProfitTrackerHistogram[PHASES.length];
+    private final ProfitTrackerHistogram tickHistogram = new ProfitTrackerHistogram();
+    private final ProfitTrackerHistogram allocationHistogram = new ProfitTrackerHistogram();
+    private final long[] tickPhaseNanos = new long[PHASES.length];
+    private final boolean[] tickPhaseUsed = new boolean[PHASES.length];
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    private boolean enabled;
+    private long tickStartNanos;
+    private long tickStartAllocatedBytes;
+
+    public ProfitTrackerTickStats() {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            phaseHistograms[phase] = new ProfitTrackerHistogram();
+        }
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocationBean = null;
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void startTick() {
+        if (!enabled) {
+            return;
+        }
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            tickPhaseNanos[phase] = 0;
+            tickPhaseUsed[phase] = false;
+        }
+        tickStartAllocatedBytes = getAllocatedBytes();
+        tickStartNanos = System.nanoTime();
+    }
+
+    /**
+     * @return Start time to pass to {@link #endPhase}, or 0 if disabled
+     */
+    public long startPhase() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void endPhase(Phase phase, long startNanos) {
+        if (!enabled || startNanos == 0) {
+            return;
+        }
+        tickPhaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+        tickPhaseUsed[phase.ordinal()] = true;
+    }
+
+    public void endTick() {
+        if (!enabled || tickStartNanos == 0) {
+            return;
+        }
+        tickHistogram.record(System.nanoTime() - tickStartNanos);
+        if (allocationBean != null) {
+            allocationHistogram.record(getAllocatedBytes() - tickStartAllocatedBytes);
+        }
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            if (tickPhaseUsed[phase]) {
+                phaseHistograms[phase].record(tickPhaseNanos[phase]);
+            }
+        }
+        tickStartNanos = 0;
+    }
+
+    /**
+     * Records the duration of a phase measured elsewhere, such as on the tick worker
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        phaseHistograms[phase.ordinal()].record(nanos);
+    }
+
+    public ProfitTrackerHistogram getPhaseHistogram(Phase phase) {
+        return phaseHistograms[phase.ordinal()];
+    }
+
+    public ProfitTrackerHistogram getTickHistogram() {
+        return tickHistogram;
+    }
+
+    /**
+     * @return Histogram of bytes allocated by each tick, or null if the JVM can't measure it
+     */
+    public ProfitTrackerHistogram getAllocationHistogram() {
+        return allocationBean != null ? allocationHistogram : null;
+    }
+
+    public void reset() {
+        tickHistogram.reset();
+        allocationHistogram.reset();
+        for (ProfitTrackerHistogram histogram : phaseHistograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Writes a summary and the buckets of each histogram to a file in the profit tracker folder
+     * @return The file written
+     */
+    public File dump(long currentTimeMillis) throws IOException {
+        StringBuilder output = new StringBuilder();
+        output.append("histogram,count,mean,p50,p90,p99,max\n");
+        appendSummary(output, "Tick (ns)", tickHistogram);
+        for (Phase phase : PHASES) {
+            appendSummary(output, phase + " (ns)", phaseHistograms[phase.ordinal()]);
+        }
+        if (allocationBean != null) {
+            appendSummary(output, "Allocated (bytes)", allocationHistogram);
+        }
+
+        output.append("\nTick (ns)\nlower,upper,count\n");
+        tickHistogram.appendBuckets(output);
+        for (Phase phase : PHASES) {
+            output.append('\n').append(phase).append(" (ns)\nlower,upper,count\n");
+            phaseHistograms[phase.ordinal()].appendBuckets(output);
+        }
+        if (allocationBean != null) {
+            output.append("\nAllocated (bytes)\nlower,upper,count\n");
+            allocationHistogram.appendBuckets(output);
+        }
+
+        if (!ProfitTrackerFiles.RECORD_DIRECTORY.exists()) {
+            ProfitTrackerFiles.RECORD_DIRECTORY.mkdirs();
+        }
+        File file = new File(ProfitTrackerFiles.RECORD_DIRECTORY, "tick-stats_" + currentTimeMillis + ".csv");
+        Files.write(file.toPath(), output.toString().getBytes(StandardCharsets.UTF_8));
+        log.debug("Wrote tick stats to {}", file);
+        return file;
+    }
+
+    private static void appendSummary(StringBuilder output, String name, ProfitTrackerHistogram histogram) {
+        output.append(name).append(',')
+                .append(histogram.getCount()).append(',')
+                .append(histogram.getMean()).append(',')
+                .append(histogram.getPercentile(0.5)).append(',')
+                .append(histogram.getPercentile(0.9)).append(',')
+                .append(histogram.getPercentile(0.99)).append(',')
+                .append(histogram.getMax()).append('\n');
+    }
+
+    private long getAllocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+}
@@ -0,0 +1,672 @@
+package com.profittracker;
+
+import com.google.gson.Gson;
+import net.runelite.api.Client;
+import net.runelite.api.EnumComposition;
+import net.runelite.api.GameState;
+import net.runelite.api.GrandExchangeOffer;
+import net.runelite.api.GrandExchangeOfferState;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.Player;
+import net.runelite.api.WorldType;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.GrandExchangeOfferChanged;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.MenuOptionClicked;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.events.WidgetClosed;
+import net.runelite.api.events.WidgetLoaded;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.events.RuneScapeProfileChanged;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.chatbox.ChatboxPanelManager;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.overlay.OverlayManager;
+import net.runelite.client.ui.overlay.tooltip.TooltipManager;
+import net.runelite.client.util.AsyncBufferedImage;
+
+import javax.inject.Inject;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays a recorded event trace through the plugin without a game client or network.
+ * The client, item manager and config are stubbed from the state and prices in the trace, and the plugin's clock
+ * follows the recorded tick times, so replays are deterministic.
+ * Reports tick processing latency percentiles, and checks that profit matches what was recorded on every tick.
+ *
+ * Usage: ProfitTrackerReplay trace_file [repetitions]
+ */
+public class ProfitTrackerReplay implements ProfitTrackerEventTrace.Visitor
+{
+    private static final int GRAND_EXCHANGE_SLOTS = 8;
+
+    private final Map<Integer, Item[]> containers = new HashMap<>();
+    private final Map<Integer, Integer> varbits = new HashMap<>();
+    private final Map<Integer, Integer> grandExchangePrices = new HashMap<>();
+    private final Map<Integer, Integer> storePrices = new HashMap<>();
+    private final Map<Long, Integer> enumValues = new HashMap<>();
+    private final Map<String, String> configValues = new HashMap<>();
+    private final GrandExchangeOffer[] offers = new GrandExchangeOffer[GRAND_EXCHANGE_SLOTS];
+    private final ReplayClock clock = new ReplayClock();
+
+    private ProfitTrackerEventTrace.Header header;
+    private long accountHash;
+    private Client client;
+    private ProfitTrackerPlugin plugin;
+
+    private long[] tickNanos = new long[1024];
+    // Total profit after each tick was processed, as recorded results can arrive after later ticks
+    private long[] tickTotals = new long[1024];
+    private int ticks;
+    private long mismatchedTicks;
+    private int firstMismatchTick = -1;
+    private long recordedTotalProfit;
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: ProfitTrackerReplay trace_file [repetitions]");
+            System.exit(2);
+        }
+        // Records are loaded from and saved to the RuneLite directory, so keep replays away from the real one
+        File home = Files.createTempDirectory("profit-tracker-replay").toFile();
+        System.setProperty("user.home", home.getAbsolutePath());
+        System.setProperty("java.awt.headless", "true");
+
+        File trace = new File(args[0]);
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        boolean matched = true;
+        for (int repetition = 0; repetition < repetitions; repetition++)
+        {
+            matched &= new ProfitTrackerReplay().replay(trace);
+        }
+        System.exit(matched ? 0 : 1);
+    }
+
+    /**
+     * @return True if profit matched the recording on every tick
+     */
+    boolean replay(File trace) throws Exception
+    {
+        long records;
+        long startNanos = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(trace))))
+        {
+            header = ProfitTrackerEventTrace.readHeader(in);
+            accountHash = header.accountHash;
+            clock.millis = header.startMillis;
+            records = ProfitTrackerEventTrace.readRecords(in, this);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (plugin != null)
+        {
+            plugin.shutDown();
+        }
+
+        long[] sorted = Arrays.copyOf(tickNanos, ticks);
+        Arrays.sort(sorted);
+        System.out.printf("Replayed %,d records and %,d ticks in %,d ms%n", records, ticks, elapsedNanos / 1000000);
+        System.out.printf("Tick latency (us): p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                percentile(sorted, 1));
+        System.out.printf("Total profit: recorded %,d, replayed %,d%n", recordedTotalProfit, plugin != null ? plugin.getTotalProfit() : 0);
+        if (mismatchedTicks > 0)
+        {
+            System.out.printf("Profit differed from the recording on %,d ticks, starting at tick %,d%n", mismatchedTicks, firstMismatchTick);
+        }
+        return mismatchedTicks == 0;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile)
+    {
+        if (sortedNanos.length == 0)
+        {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1000.0;
+    }
+
+    @Override
+    public void onGameTick(long wallTimeMillis)
+    {
+        ensurePlugin();
+        clock.millis = wallTimeMillis;
+        long startNanos = System.nanoTime();
+        try
+        {
+            plugin.onGameTick(new GameTick());
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Tick " + ticks + " failed to process", e);
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        if (ticks == tickNanos.length)
+        {
+            tickNanos = Arrays.copyOf(tickNanos, ticks * 2);
+            tickTotals = Arrays.copyOf(tickTotals, ticks * 2);
+        }
+        tickTotals[ticks] = plugin.getTotalProfit();
+        tickNanos[ticks++] = durationNanos;
+    }
+
+    @Override
+    public void onContainer(boolean state, int containerId, int[] itemIds, int[] quantities)
+    {
+        Item[] items = new Item[itemIds.length];
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            items[slot] = new Item(itemIds[slot], quantities[slot]);
+        }
+        containers.put(containerId, items);
+        if (!state)
+        {
+            ensurePlugin();
+            plugin.onItemContainerChanged(new ItemContainerChanged(containerId, createContainer(containerId)));
+        }
+    }
+
+    @Override
+    public void onVarbit(boolean state, int varbitId, int value)
+    {
+        varbits.put(varbitId, value);
+        if (!state)
+        {
+            ensurePlugin();
+            VarbitChanged event = new VarbitChanged();
+            event.setVarbitId(varbitId);
+            event.setValue(value);
+            plugin.onVarbitChanged(event);
+        }
+    }
+
+    @Override
+    public void onWidgetLoaded(int groupId)
+    {
+        ensurePlugin();
+        WidgetLoaded event = new WidgetLoaded();
+        event.setGroupId(groupId);
+        plugin.onWidgetLoaded(event);
+    }
+
+    @Override
+    public void onWidgetClosed(int groupId)
+    {
+        ensurePlugin();
+        plugin.onWidgetClosed(new WidgetClosed(groupId, 0, true));
+    }
+
+    @Override
+    public void onMenuOptionClicked(String option, String target, int itemId, int id)
+    {
+        ensurePlugin();
+        MenuEntry menuEntry = stub(MenuEntry.class, (method, args) ->
+        {
+            switch (method)
+            {
+                case "getOption":
+                    return option;
+                case "getTarget":
+                    return target;
+                case "getItemId":
+                    return itemId;
+                case "getIdentifier":
+                    return id;
+                default:
+                    return null;
+            }
+        });
+        plugin.onMenuOptionClicked(new MenuOptionClicked(menuEntry));
+    }
+
+    @Override
+    public void onGrandExchangeOffer(boolean state, int slot, int itemId, int stateOrdinal, int quantitySold, int totalQuantity, int price, int spent)
+    {
+        GrandExchangeOffer offer = stub(GrandExchangeOffer.class, (method, args) ->
+        {
+            switch (method)
+            {
+                case "getItemId":
+                    return itemId;
+                case "getState":
+                    return GrandExchangeOfferState.values()[stateOrdinal];
+                case "getQuantitySold":
+                    return quantitySold;
+                case "getTotalQuantity":
+                    return totalQuantity;
+                case "getPrice":
+                    return price;
+                case "getSpent":
+                    return spent;
+                default:
+                    return null;
+            }
+        });
+        offers[slot] = offer;
+        if (!state)
+        {
+            ensurePlugin();
+            GrandExchangeOfferChanged event = new GrandExchangeOfferChanged();
+            event.setSlot(slot);
+            event.setOffer(offer);
+            plugin.onGrandExchangeOfferChanged(event);
+        }
+    }
+
+    @Override
+    public void onGrandExchangePrice(int itemId, int price)
+    {
+        grandExchangePrices.put(itemId, price);
+    }
+
+    @Override
+    public void onStorePrice(int itemId, int price)
+    {
+        storePrices.put(itemId, price);
+    }
+
+    @Override
+    public void onEnumValue(int enumId, int key, int value)
+    {
+        enumValues.put(((long) enumId << 32) | (key & 0xFFFFFFFFL), value);
+    }
+
+    @Override
+    public void onProfileChanged(long accountHash, String recordJson)
+    {
+        ensurePlugin();
+        this.accountHash = accountHash;
+        File recordFile = ProfitTrackerFiles.getAccountRecordFile(client);
+        try
+        {
+            if (recordJson != null)
+            {
+                recordFile.getParentFile().mkdirs();
+                Files.write(recordFile.toPath(), recordJson.getBytes());
+            }
+            else
+            {
+                Files.deleteIfExists(recordFile.toPath());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to restore recorded account record", e);
+        }
+        plugin.onRuneScapeProfileChanged(new RuneScapeProfileChanged());
+    }
+
+    @Override
+    public void onConfig(boolean state, String key, String value)
+    {
+        configValues.put(key, value);
+        if (!state && plugin != null)
+        {
+            ConfigChanged event = new ConfigChanged();
+            event.setGroup(ProfitTrackerConfig.GROUP);
+            event.setKey(key);
+            event.setNewValue(value);
+            plugin.onConfigChanged(event);
+        }
+    }
+
+    @Override
+    public void onTickResult(long tick, long tickProfit, long totalProfit)
+    {
+        recordedTotalProfit = totalProfit;
+        if (tick >= ticks || tickTotals[(int) tick] != totalProfit)
+        {
+            mismatchedTicks++;
+            if (firstMismatchTick < 0)
+            {
+                firstMismatchTick = (int) tick;
+            }
+        }
+    }
+
+    /**
+     * The plugin is started once the recorded config is known, as the first records of a trace set it
+     */
+    private void ensurePlugin()
+    {
+        if (plugin != null)
+        {
+            return;
+        }
+        try
+        {
+            plugin = createPlugin();
+            plugin.startUp();
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Unable to start plugin for replay", e);
+        }
+    }
+
+    private ProfitTrackerPlugin createPlugin() throws Exception
+    {
+        client = createClient();
+        ProfitTrackerConfig config = createConfig();
+
+        ItemManager itemManager = mock(ItemManager.class);
+        when(itemManager.getItemPrice(anyInt())).thenAnswer(invocation ->
+                grandExchangePrices.getOrDefault((Integer) invocation.getArgument(0), 0));
+        when(itemManager.getItemComposition(anyInt())).thenAnswer(invocation ->
+        {
+            int itemId = invocation.getArgument(0);
+            return stub(ItemComposition.class, (method, args) -> "getPrice".equals(method) ? storePrices.getOrDefault(itemId, 0) : null);
+        });
+        when(itemManager.getImage(anyInt(), anyInt(), anyBoolean())).thenAnswer(invocation -> mock(AsyncBufferedImage.class));
+
+        // Invocations run immediately, as replay events are delivered from a single thread
+        ClientThread clientThread = mock(ClientThread.class);
+        doAnswer(invocation ->
+        {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(clientThread).invoke(any(Runnable.class));
+        doAnswer(invocation ->
+        {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(clientThread).invokeLater(any(Runnable.class));
+
+        // Records are saved as they would be in the background, before the next event
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation ->
+        {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+
+        ProfitTrackerPlugin plugin = new ProfitTrackerPlugin();
+        plugin.clock = clock;
+        // Ticks are processed as they are replayed, so each result is known before the next record is read
+        plugin.tickExecutor = Runnable::run;
+
+        Constructor<ProfitTrackerOverlay> overlayConstructor = ProfitTrackerOverlay.class.getDeclaredConstructor(ProfitTrackerConfig.class, ProfitTrackerPlugin.class);
+        overlayConstructor.setAccessible(true);
+        ProfitTrackerOverlay overlay = overlayConstructor.newInstance(config, plugin);
+
+        Map<Class<?>, Object> bindings = new HashMap<>();
+        bindings.put(Client.class, client);
+        bindings.put(ProfitTrackerConfig.class, config);
+        bindings.put(ItemManager.class, itemManager);
+        bindings.put(OverlayManager.class, mock(OverlayManager.class));
+        bindings.put(ProfitTrackerOverlay.class, overlay);
+        bindings.put(ConfigManager.class, mock(ConfigManager.class));
+        bindings.put(Gson.class, new Gson());
+        bindings.put(ClientThread.class, clientThread);
+        bindings.put(ChatboxPanelManager.class, mock(ChatboxPanelManager.class));
+        bindings.put(TooltipManager.class, mock(TooltipManager.class));
+        bindings.put(ScheduledExecutorService.class, executor);
+        bindings.put(ClientToolbar.class, mock(ClientToolbar.class));
+        inject(plugin, bindings);
+        inject(overlay, bindings);
+        return plugin;
+    }
+
+    private static void inject(Object target, Map<Class<?>, Object> bindings) throws IllegalAccessException
+    {
+        for (Field field : target.getClass().getDeclaredFields())
+        {
+            if (field.isAnnotationPresent(Inject.class) && bindings.containsKey(field.getType()))
+            {
+                field.setAccessible(true);
+                field.set(target, bindings.get(field.getType()));
+            }
+        }
+    }
+
+    private Client createClient()
+    {
+        Player player = stub(Player.class, (method, args) -> "getName".equals(method) ? header.playerName : null);
+        return stub(Client.class, (method, args) ->
+        {
+            switch (method)
+            {
+                case "getAccountHash":
+                    return accountHash;
+                case "getGameState":
+                    return GameState.LOGGED_IN;
+                case "getLocalPlayer":
+                    return player;
+                case "getWorldType":
+                    return EnumSet.noneOf(WorldType.class);
+                case "getItemContainer":
+                    return containers.containsKey((Integer) args[0]) ? createContainer((Integer) args[0]) : null;
+                case "getVarbitValue":
+                    return varbits.getOrDefault((Integer) args[0], 0);
+                case "getGrandExchangeOffers":
+                    return createOffers();
+                case "getEnum":
+                    int enumId = (Integer) args[0];
+                    return stub(EnumComposition.class, (enumMethod, enumArgs) -> "getIntValue".equals(enumMethod)
+                            ? enumValues.getOrDefault(((long) enumId << 32) | ((Integer) enumArgs[0] & 0xFFFFFFFFL), -1)
+                            : null);
+                case "getTickCount":
+                    return ticks;
+                case "isClientThread":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private ItemContainer createContainer(int containerId)
+    {
+        Item[] items = containers.get(containerId);
+        return stub(ItemContainer.class, (method, args) ->
+        {
+            switch (method)
+            {
+                case "getId":
+                    return containerId;
+                case "getItems":
+                    return items.clone();
+                case "size":
+                    return items.length;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private GrandExchangeOffer[] createOffers()
+    {
+        GrandExchangeOffer[] result = offers.clone();
+        for (int slot = 0; slot < result.length; slot++)
+        {
+            if (result[slot] == null)
+            {
+                result[slot] = stub(GrandExchangeOffer.class, (method, args) -> "getState".equals(method) ? GrandExchangeOfferState.EMPTY : null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Config values come from the trace, parsed by the return type of each config item.
+     * Recording is always off, so a replay doesn't produce another trace.
+     */
+    private ProfitTrackerConfig createConfig()
+    {
+        Map<String, String> keyNames = new HashMap<>();
+        for (Method method : ProfitTrackerConfig.class.getMethods())
+        {
+            ConfigItem configItem = method.getAnnotation(ConfigItem.class);
+            if (configItem != null)
+            {
+                keyNames.put(method.getName(), configItem.keyName());
+            }
+        }
+        return stub(ProfitTrackerConfig.class, (method, args) ->
+        {
+            String keyName = keyNames.get(method);
+            if (keyName == null || "recordEvents".equals(keyName) || "goldDrops".equals(keyName))
+            {
+                return null;
+            }
+            return configValues.get(keyName);
+        });
+    }
+
+    private interface StubHandler
+    {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * Creates an implementation of the interface answering with the handler.
+     * Config values given as strings are converted to the method's return type, and unanswered methods return defaults.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, StubHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) ->
+        {
+            if (method.getDeclaringClass() == Object.class)
+            {
+                switch (method.getName())
+                {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return type.getSimpleName() + " stub";
+                }
+            }
+            Object result = handler.invoke(method.getName(), args);
+            Class<?> returnType = method.getReturnType();
+            if (result instanceof String && returnType != String.class)
+            {
+                return parseValue((String) result, returnType);
+            }
+            if (result == null && returnType.isPrimitive())
+            {
+                return defaultValue(returnType);
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parseValue(String value, Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return Boolean.parseBoolean(value);
+        }
+        if (type == int.class)
+        {
+            return Integer.parseInt(value);
+        }
+        if (type == long.class)
+        {
+            return Long.parseLong(value);
+        }
+        if (type == Color.class)
+        {
+            return new Color(Integer.parseInt(value), true);
+        }
+        if (type.isEnum())
+        {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+        return null;
+    }
+
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return false;
+        }
+        if (type == long.class)
+        {
+            return 0L;
+        }
+        if (type == double.class)
+        {
+            return 0.0;
+        }
+        if (type == float.class)
+        {
+            return 0.0F;
+        }
+        if (type == void.class)
+        {
+            return null;
+        }
+        return 0;
+    }
+
+    /**
+     * Clock following the recorded tick times
+     */
+    private static class ReplayClock extends Clock
+    {
+        private long millis;
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone)
+        {
+            return this;
+        }
+
+        @Override
+        public long millis()
+        {
+            return millis;
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}